@@ -1,15 +1,30 @@
 package com.bsr.bsr_booking.agent.config;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
 
 @Configuration
 public class AgentConfig {
 
-    @Bean
-    public RestTemplate restTemplate() {
-        return new RestTemplate();
+    // Runs the work after a model reply (parsing, booking/room lookups) off the HTTP client's threads.
+    // Virtual threads, so a blocking JPA call in there costs no platform thread; the limit caps DB pressure.
+    @Bean(name = "agentExecutor")
+    public SimpleAsyncTaskExecutor agentExecutor(@Value("${agent.executor.concurrency-limit:64}") int concurrencyLimit) {
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("agent-");
+        executor.setVirtualThreads(true);
+        executor.setConcurrencyLimit(concurrencyLimit);
+        return executor;
     }
-}
 
+    // Runs the independent lookups of a multi-action turn side by side. Kept apart from agentExecutor because the
+    // turn waiting on them already holds one of its slots.
+    @Bean(name = "agentActionExecutor")
+    public SimpleAsyncTaskExecutor agentActionExecutor(@Value("${agent.action-executor.concurrency-limit:64}") int concurrencyLimit) {
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("agent-action-");
+        executor.setVirtualThreads(true);
+        executor.setConcurrencyLimit(concurrencyLimit);
+        return executor;
+    }
+}
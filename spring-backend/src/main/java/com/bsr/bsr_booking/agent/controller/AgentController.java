@@ -1,25 +1,82 @@
 package com.bsr.bsr_booking.agent.controller;
 
+import com.bsr.bsr_booking.agent.dto.AgentAction;
 import com.bsr.bsr_booking.agent.dto.AgentChatRequest;
 import com.bsr.bsr_booking.agent.dto.AgentChatResponse;
 import com.bsr.bsr_booking.agent.service.AgentService;
+import com.bsr.bsr_booking.agent.service.AgentStreamListener;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/api/agent")
 @RequiredArgsConstructor
+@Slf4j
 public class AgentController {
 
     private final AgentService agentService;
 
+    @Value("${agent.stream.timeout-ms:60000}")
+    private long streamTimeoutMs;
+
+    // Returned asynchronously: the servlet thread is released while the model is thinking
     @PostMapping("/chat")
-    public ResponseEntity<AgentChatResponse> chat(@RequestBody AgentChatRequest request) {
-        return ResponseEntity.ok(agentService.handleChat(request));
+    public CompletableFuture<ResponseEntity<AgentChatResponse>> chat(@RequestBody AgentChatRequest request) {
+        return agentService.handleChatAsync(request).thenApply(ResponseEntity::ok);
     }
-}
 
+    /**
+     * Streams one turn as Server-Sent Events: "action" once the model has chosen one, "delta" events carrying the
+     * reply text as it is generated, then "final" with the complete AgentChatResponse (whose reply supersedes the deltas).
+     */
+    @PostMapping(value = "/chat/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter chatStream(@RequestBody AgentChatRequest request) {
+        SseEmitter emitter = new SseEmitter(streamTimeoutMs);
+        agentService.handleChatStream(request, new AgentStreamListener() {
+                    @Override
+                    public void onAction(AgentAction action) {
+                        send(emitter, "action", Map.of("action", action));
+                    }
+
+                    @Override
+                    public void onDelta(String text) {
+                        send(emitter, "delta", Map.of("text", text));
+                    }
+                })
+                .whenComplete((response, error) -> {
+                    if (error != null) {
+                        emitter.completeWithError(error);
+                        return;
+                    }
+                    try {
+                        send(emitter, "final", response);
+                        emitter.complete();
+                    } catch (UncheckedIOException e) {
+                        log.debug("Agent stream closed before the final event: {}", e.getMessage());
+                    }
+                });
+        return emitter;
+    }
+
+    private static void send(SseEmitter emitter, String event, Object data) {
+        try {
+            emitter.send(SseEmitter.event().name(event).data(data, MediaType.APPLICATION_JSON));
+        } catch (IOException e) {
+            // the client went away; failing here stops the model stream from being forwarded
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -6,6 +6,8 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.util.List;
+
 @Data
 @Builder
 @AllArgsConstructor
@@ -16,5 +18,7 @@ public class AgentChatResponse {
     private Response backendResponse;
     private String rawModelOutput;
     private String note;
+    // one entry per action when the turn ran several; backendResponse then holds their combined data
+    private List<AgentChatResponse> results;
 }
 
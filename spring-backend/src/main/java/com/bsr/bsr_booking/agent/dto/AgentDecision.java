@@ -4,6 +4,7 @@ import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import lombok.Data;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 @Data
@@ -13,5 +14,7 @@ public class AgentDecision {
     private String intent;
     private Map<String, Object> params = new HashMap<>();
     private String response;
+    // set when one message asks for several things; each entry carries its own action and params
+    private List<AgentDecision> actions;
 }
 
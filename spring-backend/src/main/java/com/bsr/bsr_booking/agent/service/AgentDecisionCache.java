@@ -0,0 +1,196 @@
+package com.bsr.bsr_booking.agent.service;
+
+import com.bsr.bsr_booking.agent.dto.AgentAction;
+import com.bsr.bsr_booking.agent.dto.AgentDecision;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.regex.Pattern;
+
+/**
+ * Remembers model decisions for common chat openers ("show rooms", "hi") so they do not cost a Gemini call each time.
+ * Keyed on the latest user message, lower-cased with punctuation and extra spaces removed, plus the context slots
+ * the prompt carries and the assistant reply it answers, so a follow-up like "yes" or "the second one" only hits after
+ * the same reply; the rest of the history is ignored. Entries live for agent.decision-cache.ttl-minutes and the
+ * least recently used one is dropped beyond agent.decision-cache.max-entries.
+ * Nothing is cached when the message uses a relative date ("tomorrow", "next friday"), when the decision carries
+ * dates the key does not pin down, or when the action changes data (bookings, account updates).
+ */
+@Component
+public class AgentDecisionCache {
+
+    record Key(String message, ConversationIntent intent, String checkIn, String checkOut, Integer roomNumber,
+               String lastAssistant) {
+    }
+
+    // read-only actions; replaying a booking or an account update from cache is never wanted
+    private static final Set<AgentAction> CACHEABLE_ACTIONS =
+            EnumSet.of(AgentAction.SMALL_TALK, AgentAction.AVAILABLE_ROOMS, AgentAction.GET_ROOM_BY_ID, AgentAction.GET_MY_BOOKINGS);
+
+    private static final Set<String> RELATIVE_DATE_WORDS = Set.of("today", "tonight", "tomorrow", "tmrw", "tmr",
+            "yesterday", "now", "day", "days", "week", "weeks", "weekend", "month", "months", "year", "next", "coming",
+            "upcoming", "monday", "tuesday", "wednesday", "thursday", "friday", "saturday", "sunday");
+
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final int maxMessageChars;
+    private final LongSupplier clock;
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter skippedRelativeDate;
+    private final Counter skippedUncacheable;
+
+    // access-ordered, so iteration starts at the least recently used entry
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+
+    @Autowired
+    public AgentDecisionCache(MeterRegistry meterRegistry,
+                              @Value("${agent.decision-cache.max-entries:2000}") int maxEntries,
+                              @Value("${agent.decision-cache.ttl-minutes:10}") long ttlMinutes,
+                              @Value("${agent.decision-cache.max-message-chars:160}") int maxMessageChars) {
+        this(meterRegistry, maxEntries, TimeUnit.MINUTES.toNanos(ttlMinutes), maxMessageChars, System::nanoTime);
+    }
+
+    AgentDecisionCache(MeterRegistry meterRegistry, int maxEntries, long ttlNanos, int maxMessageChars, LongSupplier clock) {
+        this.maxEntries = maxEntries;
+        this.ttlNanos = ttlNanos;
+        this.maxMessageChars = maxMessageChars;
+        this.clock = clock;
+        this.hits = lookupCounter(meterRegistry, "hit");
+        this.misses = lookupCounter(meterRegistry, "miss");
+        this.skippedRelativeDate = lookupCounter(meterRegistry, "skipped_relative_date");
+        this.skippedUncacheable = lookupCounter(meterRegistry, "skipped_uncacheable");
+        Gauge.builder("agent.decision.cache.size", this, AgentDecisionCache::size).register(meterRegistry);
+        Gauge.builder("agent.decision.cache.hit.ratio", this, AgentDecisionCache::hitRatio)
+                .description("Share of cache lookups answered without a model call")
+                .register(meterRegistry);
+    }
+
+    /**
+     * @return the cache key for this turn, or null if the turn must go to the model
+     */
+    Key keyFor(String latestMessage, ConversationContext ctx) {
+        if (latestMessage == null) {
+            skippedUncacheable.increment();
+            return null;
+        }
+        String normalized = normalize(latestMessage);
+        if (normalized.isEmpty() || normalized.length() > maxMessageChars) {
+            skippedUncacheable.increment();
+            return null;
+        }
+        for (String word : normalized.split(" ")) {
+            if (RELATIVE_DATE_WORDS.contains(word)) {
+                skippedRelativeDate.increment();
+                return null;
+            }
+        }
+        return new Key(normalized, ctx.intent, ctx.checkIn, ctx.checkOut, ctx.roomNumber,
+                ctx.lastAssistant == null ? null : normalize(ctx.lastAssistant));
+    }
+
+    /**
+     * @return a copy of the cached decision, or null
+     */
+    AgentDecision get(Key key) {
+        long now = clock.getAsLong();
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry == null || now - entry.storedAt > ttlNanos) {
+                if (entry != null) {
+                    entries.remove(key);
+                }
+                misses.increment();
+                return null;
+            }
+            hits.increment();
+            return copy(entry.decision);
+        }
+    }
+
+    void put(Key key, AgentDecision decision) {
+        if (!isCacheable(key, decision)) {
+            skippedUncacheable.increment();
+            return;
+        }
+        Entry entry = new Entry(copy(decision), clock.getAsLong());
+        synchronized (entries) {
+            entries.put(key, entry);
+            Iterator<Entry> eldest = entries.values().iterator();
+            while (entries.size() > maxEntries && eldest.hasNext()) {
+                eldest.next();
+                eldest.remove();
+            }
+        }
+    }
+
+    int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    private double hitRatio() {
+        double lookups = hits.count() + misses.count();
+        return lookups == 0 ? 0 : hits.count() / lookups;
+    }
+
+    // a date the model produced that is neither a known slot nor written in the message was inferred, e.g. from "in two weeks"
+    private static boolean isCacheable(Key key, AgentDecision decision) {
+        if (decision.getActions() != null && !decision.getActions().isEmpty()) {
+            return decision.getActions().stream().allMatch(step -> isCacheable(key, step));
+        }
+        if (!CACHEABLE_ACTIONS.contains(AgentAction.fromValue(decision.getAction()))) {
+            return false;
+        }
+        Map<String, Object> params = decision.getParams() == null ? Map.of() : decision.getParams();
+        return isPinned(params.get("checkInDate"), key) && isPinned(params.get("checkOutDate"), key);
+    }
+
+    private static boolean isPinned(Object date, Key key) {
+        if (date == null) {
+            return true;
+        }
+        String value = date.toString();
+        return value.equals(key.checkIn()) || value.equals(key.checkOut())
+                || key.message().contains(normalize(value));
+    }
+
+    private static String normalize(String text) {
+        return SEPARATORS.matcher(text.toLowerCase(Locale.ROOT)).replaceAll(" ").trim();
+    }
+
+    private static AgentDecision copy(AgentDecision decision) {
+        AgentDecision copy = new AgentDecision();
+        copy.setAction(decision.getAction());
+        copy.setIntent(decision.getIntent());
+        copy.setResponse(decision.getResponse());
+        copy.setParams(decision.getParams() == null ? new HashMap<>() : new HashMap<>(decision.getParams()));
+        if (decision.getActions() != null) {
+            copy.setActions(decision.getActions().stream().map(AgentDecisionCache::copy).toList());
+        }
+        return copy;
+    }
+
+    private static Counter lookupCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("agent.decision.cache.requests").tag("result", result).register(meterRegistry);
+    }
+
+    private record Entry(AgentDecision decision, long storedAt) {
+    }
+}
@@ -5,6 +5,7 @@ import com.bsr.bsr_booking.agent.dto.AgentChatMessage;
 import com.bsr.bsr_booking.agent.dto.AgentChatRequest;
 import com.bsr.bsr_booking.agent.dto.AgentChatResponse;
 import com.bsr.bsr_booking.agent.dto.AgentDecision;
+import com.bsr.bsr_booking.agent.service.MessageScanner.Keyword;
 import com.bsr.bsr_booking.dtos.BookingDTO;
 import com.bsr.bsr_booking.dtos.Response;
 import com.bsr.bsr_booking.dtos.UserDTO;
@@ -16,23 +17,27 @@ import com.bsr.bsr_booking.repositories.RoomRepository;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.security.concurrent.DelegatingSecurityContextExecutor;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 
 import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
-import java.time.format.DateTimeFormatterBuilder;
-import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
-import java.util.StringJoiner;
-import java.util.regex.Matcher;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
 import java.util.regex.Pattern;
-import java.util.concurrent.ConcurrentHashMap;
 import org.springframework.beans.factory.annotation.Value;
 
 @Service
@@ -49,79 +54,167 @@ public class AgentService {
     @Value("${frontend.payment.url:https://your-frontend-domain/payment}")
     private String frontendPaymentUrl;
 
-    // Session-scoped conversation memory (in-memory; replace with distributed store if needed)
-    private final Map<String, ConversationContext> sessionStore = new ConcurrentHashMap<>();
-
-    private static final String PROMPT_TEMPLATE = """
-            You are an AI booking assistant for Bhagat Singh Resort (hotel/resort). Purpose: hotel room discovery, availability checking, and booking. You must infer intent from casual language and perform slot-filling (intent, roomNumber, checkInDate, checkOutDate). Keep context from prior turns; do NOT re-ask for slots already provided. Return ONLY one JSON.
-            
-            Allowed actions + params:
-            - update_own_account: {firstName?, lastName?, email?, phoneNumber?, password?}
-            - get_my_bookings: {}
-            - available_rooms: {checkInDate (YYYY-MM-DD), checkOutDate (YYYY-MM-DD), roomType? in [SINGLE, DOUBLE, SUIT, TRIPLE]}
-            - get_room_by_id: {id (number)}
-            - create_booking: {roomId (number), checkInDate (YYYY-MM-DD), checkOutDate (YYYY-MM-DD)}
-            Disallowed: deleteOwnAccount, addRoom, any admin-only op.
-            
-            Business / domain:
-            - Hotel name: Bhagat Singh Resort
-            - Type: Hotel / Resort
-            - Contact: available on website (phone/email)
-            - Owner/Management: Resort staff (not AI)
-            - Scope: Booking assistance, availability, hotel questions; not a general chatbot.
-            
-            Guidelines:
-            - Understand generic asks like "rooms", "show rooms", "available rooms" without requiring perfect sentences.
-            - Reuse dates/room intent already mentioned in conversation; do NOT ask again if known.
-            - If booking slots are missing, ask ONLY for the missing ones (e.g., if dates known, ask for roomNumber).
-            - If availability dates are missing, ask once for both dates.
-            - If the user says "book on same date"/"book this"/"book one"/"reserve a room" after viewing rooms, reuse the last known dates; only ask for room number if missing.
-            - Avoid repetitive wording; be concise and specific.
-            - If action not allowed, set action "small_talk" with a brief refusal.
-            - If unclear, use "small_talk" with a short, specific clarifying question.
-            
-            Respond with exactly:
-            {"action":"<allowed_or_small_talk>","params":{...},"response":"<short user-facing reply>"}
-            
-            Conversation so far:
-            %s
-            Latest user message: "%s"
-            """;
-
-    public AgentChatResponse handleChat(AgentChatRequest request) {
-        String sessionId = StringUtils.hasText(request.getSessionId()) ? request.getSessionId() : "default";
-        ConversationContext prior = sessionStore.getOrDefault(sessionId, new ConversationContext());
-        ConversationContext ctx = mergeContext(prior, deriveContext(request.getMessages()));
-        String prompt = buildPrompt(request.getMessages(), ctx);
-        String modelOutput;
+    // Session-scoped conversation memory, bounded and idle-evicting
+    private final AgentSessionStore sessionStore;
+    private final SimpleAsyncTaskExecutor agentExecutor;
+    private final SimpleAsyncTaskExecutor agentActionExecutor;
+    private final PromptBuilder promptBuilder;
+    private final ModelCallGate modelGate;
+    private final AgentDecisionCache decisionCache;
+    private final FaqKnowledgeBase faqKnowledgeBase;
+    private final SessionTurnSerializer sessionTurns;
+
+    /**
+     * Answers one chat turn. Turns the rule-based fallback can settle complete immediately; otherwise the model call
+     * runs without holding the caller's thread and the rest of the turn continues on agentExecutor under the
+     * caller's security context. Model calls go through modelGate; a call it sheds is answered in degraded mode.
+     * Turns of the same session run one at a time, in the order they arrive.
+     */
+    public CompletableFuture<AgentChatResponse> handleChatAsync(AgentChatRequest request) {
+        return handleTurn(request, geminiClient::generateTextAsync);
+    }
+
+    /**
+     * Same turn as handleChatAsync, but the model reply is streamed: the listener hears the action as soon as the
+     * model has named every action of the decision and then the reply text as it is generated. Nothing is streamed
+     * when any of those actions is banned. The returned future carries the final response.
+     */
+    public CompletableFuture<AgentChatResponse> handleChatStream(AgentChatRequest request, AgentStreamListener listener) {
+        return handleTurn(request, prompt -> {
+            AtomicBoolean allowed = new AtomicBoolean();
+            ModelReplyStreamer streamer = new ModelReplyStreamer(
+                    rawActions -> {
+                        // nothing is shown for a refused action; the final response explains
+                        if (!rawActions.isEmpty() && rawActions.stream().noneMatch(this::isBanned)) {
+                            allowed.set(true);
+                            listener.onAction(AgentAction.fromValue(rawActions.get(0)));
+                        }
+                    },
+                    delta -> {
+                        if (allowed.get()) {
+                            listener.onDelta(delta);
+                        }
+                    });
+            return geminiClient.streamTextAsync(prompt, streamer::accept);
+        });
+    }
+
+    private CompletableFuture<AgentChatResponse> handleTurn(AgentChatRequest request,
+                                                            Function<String, CompletableFuture<String>> model) {
+        if (!StringUtils.hasText(request.getSessionId())) {
+            // clients without a session id share "default"; queueing them would make every such turn wait for all others
+            return runTurn(request, "default", model);
+        }
+        String sessionId = request.getSessionId();
+        // a turn queued behind another starts on that turn's thread, so it brings the caller's security context along
+        Executor callerContext = new DelegatingSecurityContextExecutor(Runnable::run, SecurityContextHolder.getContext());
+        return sessionTurns.submit(sessionId, callerContext, () -> runTurn(request, sessionId, model));
+    }
+
+    private CompletableFuture<AgentChatResponse> runTurn(AgentChatRequest request, String sessionId,
+                                                         Function<String, CompletableFuture<String>> model) {
+        AgentSession prior = sessionStore.get(sessionId).orElseGet(AgentSession::new);
+        List<AgentChatMessage> messages = request.getMessages() == null ? List.of() : request.getMessages();
+        ConversationContext derived = deriveContext(prior, messages);
+        // remember how far extraction got even if this turn changes no slots
+        AgentSession session = prior.advance(derived, messages);
+        sessionStore.put(sessionId, session);
+        ConversationContext ctx = mergeContext(prior.state(), derived);
 
         // First try lightweight intent + context parsing to reduce LLM calls
-        AgentDecision quick = fallbackDecision(request);
+        AgentDecision quick = fallbackDecision(request, derived);
         if (quick != null) {
             AgentChatResponse resp = executeDecision(quick, "fallback", ctx);
-            sessionStore.put(sessionId, mergeState(ctx, quick));
-            return resp;
-        }
+            sessionStore.put(sessionId, session.withState(mergeState(ctx, quick)));
+            return CompletableFuture.completedFuture(resp);
+        }
+
+        // Questions about the resort itself are answered from the local FAQ
+        String latest = messages.isEmpty() ? null : messages.get(messages.size() - 1).getContent();
+        Optional<String> faqAnswer = faqKnowledgeBase.answer(latest);
+        if (faqAnswer.isPresent()) {
+            return CompletableFuture.completedFuture(AgentChatResponse.builder()
+                    .reply(faqAnswer.get())
+                    .action(AgentAction.SMALL_TALK)
+                    .rawModelOutput("faq")
+                    .build());
+        }
+
+        // Then reuse what the model already decided for the same message in the same context
+        AgentDecisionCache.Key cacheKey = decisionCache.keyFor(latest, ctx);
+        AgentDecision cached = cacheKey == null ? null : decisionCache.get(cacheKey);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(onDecision(sessionId, session, ctx, cached, "cache"));
+        }
+
+        String prompt = promptBuilder.build(request.getMessages(), ctx);
+        Executor continuation = new DelegatingSecurityContextExecutor(agentExecutor, SecurityContextHolder.getContext());
+        return modelGate.submit(() -> model.apply(prompt))
+                .handleAsync((modelOutput, error) -> error == null
+                        ? onModelOutput(sessionId, session, ctx, cacheKey, modelOutput)
+                        : onModelFailure(request, sessionId, session, ctx, error), continuation);
+    }
 
-        try {
-            modelOutput = geminiClient.generateText(prompt);
-        } catch (Exception e) {
-            log.error("Gemini call failed", e);
-            AgentDecision fallback = fallbackDecision(request);
-            if (fallback != null) {
-                AgentChatResponse resp = executeDecision(fallback, "fallback", ctx);
-                sessionStore.put(sessionId, mergeState(ctx, fallback));
-                return resp;
+    private AgentChatResponse onModelFailure(AgentChatRequest request, String sessionId, AgentSession session,
+                                             ConversationContext ctx, Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        boolean shed = cause instanceof ModelCallGate.RejectedException;
+        if (shed) {
+            log.warn("Model call shed, answering in degraded mode: {}", cause.getMessage());
+        } else {
+            log.error("Gemini call failed", cause);
+        }
+
+        AgentDecision fallback = fallbackDecision(request, session.derived());
+        if (fallback != null) {
+            AgentChatResponse resp = executeDecision(fallback, "fallback", ctx);
+            sessionStore.put(sessionId, session.withState(mergeState(ctx, fallback)));
+            if (shed) {
+                resp.setNote(DEGRADED_NOTE);
             }
+            return resp;
+        }
+        if (shed) {
             return AgentChatResponse.builder()
-                    .reply("I couldn't reach the assistant just now. Please try again in a few seconds.")
-                    .action(AgentAction.UNKNOWN)
+                    .reply(degradedHint(ctx))
+                    .action(AgentAction.SMALL_TALK)
+                    .note(DEGRADED_NOTE)
                     .build();
         }
+        return AgentChatResponse.builder()
+                .reply("I couldn't reach the assistant just now. Please try again in a few seconds.")
+                .action(AgentAction.UNKNOWN)
+                .build();
+    }
+
+    // the rules only understand short, explicit requests, so say what they can do with what is already known
+    private String degradedHint(ConversationContext ctx) {
+        LocalDate tomorrow = LocalDate.now().plusDays(1);
+        String dates = ctx.hasDates() ? "from " + ctx.checkIn + " to " + ctx.checkOut
+                : "from " + tomorrow + " to " + tomorrow.plusDays(1);
+        String room = ctx.roomNumber != null ? ctx.roomNumber.toString() : "101";
+        return "I'm answering in quick mode while the assistant is busy. Try \"rooms " + dates
+                + "\" to see availability, or \"book room " + room + " " + dates + "\" to book.";
+    }
 
+    private AgentChatResponse onModelOutput(String sessionId, AgentSession session, ConversationContext ctx,
+                                            AgentDecisionCache.Key cacheKey, String modelOutput) {
         AgentDecision decision = parseDecision(modelOutput);
+        if (decision == null) {
+            decision = new AgentDecision();
+            decision.setAction("small_talk");
+            decision.setResponse("Could you rephrase that request?");
+        } else if (cacheKey != null) {
+            decisionCache.put(cacheKey, decision);
+        }
+        return onDecision(sessionId, session, ctx, decision, modelOutput);
+    }
+
+    private AgentChatResponse onDecision(String sessionId, AgentSession session, ConversationContext ctx,
+                                         AgentDecision decision, String modelOutput) {
         String rawAction = decision.getAction() == null ? "" : decision.getAction();
-        if (isBanned(rawAction)) {
+        List<AgentDecision> steps = steps(decision);
+        if (isBanned(rawAction) || steps.stream().anyMatch(step -> isBanned(resolveAction(step)))) {
             return AgentChatResponse.builder()
                     .reply("Sorry, that action is not allowed from the chatbot.")
                     .action(AgentAction.UNKNOWN)
@@ -129,6 +222,10 @@ public class AgentService {
                     .build();
         }
 
+        if (steps.size() > 1) {
+            return executeSteps(sessionId, session, ctx, decision, steps, modelOutput);
+        }
+
         AgentAction action = AgentAction.fromValue(rawAction);
 
         if (action == AgentAction.SMALL_TALK || action == AgentAction.UNKNOWN) {
@@ -150,7 +247,7 @@ public class AgentService {
             }
 
             AgentChatResponse resp = executeDecision(decision, modelOutput, ctx);
-            sessionStore.put(sessionId, mergeState(ctx, decision));
+            sessionStore.put(sessionId, session.withState(mergeState(ctx, decision)));
             return resp;
         } catch (Exception e) {
             log.error("Failed to execute agent action {}", action, e);
@@ -162,6 +259,86 @@ public class AgentService {
         }
     }
 
+    // a decision names one action or a list of them; past MAX_ACTIONS_PER_TURN the rest are dropped
+    private static List<AgentDecision> steps(AgentDecision decision) {
+        List<AgentDecision> actions = decision.getActions();
+        if (actions == null || actions.isEmpty()) {
+            return List.of(decision);
+        }
+        return actions.size() > MAX_ACTIONS_PER_TURN ? actions.subList(0, MAX_ACTIONS_PER_TURN) : actions;
+    }
+
+    /**
+     * Runs every action of a multi-action decision and merges the outcomes into one response. Lookups that change
+     * nothing run side by side on agentActionExecutor under the caller's security context; actions that change data
+     * run afterwards, one at a time and in the order the model gave them. A failing action only fails its own part.
+     */
+    private AgentChatResponse executeSteps(String sessionId, AgentSession session, ConversationContext ctx,
+                                           AgentDecision decision, List<AgentDecision> steps, String modelOutput) {
+        Executor lookups = new DelegatingSecurityContextExecutor(agentActionExecutor, SecurityContextHolder.getContext());
+        List<CompletableFuture<AgentChatResponse>> pending = new ArrayList<>();
+        for (AgentDecision step : steps) {
+            pending.add(INDEPENDENT_ACTIONS.contains(AgentAction.fromValue(resolveAction(step)))
+                    ? CompletableFuture.supplyAsync(() -> executeStep(step, ctx), lookups)
+                    : null);
+        }
+
+        List<AgentChatResponse> results = new ArrayList<>();
+        for (CompletableFuture<AgentChatResponse> lookup : pending) {
+            results.add(lookup == null ? null : lookup.join());
+        }
+        ConversationContext state = ctx;
+        for (int i = 0; i < steps.size(); i++) {
+            if (results.get(i) == null) {
+                results.set(i, executeStep(steps.get(i), ctx));
+            }
+            state = mergeState(state, steps.get(i));
+        }
+        sessionStore.put(sessionId, session.withState(state));
+
+        boolean allDone = results.stream().allMatch(result -> result.getBackendResponse() != null);
+        String reply = allDone && StringUtils.hasText(decision.getResponse()) ? decision.getResponse()
+                : String.join("\n\n", results.stream().map(AgentChatResponse::getReply).toList());
+        return AgentChatResponse.builder()
+                .reply(reply)
+                .action(results.get(0).getAction())
+                .backendResponse(mergeResponses(results))
+                .rawModelOutput(modelOutput)
+                .results(results)
+                .build();
+    }
+
+    private AgentChatResponse executeStep(AgentDecision step, ConversationContext ctx) {
+        AgentAction action = AgentAction.fromValue(resolveAction(step));
+        try {
+            return executeDecision(step, null, ctx);
+        } catch (Exception e) {
+            log.error("Failed to execute agent action {}", action, e);
+            return AgentChatResponse.builder()
+                    .reply("I couldn't complete that yet. Please confirm the room and dates, and I'll try again.")
+                    .action(action)
+                    .build();
+        }
+    }
+
+    // the actions that can share a turn fill different fields (rooms, room, bookings, booking, user)
+    private static Response mergeResponses(List<AgentChatResponse> results) {
+        Response merged = Response.builder().status(200).build();
+        for (AgentChatResponse result : results) {
+            Response part = result.getBackendResponse();
+            if (part == null) {
+                continue;
+            }
+            merged.setStatus(Math.max(merged.getStatus(), part.getStatus()));
+            if (part.getRooms() != null) merged.setRooms(part.getRooms());
+            if (part.getRoom() != null) merged.setRoom(part.getRoom());
+            if (part.getBookings() != null) merged.setBookings(part.getBookings());
+            if (part.getBooking() != null) merged.setBooking(part.getBooking());
+            if (part.getUser() != null) merged.setUser(part.getUser());
+        }
+        return merged;
+    }
+
     private Response executeAction(AgentAction action, Map<String, Object> params) {
         return switch (action) {
             case UPDATE_OWN_ACCOUNT -> userService.updateOwnAccount(toUserDTO(params));
@@ -213,15 +390,11 @@ public class AgentService {
         if (!StringUtils.hasText(value)) {
             throw new IllegalArgumentException("Missing required date: " + key);
         }
-        String normalized = value.trim().replaceAll("\\s+", " ");
-        for (DateTimeFormatter formatter : DATE_FORMATTERS) {
-            try {
-                return LocalDate.parse(normalized, formatter);
-            } catch (DateTimeParseException ignored) {
-                // try next formatter
-            }
+        LocalDate date = DateTokenizer.parse(WHITESPACE.matcher(value.trim()).replaceAll(" "));
+        if (date == null) {
+            throw new IllegalArgumentException("Invalid date format for " + key + ". Use YYYY-MM-DD");
         }
-        throw new IllegalArgumentException("Invalid date format for " + key + ". Use YYYY-MM-DD");
+        return date;
     }
 
     private Long parseLong(Map<String, Object> params, String key) {
@@ -276,22 +449,15 @@ public class AgentService {
         return value == null ? null : value.toString();
     }
 
-    private static final List<DateTimeFormatter> DATE_FORMATTERS = List.of(
-            DateTimeFormatter.ISO_LOCAL_DATE,
-            DateTimeFormatter.ofPattern("yyyy/MM/dd"),
-            DateTimeFormatter.ofPattern("dd-MM-yyyy"),
-            DateTimeFormatter.ofPattern("dd/MM/yyyy"),
-            new DateTimeFormatterBuilder().parseCaseInsensitive().appendPattern("d MMM yyyy").toFormatter(Locale.ENGLISH),
-            new DateTimeFormatterBuilder().parseCaseInsensitive().appendPattern("d MMMM yyyy").toFormatter(Locale.ENGLISH),
-            new DateTimeFormatterBuilder().parseCaseInsensitive().appendPattern("dMMMyyyy").toFormatter(Locale.ENGLISH),
-            new DateTimeFormatterBuilder().parseCaseInsensitive().appendPattern("MMM d, yyyy").toFormatter(Locale.ENGLISH),
-            new DateTimeFormatterBuilder().parseCaseInsensitive().appendPattern("MMMM d, yyyy").toFormatter(Locale.ENGLISH)
-    );
-
-    private static final Pattern DATE_PATTERN = Pattern.compile("(?i)(\\d{1,2}\\s*[A-Za-z]{3,9}\\s*\\d{4}|\\d{4}-\\d{2}-\\d{2}|\\d{1,2}/\\d{1,2}/\\d{4}|\\d{1,2}-\\d{1,2}-\\d{4})");
-    private static final Pattern ROOM_PATTERN = Pattern.compile("room\\s*(number\\s*)?(\\d{1,5})", Pattern.CASE_INSENSITIVE);
-    private static final Pattern ANY_NUMBER = Pattern.compile("\\b(\\d{3,5})\\b");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final Pattern GREETING = Pattern.compile("(?i)hi|hello|hey");
+    private static final String DEGRADED_NOTE = "degraded";
+    private static final int MAX_ACTIONS_PER_TURN = 4;
+    // reads with no effect on each other, so one turn may run them side by side
+    private static final Set<AgentAction> INDEPENDENT_ACTIONS =
+            EnumSet.of(AgentAction.AVAILABLE_ROOMS, AgentAction.GET_ROOM_BY_ID, AgentAction.GET_MY_BOOKINGS);
 
+    // null when the output holds no usable JSON
     private AgentDecision parseDecision(String modelOutput) {
         try {
             // Attempt strict parse first
@@ -313,14 +479,23 @@ public class AgentService {
                 // fall through
             }
         }
-
-        AgentDecision fallback = new AgentDecision();
-        fallback.setAction("small_talk");
-        fallback.setResponse("Could you rephrase that request?");
-        return fallback;
+        return null;
     }
 
     private void normalizeDecision(AgentDecision d) {
+        if (d.getActions() != null) {
+            d.getActions().removeIf(step -> step == null);
+            d.getActions().forEach(this::normalizeDecision);
+            if (d.getActions().size() == 1 && !StringUtils.hasText(d.getAction())) {
+                AgentDecision only = d.getActions().get(0);
+                d.setAction(only.getAction());
+                d.setParams(only.getParams());
+                d.setActions(null);
+            } else if (!StringUtils.hasText(d.getAction()) && !d.getActions().isEmpty()) {
+                // the first action stands for the turn in the session intent and the streamed action
+                d.setAction(d.getActions().get(0).getAction());
+            }
+        }
         if (!StringUtils.hasText(d.getAction()) && StringUtils.hasText(d.getIntent())) {
             d.setAction(d.getIntent());
         }
@@ -420,17 +595,18 @@ public class AgentService {
         return null;
     }
 
-    private AgentDecision fallbackDecision(AgentChatRequest request) {
+    // derived holds the slots extracted from the whole history; it is copied, not modified
+    private AgentDecision fallbackDecision(AgentChatRequest request, ConversationContext derived) {
         List<AgentChatMessage> msgs = request.getMessages();
         if (msgs == null || msgs.isEmpty()) return null;
         AgentChatMessage last = msgs.get(msgs.size() - 1);
         String content = last.getContent() == null ? "" : last.getContent().trim();
         if (!StringUtils.hasText(content)) return null;
 
-        ConversationContext ctx = deriveContext(msgs);
+        ConversationContext ctx = derived.copy();
 
         // Simple greeting fallback
-        if (content.matches("(?i)hi|hello|hey")) {
+        if (GREETING.matcher(content).matches()) {
             AgentDecision d = new AgentDecision();
             d.setAction("small_talk");
             d.setResponse("Hi! Tell me if you want available rooms, to book, or to view your bookings.");
@@ -462,18 +638,13 @@ public class AgentService {
         }
 
         // Latest message intent handling
-        List<String> dates = extractDates(content);
-        Integer roomNumber = extractRoomNumber(content);
-        boolean mentionsRooms = content.toLowerCase(Locale.ROOT).contains("rooms")
-                || content.toLowerCase(Locale.ROOT).contains("available");
-        boolean mentionsBook = content.toLowerCase(Locale.ROOT).contains("book")
-                || content.toLowerCase(Locale.ROOT).contains("reserve");
-        boolean mentionsSameDate = content.toLowerCase(Locale.ROOT).contains("same date")
-                || content.toLowerCase(Locale.ROOT).contains("same day")
-                || content.toLowerCase(Locale.ROOT).contains("same dates");
-        boolean mentionsBookThis = content.toLowerCase(Locale.ROOT).contains("book this")
-                || content.toLowerCase(Locale.ROOT).contains("book one")
-                || content.toLowerCase(Locale.ROOT).contains("book on same date");
+        MessageScanner.Scan scan = MessageScanner.scan(content);
+        List<String> dates = scan.dates(LocalDate.now());
+        Integer roomNumber = scan.roomNumber();
+        boolean mentionsRooms = scan.mentionsAny(Keyword.ROOMS, Keyword.AVAILABLE);
+        boolean mentionsBook = scan.mentionsAny(Keyword.BOOK, Keyword.RESERVE);
+        boolean mentionsSameDate = scan.mentionsAny(Keyword.SAME_DATE, Keyword.SAME_DAY, Keyword.SAME_DATES);
+        boolean mentionsBookThis = scan.mentionsAny(Keyword.BOOK_THIS, Keyword.BOOK_ONE, Keyword.BOOK_ON_SAME_DATE);
 
         if (mentionsBook) {
             ctx.intent = ConversationIntent.BOOK_ROOM;
@@ -561,90 +732,45 @@ public class AgentService {
         return null;
     }
 
-    private List<String> extractDates(String text) {
-        List<String> results = new ArrayList<>();
-
-        // relative keywords
-        String lower = text.toLowerCase(Locale.ROOT);
-        if (lower.contains("tomorrow")) {
-            LocalDate start = LocalDate.now().plusDays(1);
-            results.add(start.toString());
-            results.add(start.plusDays(1).toString());
-        } else if (lower.contains("today") || lower.contains("tonight")) {
-            LocalDate start = LocalDate.now();
-            results.add(start.toString());
-            results.add(start.plusDays(1).toString());
+    // Extends the session's extracted slots with the messages it has not seen yet; a rewritten history is re-read in full
+    private ConversationContext deriveContext(AgentSession session, List<AgentChatMessage> messages) {
+        ConversationContext ctx;
+        int from;
+        if (session.isContinuedBy(messages)) {
+            ctx = session.derived().copy();
+            from = session.processedMessages();
+        } else {
+            ctx = new ConversationContext();
+            from = 0;
         }
-
-        Matcher m = DATE_PATTERN.matcher(text);
-        while (m.find() && results.size() < 2) {
-            results.add(m.group(1));
+        for (int i = from; i < messages.size(); i++) {
+            absorb(ctx, messages.get(i));
         }
-        return results;
+        return ctx;
     }
 
-    private Integer extractRoomNumber(String text) {
-        Matcher m = ROOM_PATTERN.matcher(text);
-        if (m.find()) {
-            try {
-                return Integer.parseInt(m.group(2));
-            } catch (NumberFormatException ignored) {}
+    private void absorb(ConversationContext ctx, AgentChatMessage m) {
+        MessageScanner.Scan scan = MessageScanner.scan(m.getContent() == null ? "" : m.getContent());
+        if ("assistant".equalsIgnoreCase(m.getRole())) {
+            ctx.lastAssistant = m.getContent();
         }
-        // fallback: any 3-5 digit number in the text
-        Matcher any = ANY_NUMBER.matcher(text);
-        if (any.find()) {
-            try {
-                return Integer.parseInt(any.group(1));
-            } catch (NumberFormatException ignored) {}
+        if ("user".equalsIgnoreCase(m.getRole())) {
+            ctx.lastUser = m.getContent();
         }
-        return null;
-    }
-
-    private ConversationContext deriveContext(List<AgentChatMessage> messages) {
-        ConversationContext ctx = new ConversationContext();
-        for (AgentChatMessage m : messages) {
-            String content = m.getContent() == null ? "" : m.getContent().toLowerCase(Locale.ROOT);
-            if ("assistant".equalsIgnoreCase(m.getRole())) {
-                ctx.lastAssistant = m.getContent();
-            }
-            if ("user".equalsIgnoreCase(m.getRole())) {
-                ctx.lastUser = m.getContent();
-            }
-            if (content.contains("available") || content.contains("rooms")) {
-                ctx.intent = ConversationIntent.VIEW_ROOMS;
-            }
-            if (content.contains("book")) {
-                ctx.intent = ConversationIntent.BOOK_ROOM;
-            }
-
-            List<String> dates = extractDates(m.getContent() == null ? "" : m.getContent());
-            if (dates.size() >= 1 && ctx.checkIn == null) ctx.checkIn = dates.get(0);
-            if (dates.size() >= 2 && ctx.checkOut == null) ctx.checkOut = dates.get(1);
-
-            Integer rn = extractRoomNumber(m.getContent() == null ? "" : m.getContent());
-            if (rn != null && ctx.roomNumber == null) {
-                ctx.roomNumber = rn;
-            }
+        if (scan.mentionsAny(Keyword.AVAILABLE, Keyword.ROOMS)) {
+            ctx.intent = ConversationIntent.VIEW_ROOMS;
+        }
+        if (scan.mentions(Keyword.BOOK)) {
+            ctx.intent = ConversationIntent.BOOK_ROOM;
         }
-        return ctx;
-    }
-
-    private enum ConversationIntent {
-        NONE,
-        VIEW_ROOMS,
-        BOOK_ROOM
-    }
 
-    private static class ConversationContext {
-        ConversationIntent intent = ConversationIntent.NONE;
-        String checkIn;
-        String checkOut;
-        Integer roomNumber;
-        String lastUser;
-        String lastAssistant;
+        List<String> dates = scan.dates(LocalDate.now());
+        if (dates.size() >= 1 && ctx.checkIn == null) ctx.checkIn = dates.get(0);
+        if (dates.size() >= 2 && ctx.checkOut == null) ctx.checkOut = dates.get(1);
 
-        boolean hasDates() {
-            return checkIn != null && checkOut != null;
+        Integer rn = scan.roomNumber();
+        if (rn != null && ctx.roomNumber == null) {
+            ctx.roomNumber = rn;
         }
     }
 
@@ -717,38 +843,6 @@ public class AgentService {
         return defaultReply(action);
     }
 
-    private String buildPrompt(List<AgentChatMessage> messages, ConversationContext ctx) {
-        if (messages == null || messages.isEmpty()) {
-            messages = List.of(AgentChatMessage.builder().role("user").content("Help me book a room").build());
-        }
-
-        StringJoiner joiner = new StringJoiner("\n");
-        for (AgentChatMessage message : messages) {
-            joiner.add(message.getRole() + ": " + message.getContent());
-        }
-
-        String latestUserContent = messages.get(messages.size() - 1).getContent();
-
-        String contextBlock = """
-                Context:
-                intent: %s
-                checkInDate: %s
-                checkOutDate: %s
-                roomNumber: %s
-                lastUser: %s
-                lastAssistant: %s
-                """.formatted(
-                ctx.intent,
-                ctx.checkIn,
-                ctx.checkOut,
-                ctx.roomNumber,
-                ctx.lastUser,
-                ctx.lastAssistant
-        );
-
-        return PROMPT_TEMPLATE.formatted(joiner.toString() + "\n" + contextBlock, latestUserContent);
-    }
-
     private ConversationContext mergeContext(ConversationContext base, ConversationContext derived) {
         ConversationContext merged = new ConversationContext();
         merged.intent = derived.intent != ConversationIntent.NONE ? derived.intent : base.intent;
@@ -0,0 +1,83 @@
+package com.bsr.bsr_booking.agent.service;
+
+import com.bsr.bsr_booking.agent.dto.AgentChatMessage;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * What is remembered about one chat session between turns.
+ * Besides the slots carried over from earlier decisions, it keeps the slots already extracted from the client's
+ * message history and how many messages that covered, so the next turn only has to read the new messages.
+ */
+public class AgentSession {
+
+    private final ConversationContext state;
+    private final ConversationContext derived;
+    private final int processedMessages;
+    // identifies the last processed message, to notice a client that rewrote or trimmed its history
+    private final int lastMessageHash;
+
+    public AgentSession() {
+        this(new ConversationContext(), new ConversationContext(), 0, 0);
+    }
+
+    private AgentSession(ConversationContext state, ConversationContext derived, int processedMessages, int lastMessageHash) {
+        this.state = state;
+        this.derived = derived;
+        this.processedMessages = processedMessages;
+        this.lastMessageHash = lastMessageHash;
+    }
+
+    // rebuilds a session from a persisted snapshot
+    static AgentSession restore(ConversationContext state, ConversationContext derived, int processedMessages, int lastMessageHash) {
+        return new AgentSession(state, derived, processedMessages, lastMessageHash);
+    }
+
+    public ConversationContext state() {
+        return state;
+    }
+
+    // slots extracted from the first processedMessages() messages
+    ConversationContext derived() {
+        return derived;
+    }
+
+    int processedMessages() {
+        return processedMessages;
+    }
+
+    int lastMessageHash() {
+        return lastMessageHash;
+    }
+
+    // true when messages starts with exactly the messages already processed
+    boolean isContinuedBy(List<AgentChatMessage> messages) {
+        if (processedMessages == 0) {
+            return true;
+        }
+        return messages.size() >= processedMessages && hash(messages.get(processedMessages - 1)) == lastMessageHash;
+    }
+
+    AgentSession advance(ConversationContext derived, List<AgentChatMessage> messages) {
+        int hash = messages.isEmpty() ? 0 : hash(messages.get(messages.size() - 1));
+        return new AgentSession(state, derived, messages.size(), hash);
+    }
+
+    AgentSession withState(ConversationContext state) {
+        return new AgentSession(state, derived, processedMessages, lastMessageHash);
+    }
+
+    void capText(int maxChars) {
+        state.capText(maxChars);
+        derived.capText(maxChars);
+    }
+
+    public long approximateBytes() {
+        return 32 + state.approximateBytes() + derived.approximateBytes();
+    }
+
+    private static int hash(AgentChatMessage message) {
+        return Objects.hash(message.getRole(), message.getContent());
+    }
+}
@@ -0,0 +1,20 @@
+package com.bsr.bsr_booking.agent.service;
+
+import java.util.Optional;
+
+/**
+ * Where AgentService keeps each chat session between turns, keyed by the client's session id.
+ * PersistentAgentSessionStore is used by default: it keeps sessions in InMemoryAgentSessionStore and writes them
+ * behind to the database, so chats survive a restart; with agent.session.persistence.enabled=false only the in-memory
+ * store remains.
+ */
+public interface AgentSessionStore {
+
+    Optional<AgentSession> get(String sessionId);
+
+    void put(String sessionId, AgentSession session);
+
+    void remove(String sessionId);
+
+    int size();
+}
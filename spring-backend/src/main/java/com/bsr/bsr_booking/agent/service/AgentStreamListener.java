@@ -0,0 +1,14 @@
+package com.bsr.bsr_booking.agent.service;
+
+import com.bsr.bsr_booking.agent.dto.AgentAction;
+
+/**
+ * Receives a streamed agent turn as it is generated. Calls arrive in order on one thread at a time.
+ */
+public interface AgentStreamListener {
+
+    void onAction(AgentAction action);
+
+    // the next piece of the model's user-facing reply
+    void onDelta(String text);
+}
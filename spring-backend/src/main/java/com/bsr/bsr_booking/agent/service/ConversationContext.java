@@ -0,0 +1,51 @@
+package com.bsr.bsr_booking.agent.service;
+
+/**
+ * Slots the agent remembers for one chat session between turns.
+ */
+public class ConversationContext {
+
+    // object header, fields and the two small boxed/enum references
+    private static final int BASE_BYTES = 64;
+
+    ConversationIntent intent = ConversationIntent.NONE;
+    String checkIn;
+    String checkOut;
+    Integer roomNumber;
+    String lastUser;
+    String lastAssistant;
+
+    ConversationContext copy() {
+        ConversationContext copy = new ConversationContext();
+        copy.intent = intent;
+        copy.checkIn = checkIn;
+        copy.checkOut = checkOut;
+        copy.roomNumber = roomNumber;
+        copy.lastUser = lastUser;
+        copy.lastAssistant = lastAssistant;
+        return copy;
+    }
+
+    boolean hasDates() {
+        return checkIn != null && checkOut != null;
+    }
+
+    // cuts the free-text fields down so one chatty session cannot grow without bound
+    void capText(int maxChars) {
+        lastUser = cap(lastUser, maxChars);
+        lastAssistant = cap(lastAssistant, maxChars);
+    }
+
+    // rough heap footprint, good enough for the session store gauge
+    public long approximateBytes() {
+        return BASE_BYTES + chars(checkIn) + chars(checkOut) + chars(lastUser) + chars(lastAssistant);
+    }
+
+    private static String cap(String value, int maxChars) {
+        return value != null && value.length() > maxChars ? value.substring(0, maxChars) : value;
+    }
+
+    private static long chars(String value) {
+        return value == null ? 0 : 40 + 2L * value.length();
+    }
+}
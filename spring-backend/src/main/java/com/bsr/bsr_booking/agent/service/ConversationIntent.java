@@ -0,0 +1,7 @@
+package com.bsr.bsr_booking.agent.service;
+
+public enum ConversationIntent {
+    NONE,
+    VIEW_ROOMS,
+    BOOK_ROOM
+}
@@ -0,0 +1,192 @@
+package com.bsr.bsr_booking.agent.service;
+
+import java.time.LocalDate;
+import java.time.Month;
+import java.time.Year;
+
+/**
+ * Parses the date shapes the agent accepts without going through DateTimeFormatter and its exceptions.
+ * Accepts exactly what the formatters it replaces accepted, tried in the same order:
+ * yyyy-MM-dd (strict), yyyy/MM/dd, dd-MM-yyyy, dd/MM/yyyy, d MMM yyyy, d MMMM yyyy, dMMMyyyy, MMM d, yyyy and
+ * MMMM d, yyyy (English month names, case-insensitive). All but ISO resolve smartly, so the 31st of a short month
+ * becomes its last day. Input is expected trimmed with whitespace runs collapsed to one space.
+ */
+final class DateTokenizer {
+
+    private static final String[] SHORT_MONTHS =
+            {"Jan", "Feb", "Mar", "Apr", "May", "Jun", "Jul", "Aug", "Sep", "Oct", "Nov", "Dec"};
+    private static final String[] FULL_MONTHS = {"January", "February", "March", "April", "May", "June", "July",
+            "August", "September", "October", "November", "December"};
+
+    private final String text;
+    private int pos;
+    private long value;
+
+    private DateTokenizer(String text) {
+        this.text = text;
+    }
+
+    /**
+     * @return the date, or null if no accepted format matches
+     */
+    static LocalDate parse(String text) {
+        DateTokenizer t = new DateTokenizer(text);
+        LocalDate date;
+        if ((date = t.iso()) != null) return date;
+        if ((date = t.yearFirst('/')) != null) return date;
+        if ((date = t.dayFirst('-')) != null) return date;
+        if ((date = t.dayFirst('/')) != null) return date;
+        if ((date = t.dayMonthYear(SHORT_MONTHS, true)) != null) return date;
+        if ((date = t.dayMonthYear(FULL_MONTHS, true)) != null) return date;
+        if ((date = t.dayMonthYear(SHORT_MONTHS, false)) != null) return date;
+        if ((date = t.monthDayYear(SHORT_MONTHS)) != null) return date;
+        return t.monthDayYear(FULL_MONTHS);
+    }
+
+    // yyyy-MM-dd, strict: an invalid day of month is rejected
+    private LocalDate iso() {
+        pos = 0;
+        if (!year(10, Year.MIN_VALUE) || !literal('-')) return null;
+        long year = value;
+        if (!twoDigits() || !literal('-')) return null;
+        long month = value;
+        if (!twoDigits() || !atEnd()) return null;
+        long day = value;
+        if (month < 1 || month > 12 || day < 1 || day > Month.of((int) month).length(Year.isLeap(year))) {
+            return null;
+        }
+        return LocalDate.of((int) year, (int) month, (int) day);
+    }
+
+    // yyyy/MM/dd
+    private LocalDate yearFirst(char separator) {
+        pos = 0;
+        if (!year(19, 1) || !literal(separator)) return null;
+        long year = value;
+        if (!twoDigits() || !literal(separator)) return null;
+        long month = value;
+        if (!twoDigits() || !atEnd()) return null;
+        return smart(year, month, value);
+    }
+
+    // dd-MM-yyyy and dd/MM/yyyy
+    private LocalDate dayFirst(char separator) {
+        pos = 0;
+        if (!twoDigits() || !literal(separator)) return null;
+        long day = value;
+        if (!twoDigits() || !literal(separator)) return null;
+        long month = value;
+        if (!year(19, 1) || !atEnd()) return null;
+        return smart(value, month, day);
+    }
+
+    // d MMM yyyy, d MMMM yyyy and, without the spaces, dMMMyyyy
+    private LocalDate dayMonthYear(String[] names, boolean spaced) {
+        pos = 0;
+        if (!day() || (spaced && !literal(' '))) return null;
+        long day = value;
+        if (!month(names) || (spaced && !literal(' '))) return null;
+        long month = value;
+        if (!year(19, 1) || !atEnd()) return null;
+        return smart(value, month, day);
+    }
+
+    // MMM d, yyyy and MMMM d, yyyy
+    private LocalDate monthDayYear(String[] names) {
+        pos = 0;
+        if (!month(names) || !literal(' ')) return null;
+        long month = value;
+        if (!day() || !literal(',') || !literal(' ')) return null;
+        long day = value;
+        if (!year(19, 1) || !atEnd()) return null;
+        return smart(value, month, day);
+    }
+
+    private static LocalDate smart(long year, long month, long day) {
+        if (month < 1 || month > 12 || day < 1 || day > 31) return null;
+        int length = Month.of((int) month).length(Year.isLeap(year));
+        return LocalDate.of((int) year, (int) month, (int) Math.min(day, length));
+    }
+
+    // at least 4 digits; more only behind an explicit '+', a '-' makes it negative
+    private boolean year(int maxDigits, long min) {
+        boolean plus = false;
+        boolean minus = false;
+        if (pos < text.length() && text.charAt(pos) == '+') {
+            plus = true;
+            pos++;
+        } else if (pos < text.length() && text.charAt(pos) == '-') {
+            minus = true;
+            pos++;
+        }
+        int digits = digits(maxDigits);
+        if (digits < 4 || (plus && digits == 4) || (!plus && !minus && digits > 4) || (minus && value == 0)) {
+            return false;
+        }
+        if (minus) {
+            value = -value;
+        }
+        return value >= min && value <= Year.MAX_VALUE;
+    }
+
+    // one or more digits, no sign
+    private boolean day() {
+        return digits(19) > 0;
+    }
+
+    private boolean twoDigits() {
+        return digits(2) == 2;
+    }
+
+    // reads up to max digits into value, saturating instead of overflowing; returns how many were read
+    private int digits(int max) {
+        value = 0;
+        int count = 0;
+        while (count < max && pos < text.length()) {
+            char c = text.charAt(pos);
+            if (c < '0' || c > '9') break;
+            value = value > Integer.MAX_VALUE ? value : value * 10 + (c - '0');
+            pos++;
+            count++;
+        }
+        return count;
+    }
+
+    private boolean month(String[] names) {
+        // no name is a prefix of another, so the first hit is the only one
+        for (int i = 0; i < names.length; i++) {
+            String name = names[i];
+            if (regionMatchesIgnoreCase(name)) {
+                pos += name.length();
+                value = i + 1;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean regionMatchesIgnoreCase(String name) {
+        if (pos + name.length() > text.length()) return false;
+        for (int i = 0; i < name.length(); i++) {
+            char a = text.charAt(pos + i);
+            char b = name.charAt(i);
+            if (a != b && Character.toUpperCase(a) != Character.toUpperCase(b)
+                    && Character.toLowerCase(a) != Character.toLowerCase(b)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean literal(char c) {
+        if (pos < text.length() && text.charAt(pos) == c) {
+            pos++;
+            return true;
+        }
+        return false;
+    }
+
+    private boolean atEnd() {
+        return pos == text.length();
+    }
+}
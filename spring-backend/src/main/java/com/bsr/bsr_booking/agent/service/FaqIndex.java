@@ -0,0 +1,114 @@
+package com.bsr.bsr_booking.agent.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory BM25 index over short documents. Documents can be added and removed one at a time; document frequencies
+ * and the average length are kept up to date, so there is never a full rebuild. Not thread-safe.
+ */
+final class FaqIndex {
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final Set<String> STOP_WORDS = Set.of("a", "an", "the", "is", "are", "am", "was", "be", "do", "does",
+            "did", "i", "me", "my", "we", "us", "our", "you", "your", "it", "its", "of", "to", "in", "on", "at", "for",
+            "from", "with", "and", "or", "if", "so", "what", "how", "can", "could", "there", "any", "have", "has",
+            "please", "tell", "about", "like", "get", "which", "where", "when", "this", "that", "will", "would");
+
+    record Match(int docId, double score, double coverage) {
+    }
+
+    // term -> document -> term frequency
+    private final Map<String, Map<Integer, Integer>> postings = new HashMap<>();
+    private final Map<Integer, List<String>> documents = new HashMap<>();
+    private long totalLength;
+
+    void add(int docId, String text) {
+        remove(docId);
+        List<String> terms = tokenize(text);
+        documents.put(docId, terms);
+        totalLength += terms.size();
+        for (String term : terms) {
+            postings.computeIfAbsent(term, t -> new HashMap<>()).merge(docId, 1, Integer::sum);
+        }
+    }
+
+    void remove(int docId) {
+        List<String> terms = documents.remove(docId);
+        if (terms == null) {
+            return;
+        }
+        totalLength -= terms.size();
+        for (String term : new LinkedHashSet<>(terms)) {
+            Map<Integer, Integer> docs = postings.get(term);
+            docs.remove(docId);
+            if (docs.isEmpty()) {
+                postings.remove(term);
+            }
+        }
+    }
+
+    int size() {
+        return documents.size();
+    }
+
+    /**
+     * @return the best-scoring document, with the share of distinct query terms it contains, or null if none match
+     */
+    Match best(String query) {
+        Set<String> terms = new LinkedHashSet<>(tokenize(query));
+        if (terms.isEmpty() || documents.isEmpty()) {
+            return null;
+        }
+        int n = documents.size();
+        double averageLength = (double) totalLength / n;
+        Map<Integer, double[]> scores = new HashMap<>();
+        for (String term : terms) {
+            Map<Integer, Integer> docs = postings.get(term);
+            if (docs == null) {
+                continue;
+            }
+            double idf = Math.log(1 + (n - docs.size() + 0.5) / (docs.size() + 0.5));
+            for (Map.Entry<Integer, Integer> posting : docs.entrySet()) {
+                int tf = posting.getValue();
+                int length = documents.get(posting.getKey()).size();
+                double[] score = scores.computeIfAbsent(posting.getKey(), id -> new double[2]);
+                score[0] += idf * tf * (K1 + 1) / (tf + K1 * (1 - B + B * length / averageLength));
+                score[1]++;
+            }
+        }
+
+        Match best = null;
+        for (Map.Entry<Integer, double[]> entry : scores.entrySet()) {
+            double[] score = entry.getValue();
+            if (best == null || score[0] > best.score()) {
+                best = new Match(entry.getKey(), score[0], score[1] / terms.size());
+            }
+        }
+        return best;
+    }
+
+    // lower-cased words without stop words, with a plain trailing "s" dropped so "rooms" matches "room"
+    static List<String> tokenize(String text) {
+        List<String> terms = new ArrayList<>();
+        for (String word : SEPARATORS.split(text.toLowerCase(Locale.ROOT))) {
+            if (word.isEmpty() || STOP_WORDS.contains(word)) {
+                continue;
+            }
+            if (word.length() > 3 && word.endsWith("s") && !word.endsWith("ss")) {
+                word = word.substring(0, word.length() - 1);
+            }
+            terms.add(word);
+        }
+        return terms;
+    }
+}
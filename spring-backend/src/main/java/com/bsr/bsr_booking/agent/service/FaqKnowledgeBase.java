@@ -0,0 +1,210 @@
+package com.bsr.bsr_booking.agent.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Answers common questions about the resort (contact, amenities, payment) from a local FAQ file instead of the model.
+ * Every question phrasing in the file at agent.faq.location is indexed with BM25 (the answers are not, so words that
+ * merely appear in a reply do not pull unrelated questions in); a question is answered when its best match scores at
+ * least agent.faq.min-score and shares agent.faq.min-coverage of the question's words. The file is polled for changes
+ * and only the entries that were added, edited or removed are re-indexed.
+ */
+@Component
+@Slf4j
+public class FaqKnowledgeBase {
+
+    private final Resource resource;
+    private final double minScore;
+    private final double minCoverage;
+    private final Counter answered;
+    private final Counter unmatched;
+    private final Timer lookups;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final FaqIndex index = new FaqIndex();
+    // entry block text -> one document id per question, so an unchanged entry keeps its place in the index
+    private final Map<String, List<Integer>> ids = new HashMap<>();
+    private final Map<Integer, String> answers = new HashMap<>();
+    private int nextId;
+    private long loadedVersion = -1;
+
+    public FaqKnowledgeBase(ResourceLoader resourceLoader,
+                            MeterRegistry meterRegistry,
+                            @Value("${agent.faq.location:classpath:agent/faq.txt}") String location,
+                            @Value("${agent.faq.min-score:2.5}") double minScore,
+                            @Value("${agent.faq.min-coverage:0.5}") double minCoverage) {
+        this.resource = resourceLoader.getResource(location);
+        this.minScore = minScore;
+        this.minCoverage = minCoverage;
+        this.answered = Counter.builder("agent.faq.lookups").tag("result", "answered").register(meterRegistry);
+        this.unmatched = Counter.builder("agent.faq.lookups").tag("result", "unmatched").register(meterRegistry);
+        this.lookups = Timer.builder("agent.faq.lookup.latency").register(meterRegistry);
+        Gauge.builder("agent.faq.entries", this, FaqKnowledgeBase::size).register(meterRegistry);
+    }
+
+    public Optional<String> answer(String question) {
+        if (question == null || question.isBlank()) {
+            return Optional.empty();
+        }
+        long start = System.nanoTime();
+        FaqIndex.Match match;
+        String answer = null;
+        lock.readLock().lock();
+        try {
+            match = index.best(question);
+            if (match != null && match.score() >= minScore && match.coverage() >= minCoverage) {
+                answer = answers.get(match.docId());
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        lookups.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+
+        if (answer == null) {
+            unmatched.increment();
+            return Optional.empty();
+        }
+        answered.increment();
+        log.debug("FAQ answered with score {} and coverage {}", match.score(), match.coverage());
+        return Optional.of(answer);
+    }
+
+    @PostConstruct
+    void load() {
+        reloadIfChanged();
+    }
+
+    @Scheduled(fixedDelayString = "${agent.faq.reload-interval-ms:10000}")
+    public void reloadIfChanged() {
+        long version;
+        try {
+            version = resource.lastModified();
+        } catch (IOException e) {
+            if (!resource.exists()) {
+                if (loadedVersion < 0) {
+                    log.warn("FAQ file {} not found; FAQ answers are disabled", resource.getDescription());
+                    loadedVersion = 0;
+                }
+                return;
+            }
+            // exists but cannot be stat'ed (e.g. inside a jar): load it once
+            if (loadedVersion >= 0) {
+                return;
+            }
+            version = 0;
+        }
+        if (version == loadedVersion) {
+            return;
+        }
+
+        Map<String, Entry> entries;
+        try (InputStream in = resource.getInputStream()) {
+            entries = parse(new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            log.warn("Could not read FAQ file {}: {}", resource.getDescription(), e.getMessage());
+            return;
+        }
+        apply(entries);
+        loadedVersion = version;
+    }
+
+    int size() {
+        lock.readLock().lock();
+        try {
+            return ids.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void apply(Map<String, Entry> entries) {
+        int removed = 0;
+        int added = 0;
+        lock.writeLock().lock();
+        try {
+            for (var it = ids.entrySet().iterator(); it.hasNext(); ) {
+                Map.Entry<String, List<Integer>> existing = it.next();
+                if (!entries.containsKey(existing.getKey())) {
+                    for (int id : existing.getValue()) {
+                        index.remove(id);
+                        answers.remove(id);
+                    }
+                    it.remove();
+                    removed++;
+                }
+            }
+            for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+                if (ids.containsKey(entry.getKey())) {
+                    continue;
+                }
+                List<Integer> entryIds = new ArrayList<>();
+                for (String question : entry.getValue().questions()) {
+                    int id = nextId++;
+                    index.add(id, question);
+                    answers.put(id, entry.getValue().answer());
+                    entryIds.add(id);
+                }
+                ids.put(entry.getKey(), entryIds);
+                added++;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("FAQ {} reloaded: {} entries ({} added, {} removed)", resource.getDescription(), entries.size(), added, removed);
+    }
+
+    // blocks of "Q:" lines followed by an "A:" line, separated by blank lines; '#' starts a comment line
+    static Map<String, Entry> parse(String text) {
+        Map<String, Entry> entries = new LinkedHashMap<>();
+        List<String> questions = new ArrayList<>();
+        StringBuilder answer = null;
+        for (String raw : (text + "\n\n").split("\\R", -1)) {
+            String line = raw.strip();
+            if (line.startsWith("#")) {
+                continue;
+            }
+            if (line.isEmpty()) {
+                if (!questions.isEmpty() && answer != null && !answer.isEmpty()) {
+                    Entry entry = new Entry(List.copyOf(questions), answer.toString());
+                    entries.put(String.join("\n", questions) + "\n" + entry.answer(), entry);
+                } else if (!questions.isEmpty() || answer != null) {
+                    log.warn("Skipping FAQ entry without both a question and an answer: {}", questions);
+                }
+                questions.clear();
+                answer = null;
+            } else if (line.startsWith("Q:")) {
+                questions.add(line.substring(2).strip());
+            } else if (line.startsWith("A:")) {
+                answer = new StringBuilder(line.substring(2).strip());
+            } else if (answer != null) {
+                answer.append(' ').append(line);
+            }
+        }
+        return entries;
+    }
+
+    record Entry(List<String> questions, String answer) {
+    }
+}
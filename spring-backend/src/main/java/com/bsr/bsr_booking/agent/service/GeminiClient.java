@@ -1,61 +1,198 @@
 package com.bsr.bsr_booking.agent.service;
 
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.Data;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.HttpEntity;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.MediaType;
-import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Component;
 import org.springframework.util.StringUtils;
-import org.springframework.web.client.RestTemplate;
 
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
+/**
+ * Non-blocking client for the Gemini generateContent API.
+ * One HttpClient is shared for the life of the application, so connections are kept alive and reused
+ * (HTTP/2 multiplexes concurrent calls over one connection). Calls never park the caller's thread:
+ * generateTextAsync returns as soon as the request is written. Each call has an overall deadline
+ * (gemini.api.deadline-ms); 429 and 5xx answers and I/O failures are retried with jittered exponential backoff
+ * while the deadline allows. streamTextAsync uses the streamGenerateContent endpoint and hands text over as it is generated.
+ */
 @Component
-@RequiredArgsConstructor
 @Slf4j
 public class GeminiClient {
 
-    private static final String MODEL_URL = "https://generativelanguage.googleapis.com/v1beta/models/gemini-2.5-flash:generateContent?key=";
-
-    private final RestTemplate restTemplate;
+    private final HttpClient httpClient;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final Counter retries;
+    private final String modelUrl;
+    private final Duration attemptTimeout;
+    private final long deadlineNanos;
+    private final int maxAttempts;
+    private final long backoffMs;
+    private final long maxBackoffMs;
 
     @Value("${gemini.api.key:}")
     private String geminiApiKey;
 
-    public String generateText(String prompt) {
+    public GeminiClient(ObjectMapper objectMapper,
+                        MeterRegistry meterRegistry,
+                        @Value("${gemini.api.base-url:https://generativelanguage.googleapis.com}") String baseUrl,
+                        @Value("${gemini.model:gemini-2.5-flash}") String model,
+                        @Value("${gemini.api.connect-timeout-ms:2000}") long connectTimeoutMs,
+                        @Value("${gemini.api.attempt-timeout-ms:15000}") long attemptTimeoutMs,
+                        @Value("${gemini.api.deadline-ms:25000}") long deadlineMs,
+                        @Value("${gemini.retry.max-attempts:3}") int maxAttempts,
+                        @Value("${gemini.retry.backoff-ms:250}") long backoffMs,
+                        @Value("${gemini.retry.max-backoff-ms:2000}") long maxBackoffMs) {
+        this.httpClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+                .version(HttpClient.Version.HTTP_2)
+                .build();
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        this.retries = Counter.builder("gemini.request.retries").register(meterRegistry);
+        String base = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        this.modelUrl = base + "/v1beta/models/" + model;
+        this.attemptTimeout = Duration.ofMillis(attemptTimeoutMs);
+        this.deadlineNanos = TimeUnit.MILLISECONDS.toNanos(deadlineMs);
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.backoffMs = backoffMs;
+        this.maxBackoffMs = maxBackoffMs;
+    }
+
+    public CompletableFuture<String> generateTextAsync(String prompt) {
+        return call(prompt, null);
+    }
+
+    /**
+     * Streams the reply: each piece of text is handed to onChunk as soon as it arrives, and the returned future
+     * completes with the whole text. Retries only happen before the first chunk, so onChunk never sees text twice.
+     */
+    public CompletableFuture<String> streamTextAsync(String prompt, Consumer<String> onChunk) {
+        return call(prompt, onChunk);
+    }
+
+    private CompletableFuture<String> call(String prompt, Consumer<String> onChunk) {
         String apiKey = resolveApiKey();
         if (!StringUtils.hasText(apiKey)) {
-            throw new IllegalStateException("Gemini API key is not configured. Set env GEMINI_API_KEY or property gemini.api.key");
+            return CompletableFuture.failedFuture(
+                    new IllegalStateException("Gemini API key is not configured. Set env GEMINI_API_KEY or property gemini.api.key"));
         }
 
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.APPLICATION_JSON);
-
         Map<String, Object> body = Map.of(
                 "contents", List.of(
                         Map.of("parts", List.of(Map.of("text", prompt)))
                 )
         );
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(body);
+        } catch (JsonProcessingException e) {
+            return CompletableFuture.failedFuture(new IllegalStateException("Could not serialize Gemini request", e));
+        }
 
-        HttpEntity<Map<String, Object>> entity = new HttpEntity<>(body, headers);
+        URI uri = URI.create(onChunk == null
+                ? modelUrl + ":generateContent?key=" + apiKey
+                : modelUrl + ":streamGenerateContent?alt=sse&key=" + apiKey);
+        return attempt(uri, json, onChunk, 1, System.nanoTime() + deadlineNanos);
+    }
 
-        ResponseEntity<GeminiResponse> response = restTemplate.postForEntity(
-                MODEL_URL + apiKey,
-                entity,
-                GeminiResponse.class
-        );
+    private CompletableFuture<String> attempt(URI uri, String json, Consumer<String> onChunk, int attempt, long deadline) {
+        long remaining = deadline - System.nanoTime();
+        if (remaining <= 0) {
+            return CompletableFuture.failedFuture(new IllegalStateException("Gemini deadline exceeded"));
+        }
+        // for a stream this bounds the wait for the response headers, not the whole reply
+        HttpRequest request = HttpRequest.newBuilder(uri)
+                .timeout(attemptTimeout.compareTo(Duration.ofNanos(remaining)) < 0 ? attemptTimeout : Duration.ofNanos(remaining))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .build();
+
+        SseTextSubscriber stream = onChunk == null ? null : new SseTextSubscriber(onChunk);
+        HttpResponse.BodyHandler<String> bodyHandler = stream == null
+                ? HttpResponse.BodyHandlers.ofString()
+                : info -> info.statusCode() == 200
+                        ? HttpResponse.BodySubscribers.mapping(HttpResponse.BodySubscribers.fromLineSubscriber(stream), ignored -> stream.text())
+                        : HttpResponse.BodySubscribers.replacing("");
+
+        long start = System.nanoTime();
+        return httpClient.sendAsync(request, bodyHandler)
+                .orTimeout(remaining, TimeUnit.NANOSECONDS)
+                .handle((response, error) -> {
+                    boolean retryable = stream == null || !stream.started();
+                    if (error != null) {
+                        record(start, "io_error");
+                        IllegalStateException failure = new IllegalStateException("Gemini call failed: " + unwrap(error), unwrap(error));
+                        return retryable ? retryOrFail(uri, json, onChunk, attempt, deadline, failure)
+                                : CompletableFuture.<String>failedFuture(failure);
+                    }
+                    int status = response.statusCode();
+                    if (status == 429 || status >= 500) {
+                        record(start, "unavailable");
+                        return retryOrFail(uri, json, onChunk, attempt, deadline,
+                                new IllegalStateException("Gemini responded with HTTP " + status));
+                    }
+                    if (status >= 400) {
+                        record(start, "rejected");
+                        return CompletableFuture.<String>failedFuture(
+                                new IllegalStateException("Gemini rejected the request with HTTP " + status));
+                    }
+                    record(start, "success");
+                    try {
+                        return CompletableFuture.completedFuture(stream == null ? extractText(response.body()) : stream.result());
+                    } catch (RuntimeException e) {
+                        return CompletableFuture.<String>failedFuture(e);
+                    }
+                })
+                .thenCompose(next -> next);
+    }
 
-        GeminiResponse geminiResponse = response.getBody();
+    private CompletableFuture<String> retryOrFail(URI uri, String json, Consumer<String> onChunk, int attempt, long deadline,
+                                                  RuntimeException failure) {
+        // jitter keeps sessions that failed together from retrying in lockstep
+        long cap = Math.min(maxBackoffMs, backoffMs << Math.min(attempt - 1, 16));
+        long delayMs = ThreadLocalRandom.current().nextLong(cap / 2, cap + 1);
+        if (attempt >= maxAttempts || System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delayMs) >= deadline) {
+            return CompletableFuture.failedFuture(failure);
+        }
+        log.warn("{}, retrying in {} ms (attempt {} of {})", failure.getMessage(), delayMs, attempt + 1, maxAttempts);
+        retries.increment();
+        return CompletableFuture.runAsync(() -> { }, CompletableFuture.delayedExecutor(delayMs, TimeUnit.MILLISECONDS))
+                .thenCompose(ignored -> attempt(uri, json, onChunk, attempt + 1, deadline));
+    }
+
+    private String extractText(String body) {
+        GeminiResponse geminiResponse;
+        try {
+            geminiResponse = objectMapper.readValue(body, GeminiResponse.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unreadable response from Gemini", e);
+        }
         if (geminiResponse == null || geminiResponse.getCandidates() == null || geminiResponse.getCandidates().isEmpty()) {
             throw new IllegalStateException("Empty response from Gemini");
         }
 
-        List<GeminiResponse.Part> parts = geminiResponse.getCandidates().get(0).getContent().getParts();
+        GeminiResponse.Content content = geminiResponse.getCandidates().get(0).getContent();
+        List<GeminiResponse.Part> parts = content == null ? null : content.getParts();
         if (parts == null || parts.isEmpty() || !StringUtils.hasText(parts.get(0).getText())) {
             throw new IllegalStateException("No text found in Gemini response");
         }
@@ -63,6 +200,89 @@ public class GeminiClient {
         return parts.get(0).getText();
     }
 
+    // Collects the text of a streamGenerateContent reply; every "data:" line carries one GeminiResponse chunk
+    private final class SseTextSubscriber implements Flow.Subscriber<String> {
+
+        private final Consumer<String> onChunk;
+        private final StringBuilder text = new StringBuilder();
+        private volatile boolean started;
+        private volatile RuntimeException failure;
+
+        private SseTextSubscriber(Consumer<String> onChunk) {
+            this.onChunk = onChunk;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            subscription.request(Long.MAX_VALUE);
+        }
+
+        @Override
+        public void onNext(String line) {
+            if (failure != null || !line.startsWith("data:")) {
+                return;
+            }
+            try {
+                GeminiResponse chunk = objectMapper.readValue(line.substring(5).trim(), GeminiResponse.class);
+                if (chunk.getCandidates() == null || chunk.getCandidates().isEmpty()
+                        || chunk.getCandidates().get(0).getContent() == null
+                        || chunk.getCandidates().get(0).getContent().getParts() == null) {
+                    return;
+                }
+                for (GeminiResponse.Part part : chunk.getCandidates().get(0).getContent().getParts()) {
+                    if (StringUtils.hasText(part.getText())) {
+                        started = true;
+                        text.append(part.getText());
+                        onChunk.accept(part.getText());
+                    }
+                }
+            } catch (JsonProcessingException e) {
+                failure = new IllegalStateException("Unreadable chunk from Gemini", e);
+            } catch (RuntimeException e) {
+                // the consumer gave up, e.g. the client disconnected; drain the rest without handing it on
+                failure = e;
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            // surfaced through the response future
+        }
+
+        @Override
+        public void onComplete() {
+        }
+
+        private boolean started() {
+            return started;
+        }
+
+        private String text() {
+            return text.toString();
+        }
+
+        private String result() {
+            if (failure != null) {
+                throw failure;
+            }
+            if (text.isEmpty()) {
+                throw new IllegalStateException("No text found in Gemini response");
+            }
+            return text.toString();
+        }
+    }
+
+    private void record(long start, String outcome) {
+        Timer.builder("gemini.request.latency")
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+
     private String resolveApiKey() {
         if (StringUtils.hasText(geminiApiKey)) {
             return geminiApiKey.trim();
@@ -72,23 +292,26 @@ public class GeminiClient {
     }
 
     @Data
+    @JsonIgnoreProperties(ignoreUnknown = true)
     public static class GeminiResponse {
         private List<Candidate> candidates;
 
         @Data
+        @JsonIgnoreProperties(ignoreUnknown = true)
         public static class Candidate {
             private Content content;
         }
 
         @Data
+        @JsonIgnoreProperties(ignoreUnknown = true)
         public static class Content {
             private List<Part> parts;
         }
 
         @Data
+        @JsonIgnoreProperties(ignoreUnknown = true)
         public static class Part {
             private String text;
         }
     }
 }
-
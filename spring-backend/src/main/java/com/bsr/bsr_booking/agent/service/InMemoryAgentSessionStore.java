@@ -0,0 +1,156 @@
+package com.bsr.bsr_booking.agent.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Bounded in-memory session store.
+ * Sessions idle for longer than agent.session.idle-ttl-minutes are dropped, lazily on read and by a periodic sweep,
+ * and once agent.session.max-sessions is reached the least recently used session is evicted to make room.
+ * Free text kept per session is capped at agent.session.max-text-chars.
+ */
+@Component
+@Slf4j
+public class InMemoryAgentSessionStore implements AgentSessionStore {
+
+    private final int maxSessions;
+    private final long idleTtlNanos;
+    private final int maxTextChars;
+    private final LongSupplier clock;
+    private final AtomicLong approximateBytes = new AtomicLong();
+    private final Counter expired;
+    private final Counter evicted;
+
+    // access-ordered, so iteration starts at the least recently used session
+    private final LinkedHashMap<String, Entry> sessions = new LinkedHashMap<>(64, 0.75f, true);
+
+    @Autowired
+    public InMemoryAgentSessionStore(MeterRegistry meterRegistry,
+                                     @Value("${agent.session.max-sessions:10000}") int maxSessions,
+                                     @Value("${agent.session.idle-ttl-minutes:30}") long idleTtlMinutes,
+                                     @Value("${agent.session.max-text-chars:2000}") int maxTextChars) {
+        this(meterRegistry, maxSessions, TimeUnit.MINUTES.toNanos(idleTtlMinutes), maxTextChars, System::nanoTime);
+    }
+
+    InMemoryAgentSessionStore(MeterRegistry meterRegistry, int maxSessions, long idleTtlNanos, int maxTextChars, LongSupplier clock) {
+        this.maxSessions = maxSessions;
+        this.idleTtlNanos = idleTtlNanos;
+        this.maxTextChars = maxTextChars;
+        this.clock = clock;
+        this.expired = Counter.builder("agent.sessions.evictions").tag("reason", "idle").register(meterRegistry);
+        this.evicted = Counter.builder("agent.sessions.evictions").tag("reason", "size").register(meterRegistry);
+        Gauge.builder("agent.sessions.live", this, InMemoryAgentSessionStore::size).register(meterRegistry);
+        Gauge.builder("agent.sessions.bytes", approximateBytes, AtomicLong::get).register(meterRegistry);
+    }
+
+    @Override
+    public Optional<AgentSession> get(String sessionId) {
+        long now = clock.getAsLong();
+        synchronized (sessions) {
+            Entry entry = sessions.get(sessionId);
+            if (entry == null) {
+                return Optional.empty();
+            }
+            if (now - entry.lastAccess > idleTtlNanos) {
+                removeEntry(sessionId, entry);
+                expired.increment();
+                return Optional.empty();
+            }
+            entry.lastAccess = now;
+            return Optional.of(entry.session);
+        }
+    }
+
+    @Override
+    public void put(String sessionId, AgentSession session) {
+        session.capText(maxTextChars);
+        Entry entry = new Entry(session, clock.getAsLong());
+        synchronized (sessions) {
+            Entry previous = sessions.put(sessionId, entry);
+            if (previous != null) {
+                approximateBytes.addAndGet(-previous.bytes);
+            }
+            approximateBytes.addAndGet(entry.bytes);
+
+            Iterator<Map.Entry<String, Entry>> eldest = sessions.entrySet().iterator();
+            while (sessions.size() > maxSessions && eldest.hasNext()) {
+                Map.Entry<String, Entry> candidate = eldest.next();
+                eldest.remove();
+                approximateBytes.addAndGet(-candidate.getValue().bytes);
+                evicted.increment();
+            }
+        }
+    }
+
+    @Override
+    public void remove(String sessionId) {
+        synchronized (sessions) {
+            Entry entry = sessions.get(sessionId);
+            if (entry != null) {
+                removeEntry(sessionId, entry);
+            }
+        }
+    }
+
+    @Override
+    public int size() {
+        synchronized (sessions) {
+            return sessions.size();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${agent.session.sweep-interval-ms:60000}")
+    public void evictIdle() {
+        long now = clock.getAsLong();
+        int removed = 0;
+        synchronized (sessions) {
+            Iterator<Entry> it = sessions.values().iterator();
+            while (it.hasNext()) {
+                Entry entry = it.next();
+                if (now - entry.lastAccess > idleTtlNanos) {
+                    it.remove();
+                    approximateBytes.addAndGet(-entry.bytes);
+                    removed++;
+                } else {
+                    // access order means everything after this was used more recently
+                    break;
+                }
+            }
+        }
+        if (removed > 0) {
+            expired.increment(removed);
+            log.debug("Evicted {} idle agent sessions", removed);
+        }
+    }
+
+    private void removeEntry(String sessionId, Entry entry) {
+        sessions.remove(sessionId);
+        approximateBytes.addAndGet(-entry.bytes);
+    }
+
+    private static final class Entry {
+        private final AgentSession session;
+        private final long bytes;
+        private long lastAccess;
+
+        private Entry(AgentSession session, long lastAccess) {
+            this.session = session;
+            this.bytes = session.approximateBytes();
+            this.lastAccess = lastAccess;
+        }
+    }
+}
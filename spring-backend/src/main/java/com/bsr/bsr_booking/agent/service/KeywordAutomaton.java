@@ -0,0 +1,89 @@
+package com.bsr.bsr_booking.agent.service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Aho-Corasick matcher for a fixed set of lower-case ASCII keywords, compiled into a dense transition table.
+ * Feeding one character is a single array lookup, so every keyword in a message is found in one pass
+ * regardless of how many keywords there are. At most 64 keywords; matches are reported as a bit set
+ * indexed like the constructor's list.
+ */
+final class KeywordAutomaton {
+
+    private static final int ALPHABET = 128;
+
+    private final int[][] next;
+    private final long[] output;
+
+    KeywordAutomaton(List<String> keywords) {
+        if (keywords.size() > Long.SIZE) {
+            throw new IllegalArgumentException("At most 64 keywords are supported");
+        }
+
+        // trie
+        List<int[]> gotos = new ArrayList<>();
+        List<Long> outputs = new ArrayList<>();
+        gotos.add(newRow());
+        outputs.add(0L);
+        for (int k = 0; k < keywords.size(); k++) {
+            int state = 0;
+            for (char c : keywords.get(k).toCharArray()) {
+                if (c >= ALPHABET || Character.toLowerCase(c) != c) {
+                    throw new IllegalArgumentException("Keywords must be lower-case ASCII: " + keywords.get(k));
+                }
+                if (gotos.get(state)[c] < 0) {
+                    gotos.get(state)[c] = gotos.size();
+                    gotos.add(newRow());
+                    outputs.add(0L);
+                }
+                state = gotos.get(state)[c];
+            }
+            outputs.set(state, outputs.get(state) | (1L << k));
+        }
+
+        // breadth-first: fill missing transitions from the failure state, inherit its outputs
+        next = gotos.toArray(new int[0][]);
+        output = outputs.stream().mapToLong(Long::longValue).toArray();
+        int[] fail = new int[next.length];
+        Deque<Integer> queue = new ArrayDeque<>();
+        for (int c = 0; c < ALPHABET; c++) {
+            if (next[0][c] < 0) {
+                next[0][c] = 0;
+            } else {
+                queue.add(next[0][c]);
+            }
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            output[state] |= output[fail[state]];
+            for (int c = 0; c < ALPHABET; c++) {
+                int child = next[state][c];
+                if (child < 0) {
+                    next[state][c] = next[fail[state]][c];
+                } else {
+                    fail[child] = next[fail[state]][c];
+                    queue.add(child);
+                }
+            }
+        }
+    }
+
+    // c must already be lower-cased; anything outside ASCII cannot be part of a keyword
+    int step(int state, char c) {
+        return c < ALPHABET ? next[state][c] : 0;
+    }
+
+    long matches(int state) {
+        return output[state];
+    }
+
+    private static int[] newRow() {
+        int[] row = new int[ALPHABET];
+        Arrays.fill(row, -1);
+        return row;
+    }
+}
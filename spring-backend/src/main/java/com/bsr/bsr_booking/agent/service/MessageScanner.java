@@ -0,0 +1,240 @@
+package com.bsr.bsr_booking.agent.service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reads everything the fallback needs from one chat message in a single left-to-right pass: which intent keywords
+ * it mentions, the first two dates written in it and a room number. Keywords go through a compiled automaton; dates
+ * and room numbers are matched by hand only where they can start (a digit, or an "r"), with the same leftmost-match
+ * results the earlier regular expressions gave:
+ * dates like {@code \d{1,2}\s*[A-Za-z]{3,9}\s*\d{4}}, {@code yyyy-MM-dd}, {@code d/M/yyyy} and {@code d-M-yyyy};
+ * {@code room [number] NNN}; and otherwise any standalone 3-5 digit number.
+ */
+final class MessageScanner {
+
+    enum Keyword {
+        ROOMS("rooms"),
+        AVAILABLE("available"),
+        BOOK("book"),
+        RESERVE("reserve"),
+        SAME_DATE("same date"),
+        SAME_DAY("same day"),
+        SAME_DATES("same dates"),
+        BOOK_THIS("book this"),
+        BOOK_ONE("book one"),
+        BOOK_ON_SAME_DATE("book on same date"),
+        TOMORROW("tomorrow"),
+        TODAY("today"),
+        TONIGHT("tonight");
+
+        private final String text;
+
+        Keyword(String text) {
+            this.text = text;
+        }
+    }
+
+    private static final KeywordAutomaton KEYWORDS =
+            new KeywordAutomaton(Arrays.stream(Keyword.values()).map(k -> k.text).toList());
+
+    /**
+     * @param dates      up to two dates as written in the message, before relative words are considered
+     * @param roomNumber the number after "room", else the first standalone 3-5 digit number, else null
+     */
+    record Scan(long keywords, List<String> dates, Integer roomNumber) {
+
+        boolean mentions(Keyword keyword) {
+            return (keywords & (1L << keyword.ordinal())) != 0;
+        }
+
+        boolean mentionsAny(Keyword... candidates) {
+            for (Keyword keyword : candidates) {
+                if (mentions(keyword)) return true;
+            }
+            return false;
+        }
+
+        // "tomorrow" or "today"/"tonight" stand for a one-night stay and come before any written dates
+        List<String> dates(LocalDate today) {
+            List<String> results = new ArrayList<>(2);
+            if (mentions(Keyword.TOMORROW)) {
+                results.add(today.plusDays(1).toString());
+                results.add(today.plusDays(2).toString());
+            } else if (mentionsAny(Keyword.TODAY, Keyword.TONIGHT)) {
+                results.add(today.toString());
+                results.add(today.plusDays(1).toString());
+            }
+            for (int i = 0; i < dates.size() && results.size() < 2; i++) {
+                results.add(dates.get(i));
+            }
+            return results;
+        }
+    }
+
+    private MessageScanner() {
+    }
+
+    static Scan scan(String text) {
+        int state = 0;
+        long keywords = 0;
+        List<String> dates = new ArrayList<>(2);
+        int dateFrom = 0;
+        Integer room = null;
+        Integer anyNumber = null;
+
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            state = KEYWORDS.step(state, Character.toLowerCase(c));
+            keywords |= KEYWORDS.matches(state);
+            if (c == '\u0130') {
+                // lower-cases to "i" plus a combining dot, which no keyword continues with
+                state = 0;
+            }
+
+            if (isDigit(c)) {
+                if (dates.size() < 2 && i >= dateFrom) {
+                    int end = matchDate(text, i);
+                    if (end > 0) {
+                        dates.add(text.substring(i, end));
+                        dateFrom = end;
+                    }
+                }
+                if (anyNumber == null && (i == 0 || !isDigit(text.charAt(i - 1)))) {
+                    anyNumber = matchStandaloneNumber(text, i);
+                }
+            } else if (room == null && (c == 'r' || c == 'R')) {
+                room = matchRoom(text, i);
+            }
+        }
+        return new Scan(keywords, dates, room != null ? room : anyNumber);
+    }
+
+    // end of the date starting at from, or -1; alternatives are tried in the order the old pattern listed them
+    private static int matchDate(String text, int from) {
+        int end = matchWrittenDate(text, from);
+        if (end < 0) end = matchIsoDate(text, from);
+        if (end < 0) end = matchNumericDate(text, from, '/');
+        if (end < 0) end = matchNumericDate(text, from, '-');
+        return end;
+    }
+
+    // 12 Nov 2026, 12nov2026
+    private static int matchWrittenDate(String text, int from) {
+        int i = skipWhitespace(text, from + digitsAt(text, from, 2));
+        int letters = 0;
+        while (i + letters < text.length() && isAsciiLetter(text.charAt(i + letters))) {
+            letters++;
+        }
+        if (letters < 3 || letters > 9) return -1;
+        i = skipWhitespace(text, i + letters);
+        return digitsAt(text, i, 4) == 4 ? i + 4 : -1;
+    }
+
+    // 2026-11-12
+    private static int matchIsoDate(String text, int from) {
+        int i = from;
+        if (digitsAt(text, i, 4) != 4 || !charAt(text, i + 4, '-')) return -1;
+        i += 5;
+        if (digitsAt(text, i, 2) != 2 || !charAt(text, i + 2, '-')) return -1;
+        i += 3;
+        return digitsAt(text, i, 2) == 2 ? i + 2 : -1;
+    }
+
+    // 12/11/2026, 12-11-2026
+    private static int matchNumericDate(String text, int from, char separator) {
+        int i = from + digitsAt(text, from, 2);
+        if (!charAt(text, i, separator)) return -1;
+        int month = digitsAt(text, i + 1, 2);
+        if (month == 0) return -1;
+        i += 1 + month;
+        if (!charAt(text, i, separator)) return -1;
+        i++;
+        return digitsAt(text, i, 4) == 4 ? i + 4 : -1;
+    }
+
+    // "room" [whitespace] ["number" [whitespace]] then up to five digits
+    private static Integer matchRoom(String text, int from) {
+        if (!asciiIgnoreCaseAt(text, from, "room")) return null;
+        int i = skipWhitespace(text, from + 4);
+        if (asciiIgnoreCaseAt(text, i, "number")) {
+            i = skipWhitespace(text, i + 6);
+        }
+        int digits = digitsAt(text, i, 5);
+        return digits == 0 ? null : Integer.parseInt(text, i, i + digits, 10);
+    }
+
+    // a whole run of 3-5 digits with a word boundary on both sides
+    private static Integer matchStandaloneNumber(String text, int from) {
+        int digits = digitsAt(text, from, 6);
+        if (digits < 3 || digits > 5) return null;
+        int end = from + digits;
+        if (from > 0 && isWordBefore(text, from)) return null;
+        if (end < text.length() && isWordAt(text, end)) return null;
+        return Integer.parseInt(text, from, end, 10);
+    }
+
+    // how java.util.regex sees \b: ASCII word characters, plus non-spacing marks that sit on a letter or digit
+    private static boolean isWordBefore(String text, int index) {
+        return isWord(text, Character.codePointBefore(text, index), index - 1);
+    }
+
+    private static boolean isWordAt(String text, int index) {
+        return isWord(text, Character.codePointAt(text, index), index);
+    }
+
+    private static boolean isWord(String text, int ch, int index) {
+        if (ch < 128 && (ch == '_' || isDigit((char) ch) || isAsciiLetter((char) ch))) return true;
+        if (Character.getType(ch) != Character.NON_SPACING_MARK) return false;
+        for (int x = index; x >= 0; x--) {
+            int base = Character.codePointAt(text, x);
+            if (Character.isLetterOrDigit(base)) return true;
+            if (Character.getType(base) != Character.NON_SPACING_MARK) return false;
+        }
+        return false;
+    }
+
+    private static int digitsAt(String text, int from, int max) {
+        int count = 0;
+        while (count < max && from + count < text.length() && isDigit(text.charAt(from + count))) {
+            count++;
+        }
+        return count;
+    }
+
+    private static int skipWhitespace(String text, int from) {
+        int i = from;
+        while (i < text.length() && isWhitespace(text.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private static boolean asciiIgnoreCaseAt(String text, int from, String lowerWord) {
+        if (from + lowerWord.length() > text.length()) return false;
+        for (int i = 0; i < lowerWord.length(); i++) {
+            char c = text.charAt(from + i);
+            if (c != lowerWord.charAt(i) && c != Character.toUpperCase(lowerWord.charAt(i))) return false;
+        }
+        return true;
+    }
+
+    private static boolean charAt(String text, int index, char expected) {
+        return index < text.length() && text.charAt(index) == expected;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isAsciiLetter(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+
+    // the regex \s set
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || (c >= '\t' && c <= '\r');
+    }
+}
@@ -0,0 +1,227 @@
+package com.bsr.bsr_booking.agent.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Bulkhead in front of the model.
+ * At most agent.model-gate.max-concurrent calls are in flight; a few more may wait up to
+ * agent.model-gate.queue-timeout-ms for a slot, and anything beyond that is shed straight away. The outcomes of the
+ * last agent.model-gate.window-size calls are tracked, and when the failure ratio reaches
+ * agent.model-gate.failure-threshold the gate goes degraded and sheds every call for agent.model-gate.cooldown-ms.
+ * A shed call fails with {@link RejectedException} without ever reaching the model.
+ */
+@Component
+@Slf4j
+public class ModelCallGate {
+
+    public enum Mode { NORMAL, DEGRADED }
+
+    private final int maxConcurrent;
+    private final int maxQueued;
+    private final long queueTimeoutMs;
+    private final int minCalls;
+    private final double failureThreshold;
+    private final long cooldownNanos;
+    private final LongSupplier clock;
+    private final Counter shedSaturated;
+    private final Counter shedQueueTimeout;
+    private final Counter shedDegraded;
+
+    private final Object lock = new Object();
+    private final ArrayDeque<Waiter> waiting = new ArrayDeque<>();
+    private int active;
+    // ring of recent outcomes, true = failed
+    private final boolean[] outcomes;
+    private int recorded;
+    private int cursor;
+    private int failures;
+    private volatile long degradedUntil;
+    private volatile boolean degraded;
+
+    @Autowired
+    public ModelCallGate(MeterRegistry meterRegistry,
+                         @Value("${agent.model-gate.max-concurrent:16}") int maxConcurrent,
+                         @Value("${agent.model-gate.max-queued:32}") int maxQueued,
+                         @Value("${agent.model-gate.queue-timeout-ms:500}") long queueTimeoutMs,
+                         @Value("${agent.model-gate.window-size:20}") int windowSize,
+                         @Value("${agent.model-gate.min-calls:10}") int minCalls,
+                         @Value("${agent.model-gate.failure-threshold:0.5}") double failureThreshold,
+                         @Value("${agent.model-gate.cooldown-ms:30000}") long cooldownMs) {
+        this(meterRegistry, maxConcurrent, maxQueued, queueTimeoutMs, windowSize, minCalls, failureThreshold,
+                TimeUnit.MILLISECONDS.toNanos(cooldownMs), System::nanoTime);
+    }
+
+    ModelCallGate(MeterRegistry meterRegistry, int maxConcurrent, int maxQueued, long queueTimeoutMs, int windowSize,
+                  int minCalls, double failureThreshold, long cooldownNanos, LongSupplier clock) {
+        this.maxConcurrent = maxConcurrent;
+        this.maxQueued = maxQueued;
+        this.queueTimeoutMs = queueTimeoutMs;
+        this.outcomes = new boolean[Math.max(1, windowSize)];
+        this.minCalls = Math.min(Math.max(1, minCalls), outcomes.length);
+        this.failureThreshold = failureThreshold;
+        this.cooldownNanos = cooldownNanos;
+        this.clock = clock;
+        this.shedSaturated = shedCounter(meterRegistry, "saturated");
+        this.shedQueueTimeout = shedCounter(meterRegistry, "queue_timeout");
+        this.shedDegraded = shedCounter(meterRegistry, "degraded");
+        Gauge.builder("agent.model.gate.active", this, ModelCallGate::active).register(meterRegistry);
+        Gauge.builder("agent.model.gate.queued", this, ModelCallGate::queued).register(meterRegistry);
+        Gauge.builder("agent.model.mode", this, gate -> gate.mode() == Mode.DEGRADED ? 1 : 0)
+                .description("0 = model answers, 1 = degraded to the rule-based fallback")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Runs the call once a slot is free. The returned future fails with RejectedException if the call was shed.
+     */
+    public CompletableFuture<String> submit(Supplier<CompletableFuture<String>> call) {
+        if (mode() == Mode.DEGRADED) {
+            shedDegraded.increment();
+            return CompletableFuture.failedFuture(new RejectedException("model calls are degraded after repeated failures"));
+        }
+
+        Waiter waiter;
+        synchronized (lock) {
+            if (active < maxConcurrent) {
+                active++;
+                waiter = null;
+            } else if (waiting.size() < maxQueued) {
+                waiter = new Waiter(call);
+                waiting.add(waiter);
+            } else {
+                shedSaturated.increment();
+                return CompletableFuture.failedFuture(new RejectedException("model call queue is full"));
+            }
+        }
+
+        if (waiter == null) {
+            return start(call);
+        }
+        CompletableFuture.delayedExecutor(queueTimeoutMs, TimeUnit.MILLISECONDS).execute(() -> expire(waiter));
+        return waiter.result;
+    }
+
+    public Mode mode() {
+        if (degraded && clock.getAsLong() - degradedUntil >= 0) {
+            synchronized (lock) {
+                if (degraded && clock.getAsLong() - degradedUntil >= 0) {
+                    degraded = false;
+                    log.info("Model calls resumed after degraded cool-down");
+                }
+            }
+        }
+        return degraded ? Mode.DEGRADED : Mode.NORMAL;
+    }
+
+    int active() {
+        synchronized (lock) {
+            return active;
+        }
+    }
+
+    int queued() {
+        synchronized (lock) {
+            return waiting.size();
+        }
+    }
+
+    // the caller already holds a slot
+    private CompletableFuture<String> start(Supplier<CompletableFuture<String>> call) {
+        CompletableFuture<String> future;
+        try {
+            future = call.get();
+        } catch (RuntimeException e) {
+            future = CompletableFuture.failedFuture(e);
+        }
+        return future.whenComplete((result, error) -> release(error != null));
+    }
+
+    private void release(boolean failed) {
+        Waiter waiter;
+        synchronized (lock) {
+            record(failed);
+            waiter = waiting.poll();
+            if (waiter == null) {
+                active--;
+            }
+        }
+        // the slot passes straight to the oldest waiter
+        if (waiter != null) {
+            start(waiter.call).whenComplete((result, error) -> {
+                if (error != null) {
+                    waiter.result.completeExceptionally(error);
+                } else {
+                    waiter.result.complete(result);
+                }
+            });
+        }
+    }
+
+    private void expire(Waiter waiter) {
+        synchronized (lock) {
+            if (!waiting.remove(waiter)) {
+                return;
+            }
+        }
+        shedQueueTimeout.increment();
+        waiter.result.completeExceptionally(new RejectedException("no model call slot within " + queueTimeoutMs + " ms"));
+    }
+
+    // called under lock
+    private void record(boolean failed) {
+        if (recorded == outcomes.length && outcomes[cursor]) {
+            failures--;
+        }
+        outcomes[cursor] = failed;
+        if (failed) {
+            failures++;
+        }
+        cursor = (cursor + 1) % outcomes.length;
+        recorded = Math.min(recorded + 1, outcomes.length);
+
+        if (!degraded && recorded >= minCalls && failures >= failureThreshold * recorded) {
+            degraded = true;
+            degradedUntil = clock.getAsLong() + cooldownNanos;
+            log.warn("{} of the last {} model calls failed; degrading to rule-based replies for {} ms",
+                    failures, recorded, TimeUnit.NANOSECONDS.toMillis(cooldownNanos));
+            // start the next period with a clean window
+            recorded = 0;
+            failures = 0;
+            cursor = 0;
+        }
+    }
+
+    private static Counter shedCounter(MeterRegistry meterRegistry, String reason) {
+        return Counter.builder("agent.model.gate.shed")
+                .description("Model calls answered by the rule-based fallback instead")
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+
+    private static final class Waiter {
+        final Supplier<CompletableFuture<String>> call;
+        final CompletableFuture<String> result = new CompletableFuture<>();
+
+        Waiter(Supplier<CompletableFuture<String>> call) {
+            this.call = call;
+        }
+    }
+
+    public static class RejectedException extends RuntimeException {
+        public RejectedException(String message) {
+            super(message);
+        }
+    }
+}
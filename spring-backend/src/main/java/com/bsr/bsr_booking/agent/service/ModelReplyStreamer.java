@@ -0,0 +1,157 @@
+package com.bsr.bsr_booking.agent.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Picks the actions and the "response" field out of the model's JSON decision while it is still being generated.
+ * Chunks may split the text anywhere, including inside an escape sequence. The actions are reported once all of them
+ * are known: the "action" value as soon as it is complete, or every step of an "actions" list once the list is closed.
+ * The response text is reported as it grows, already unescaped, but never before the actions.
+ * Not thread-safe: feed it from a single subscriber.
+ */
+public class ModelReplyStreamer {
+
+    private static final Pattern ACTION_FIELD = Pattern.compile("\"action\"\\s*:\\s*\"([^\"\\\\]*)\"");
+    private static final Pattern ACTIONS_FIELD = Pattern.compile("\"actions\"\\s*:\\s*\\[");
+    private static final Pattern RESPONSE_FIELD = Pattern.compile("\"response\"\\s*:\\s*\"");
+
+    private final Consumer<List<String>> onActions;
+    private final Consumer<String> onDelta;
+    private final StringBuilder text = new StringBuilder();
+    // response text decoded before the actions were known
+    private final StringBuilder pending = new StringBuilder();
+    private boolean actionsSeen;
+    private int responseFrom;
+    // index of the next unread character of the response value, -1 until the field starts
+    private int cursor = -1;
+    private boolean responseDone;
+
+    public ModelReplyStreamer(Consumer<List<String>> onActions, Consumer<String> onDelta) {
+        this.onActions = onActions;
+        this.onDelta = onDelta;
+    }
+
+    public void accept(String chunk) {
+        text.append(chunk);
+        if (!actionsSeen) {
+            findActions();
+        }
+        readResponse();
+        if (actionsSeen && !pending.isEmpty()) {
+            onDelta.accept(pending.toString());
+            pending.setLength(0);
+        }
+    }
+
+    public String text() {
+        return text.toString();
+    }
+
+    private void findActions() {
+        Matcher single = ACTION_FIELD.matcher(text);
+        boolean singleFound = single.find();
+        Matcher list = ACTIONS_FIELD.matcher(text);
+        if (list.find() && (!singleFound || list.start() < single.start())) {
+            int end = arrayEnd(list.end());
+            if (end < 0) {
+                return;
+            }
+            List<String> steps = new ArrayList<>();
+            Matcher step = ACTION_FIELD.matcher(text).region(list.end(), end);
+            while (step.find()) {
+                steps.add(step.group(1));
+            }
+            actionsSeen = true;
+            responseFrom = end;
+            onActions.accept(steps);
+        } else if (singleFound) {
+            actionsSeen = true;
+            onActions.accept(List.of(single.group(1)));
+        }
+    }
+
+    // index just past the bracket closing the array whose contents start at from, or -1 if it is still open
+    private int arrayEnd(int from) {
+        int depth = 1;
+        boolean inString = false;
+        for (int i = from; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (inString) {
+                if (c == '\\') {
+                    i++;
+                } else if (c == '"') {
+                    inString = false;
+                }
+            } else if (c == '"') {
+                inString = true;
+            } else if (c == '[' || c == '{') {
+                depth++;
+            } else if ((c == ']' || c == '}') && --depth == 0) {
+                return i + 1;
+            }
+        }
+        return -1;
+    }
+
+    private void readResponse() {
+        if (responseDone) {
+            return;
+        }
+        if (cursor < 0) {
+            Matcher response = RESPONSE_FIELD.matcher(text);
+            if (!response.find(responseFrom)) {
+                return;
+            }
+            // a step's own "response" inside the actions list is not the reply
+            Matcher list = ACTIONS_FIELD.matcher(text);
+            if (!actionsSeen && list.find() && list.start() < response.start()) {
+                return;
+            }
+            cursor = response.end();
+        }
+
+        while (cursor < text.length()) {
+            char c = text.charAt(cursor);
+            if (c == '"') {
+                responseDone = true;
+                break;
+            }
+            if (c != '\\') {
+                pending.append(c);
+                cursor++;
+                continue;
+            }
+            // escape sequence: wait for the rest of it if the chunk ended halfway
+            if (cursor + 1 >= text.length()) {
+                break;
+            }
+            char escaped = text.charAt(cursor + 1);
+            if (escaped == 'u') {
+                if (cursor + 6 > text.length()) {
+                    break;
+                }
+                try {
+                    pending.append((char) Integer.parseInt(text.substring(cursor + 2, cursor + 6), 16));
+                } catch (NumberFormatException e) {
+                    // not valid JSON; pass the characters through rather than stall the stream
+                    pending.append(text, cursor, cursor + 6);
+                }
+                cursor += 6;
+                continue;
+            }
+            pending.append(switch (escaped) {
+                case 'n' -> '\n';
+                case 't' -> '\t';
+                case 'r' -> '\r';
+                case 'b' -> '\b';
+                case 'f' -> '\f';
+                default -> escaped;
+            });
+            cursor += 2;
+        }
+    }
+}
@@ -0,0 +1,250 @@
+package com.bsr.bsr_booking.agent.service;
+
+import com.bsr.bsr_booking.entities.AgentSessionSnapshot;
+import com.bsr.bsr_booking.repositories.AgentSessionSnapshotRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Session store that survives a redeploy.
+ * InMemoryAgentSessionStore stays the working copy; put() only marks the session dirty and a periodic flush writes
+ * each dirty session once, however many turns it took since the last flush, to agent_session_snapshots in
+ * transactions of agent.session.persistence.batch-size rows. A session that is not in memory (new node, restart,
+ * idle eviction) is loaded from the table on first use. Snapshots untouched for
+ * agent.session.persistence.retention-hours are purged. A database outage only costs persistence, never a chat turn.
+ */
+@Component
+@Primary
+@ConditionalOnProperty(name = "agent.session.persistence.enabled", havingValue = "true", matchIfMissing = true)
+@Slf4j
+public class PersistentAgentSessionStore implements AgentSessionStore {
+
+    // matches the key column; longer ids are kept in memory only
+    private static final int MAX_SESSION_ID_LENGTH = 128;
+    // marks a removed session whose row still has to be deleted
+    private static final AgentSession REMOVED = new AgentSession();
+
+    private final InMemoryAgentSessionStore memory;
+    private final AgentSessionSnapshotRepository repository;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final int batchSize;
+    private final long retentionHours;
+    private final Counter written;
+    private final Counter writeFailures;
+    private final Counter restored;
+    private final Counter notFound;
+
+    // newest unwritten state per session; a later put replaces an earlier one, so a flush writes each session once
+    private final ConcurrentHashMap<String, AgentSession> dirty = new ConcurrentHashMap<>();
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    public PersistentAgentSessionStore(InMemoryAgentSessionStore memory,
+                                       AgentSessionSnapshotRepository repository,
+                                       PlatformTransactionManager transactionManager,
+                                       ObjectMapper objectMapper,
+                                       MeterRegistry meterRegistry,
+                                       @Value("${agent.session.persistence.batch-size:100}") int batchSize,
+                                       @Value("${agent.session.persistence.retention-hours:24}") long retentionHours) {
+        this.memory = memory;
+        this.repository = repository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.objectMapper = objectMapper;
+        this.batchSize = Math.max(1, batchSize);
+        this.retentionHours = retentionHours;
+        this.written = Counter.builder("agent.sessions.snapshots.written").register(meterRegistry);
+        this.writeFailures = Counter.builder("agent.sessions.snapshots.write.failures").register(meterRegistry);
+        this.restored = Counter.builder("agent.sessions.snapshots.loads").tag("result", "restored").register(meterRegistry);
+        this.notFound = Counter.builder("agent.sessions.snapshots.loads").tag("result", "not_found").register(meterRegistry);
+        Gauge.builder("agent.sessions.snapshots.pending", dirty, Map::size).register(meterRegistry);
+    }
+
+    @Override
+    public Optional<AgentSession> get(String sessionId) {
+        Optional<AgentSession> live = memory.get(sessionId);
+        if (live.isPresent()) {
+            return live;
+        }
+        // evicted from memory before its snapshot was written
+        AgentSession pending = dirty.get(sessionId);
+        if (pending != null) {
+            if (pending == REMOVED) {
+                return Optional.empty();
+            }
+            memory.put(sessionId, pending);
+            return Optional.of(pending);
+        }
+        if (!persistable(sessionId)) {
+            return Optional.empty();
+        }
+
+        Optional<AgentSession> loaded = load(sessionId);
+        loaded.ifPresent(session -> memory.put(sessionId, session));
+        return loaded;
+    }
+
+    @Override
+    public void put(String sessionId, AgentSession session) {
+        memory.put(sessionId, session);
+        if (persistable(sessionId)) {
+            dirty.put(sessionId, session);
+        }
+    }
+
+    @Override
+    public void remove(String sessionId) {
+        memory.remove(sessionId);
+        if (persistable(sessionId)) {
+            dirty.put(sessionId, REMOVED);
+        }
+    }
+
+    @Override
+    public int size() {
+        return memory.size();
+    }
+
+    @Scheduled(fixedDelayString = "${agent.session.persistence.flush-interval-ms:1000}")
+    public void flush() {
+        flushLock.lock();
+        try {
+            List<String> sessionIds = new ArrayList<>(dirty.keySet());
+            for (int from = 0; from < sessionIds.size(); from += batchSize) {
+                writeBatch(sessionIds.subList(from, Math.min(from + batchSize, sessionIds.size())));
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    @PreDestroy
+    void flushOnShutdown() {
+        flush();
+    }
+
+    @Scheduled(fixedDelayString = "${agent.session.persistence.purge-interval-ms:3600000}")
+    public void purgeExpired() {
+        try {
+            Integer purged = transactionTemplate.execute(status ->
+                    repository.deleteUpdatedBefore(LocalDateTime.now().minusHours(retentionHours)));
+            if (purged != null && purged > 0) {
+                log.info("Purged {} agent session snapshot(s) older than {}h", purged, retentionHours);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Purging agent session snapshots failed: {}", e.getMessage());
+        }
+    }
+
+    private void writeBatch(List<String> sessionIds) {
+        Map<String, AgentSession> batch = new LinkedHashMap<>();
+        for (String sessionId : sessionIds) {
+            AgentSession session = dirty.remove(sessionId);
+            if (session != null) {
+                batch.put(sessionId, session);
+            }
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                List<String> removed = new ArrayList<>();
+                batch.forEach((sessionId, session) -> {
+                    if (session == REMOVED) {
+                        removed.add(sessionId);
+                    } else {
+                        repository.upsert(sessionId, encode(session), now);
+                    }
+                });
+                if (!removed.isEmpty()) {
+                    repository.deleteAllByIdInBatch(removed);
+                }
+            });
+            written.increment(batch.size());
+        } catch (RuntimeException e) {
+            // a newer turn may have queued the session again meanwhile; that state wins
+            batch.forEach(dirty::putIfAbsent);
+            writeFailures.increment();
+            log.warn("Writing {} agent session snapshot(s) failed, retrying on the next flush: {}", batch.size(), e.getMessage());
+        }
+    }
+
+    private Optional<AgentSession> load(String sessionId) {
+        try {
+            Optional<AgentSessionSnapshot> snapshot = repository.findById(sessionId);
+            if (snapshot.isEmpty()) {
+                notFound.increment();
+                return Optional.empty();
+            }
+            restored.increment();
+            return Optional.of(decode(snapshot.get().getPayload()));
+        } catch (Exception e) {
+            log.warn("Could not load agent session {}, starting it fresh: {}", sessionId, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    private String encode(AgentSession session) {
+        try {
+            return objectMapper.writeValueAsString(new Snapshot(Slots.of(session.state()), Slots.of(session.derived()),
+                    session.processedMessages(), session.lastMessageHash()));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialise agent session", e);
+        }
+    }
+
+    private AgentSession decode(String payload) throws JsonProcessingException {
+        Snapshot snapshot = objectMapper.readValue(payload, Snapshot.class);
+        return AgentSession.restore(snapshot.state().toContext(), snapshot.derived().toContext(),
+                snapshot.processedMessages(), snapshot.lastMessageHash());
+    }
+
+    private static boolean persistable(String sessionId) {
+        return sessionId.length() <= MAX_SESSION_ID_LENGTH;
+    }
+
+    // the stored form of a session, kept apart so ConversationContext needs no serialisation hooks
+    record Snapshot(Slots state, Slots derived, int processedMessages, int lastMessageHash) {
+    }
+
+    record Slots(String intent, String checkIn, String checkOut, Integer roomNumber, String lastUser, String lastAssistant) {
+
+        static Slots of(ConversationContext ctx) {
+            return new Slots(ctx.intent.name(), ctx.checkIn, ctx.checkOut, ctx.roomNumber, ctx.lastUser, ctx.lastAssistant);
+        }
+
+        ConversationContext toContext() {
+            ConversationContext ctx = new ConversationContext();
+            ctx.intent = intent == null ? ConversationIntent.NONE : ConversationIntent.valueOf(intent);
+            ctx.checkIn = checkIn;
+            ctx.checkOut = checkOut;
+            ctx.roomNumber = roomNumber;
+            ctx.lastUser = lastUser;
+            ctx.lastAssistant = lastAssistant;
+            return ctx;
+        }
+    }
+}
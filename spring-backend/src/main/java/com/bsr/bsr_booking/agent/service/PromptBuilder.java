@@ -0,0 +1,164 @@
+package com.bsr.bsr_booking.agent.service;
+
+import com.bsr.bsr_booking.agent.dto.AgentChatMessage;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.StringJoiner;
+
+/**
+ * Builds the model prompt for one turn.
+ * Only the last agent.prompt.recent-messages messages are sent verbatim; anything older is folded into a short
+ * summary built from the slots already extracted into ConversationContext, so the prompt stays roughly the same
+ * size however long the chat gets. If the verbatim window would still exceed agent.prompt.max-tokens, its oldest
+ * messages are folded too.
+ */
+@Component
+public class PromptBuilder {
+
+    private static final String PROMPT_TEMPLATE = """
+            You are an AI booking assistant for Bhagat Singh Resort (hotel/resort). Purpose: hotel room discovery, availability checking, and booking. You must infer intent from casual language and perform slot-filling (intent, roomNumber, checkInDate, checkOutDate). Keep context from prior turns; do NOT re-ask for slots already provided. Return ONLY one JSON.
+
+            Allowed actions + params:
+            - update_own_account: {firstName?, lastName?, email?, phoneNumber?, password?}
+            - get_my_bookings: {}
+            - available_rooms: {checkInDate (YYYY-MM-DD), checkOutDate (YYYY-MM-DD), roomType? in [SINGLE, DOUBLE, SUIT, TRIPLE]}
+            - get_room_by_id: {id (number)}
+            - create_booking: {roomId (number), checkInDate (YYYY-MM-DD), checkOutDate (YYYY-MM-DD)}
+            Disallowed: deleteOwnAccount, addRoom, any admin-only op.
+
+            Business / domain:
+            - Hotel name: Bhagat Singh Resort
+            - Type: Hotel / Resort
+            - Contact: available on website (phone/email)
+            - Owner/Management: Resort staff (not AI)
+            - Scope: Booking assistance, availability, hotel questions; not a general chatbot.
+
+            Guidelines:
+            - Understand generic asks like "rooms", "show rooms", "available rooms" without requiring perfect sentences.
+            - Reuse dates/room intent already mentioned in conversation; do NOT ask again if known.
+            - If booking slots are missing, ask ONLY for the missing ones (e.g., if dates known, ask for roomNumber).
+            - If availability dates are missing, ask once for both dates.
+            - If the user says "book on same date"/"book this"/"book one"/"reserve a room" after viewing rooms, reuse the last known dates; only ask for room number if missing.
+            - Avoid repetitive wording; be concise and specific.
+            - If action not allowed, set action "small_talk" with a brief refusal.
+            - If unclear, use "small_talk" with a short, specific clarifying question.
+
+            Respond with exactly:
+            {"action":"<allowed_or_small_talk>","params":{...},"response":"<short user-facing reply>"}
+            If the latest message asks for several of the allowed actions at once (e.g. available rooms and my bookings), respond instead with up to 4 of them:
+            {"actions":[{"action":"<allowed>","params":{...}},{"action":"<allowed>","params":{...}}],"response":"<short user-facing reply>"}
+
+            Conversation so far:
+            %s
+            Latest user message: "%s"
+            """;
+
+    private static final List<AgentChatMessage> DEFAULT_MESSAGES =
+            List.of(AgentChatMessage.builder().role("user").content("Help me book a room").build());
+
+    // what the template costs before any conversation is added
+    private static final int TEMPLATE_TOKENS = estimateTokens(PROMPT_TEMPLATE.formatted("", ""));
+
+    private final int recentMessages;
+    private final int maxTokens;
+    private final int maxMessageChars;
+    private final DistributionSummary promptTokens;
+    private final DistributionSummary promptChars;
+    private final Counter foldedMessages;
+
+    public PromptBuilder(MeterRegistry meterRegistry,
+                         @Value("${agent.prompt.recent-messages:6}") int recentMessages,
+                         @Value("${agent.prompt.max-tokens:1500}") int maxTokens,
+                         @Value("${agent.prompt.max-message-chars:600}") int maxMessageChars) {
+        this.recentMessages = Math.max(1, recentMessages);
+        this.maxTokens = maxTokens;
+        this.maxMessageChars = maxMessageChars;
+        this.promptTokens = DistributionSummary.builder("agent.prompt.tokens")
+                .description("Estimated tokens per model prompt")
+                .publishPercentiles(0.5, 0.95)
+                .register(meterRegistry);
+        this.promptChars = DistributionSummary.builder("agent.prompt.chars").register(meterRegistry);
+        this.foldedMessages = Counter.builder("agent.prompt.folded.messages").register(meterRegistry);
+    }
+
+    public String build(List<AgentChatMessage> messages, ConversationContext ctx) {
+        if (messages == null || messages.isEmpty()) {
+            messages = DEFAULT_MESSAGES;
+        }
+
+        String latestUserContent = clip(messages.get(messages.size() - 1).getContent());
+        int budget = maxTokens - TEMPLATE_TOKENS - estimateTokens(latestUserContent);
+
+        // walk back from the newest message until the window or the budget is used up
+        Deque<String> window = new ArrayDeque<>();
+        int windowTokens = 0;
+        int first = messages.size();
+        while (first > 0 && window.size() < recentMessages) {
+            AgentChatMessage message = messages.get(first - 1);
+            String line = message.getRole() + ": " + clip(message.getContent());
+            int lineTokens = estimateTokens(line) + 1;
+            if (!window.isEmpty() && windowTokens + lineTokens > budget) {
+                break;
+            }
+            window.addFirst(line);
+            windowTokens += lineTokens;
+            first--;
+        }
+
+        StringJoiner conversation = new StringJoiner("\n");
+        if (first > 0) {
+            foldedMessages.increment(first);
+            conversation.add(summary(first, ctx));
+        }
+        window.forEach(conversation::add);
+        conversation.add(slots(ctx));
+
+        String prompt = PROMPT_TEMPLATE.formatted(conversation.toString(), latestUserContent);
+        promptChars.record(prompt.length());
+        promptTokens.record(estimateTokens(prompt));
+        return prompt;
+    }
+
+    private String summary(int folded, ConversationContext ctx) {
+        return "(summary of " + folded + " earlier message" + (folded == 1 ? "" : "s")
+                + ": the guest was " + describe(ctx.intent) + ")";
+    }
+
+    private static String describe(ConversationIntent intent) {
+        return switch (intent) {
+            case VIEW_ROOMS -> "looking at available rooms";
+            case BOOK_ROOM -> "trying to book a room";
+            case NONE -> "chatting without a booking goal yet";
+        };
+    }
+
+    // slots carried over from the whole conversation, including folded messages
+    private static String slots(ConversationContext ctx) {
+        return """
+                Context:
+                intent: %s
+                checkInDate: %s
+                checkOutDate: %s
+                roomNumber: %s
+                """.formatted(ctx.intent, ctx.checkIn, ctx.checkOut, ctx.roomNumber);
+    }
+
+    private String clip(String content) {
+        if (content == null) {
+            return "";
+        }
+        return content.length() > maxMessageChars ? content.substring(0, maxMessageChars) + "…" : content;
+    }
+
+    // ~4 characters per token for English text; only used for budgeting and metrics
+    static int estimateTokens(String text) {
+        return (text.length() + 3) / 4;
+    }
+}
@@ -0,0 +1,76 @@
+package com.bsr.bsr_booking.agent.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Runs the chat turns of one session strictly one after another, so two tabs sharing a sessionId cannot both read
+ * the session and then overwrite each other's update. A turn starts once the previous turn of the same session has
+ * completed; turns of other sessions never wait for it. Waiting turns are chained onto the previous turn's future,
+ * so they hold no thread while they wait.
+ */
+@Component
+public class SessionTurnSerializer {
+
+    // last turn submitted per session, removed once it has completed
+    private final ConcurrentMap<String, CompletableFuture<?>> tails = new ConcurrentHashMap<>();
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final Counter serialized;
+
+    public SessionTurnSerializer(MeterRegistry meterRegistry) {
+        this.serialized = Counter.builder("agent.session.turns.serialized")
+                .description("Turns that waited for an earlier turn of the same session")
+                .register(meterRegistry);
+        Gauge.builder("agent.session.turns.waiting", waiting, AtomicInteger::get).register(meterRegistry);
+    }
+
+    /**
+     * Starts the turn now if its session is idle, otherwise once the session's previous turn completes, on that
+     * turn's completing thread through the given executor (which should restore the caller's context).
+     */
+    public <T> CompletableFuture<T> submit(String sessionId, Executor executor, Supplier<CompletableFuture<T>> turn) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        CompletableFuture<?> previous = tails.put(sessionId, result);
+        result.whenComplete((value, error) -> tails.remove(sessionId, result));
+
+        if (previous == null || previous.isDone()) {
+            start(turn, result);
+        } else {
+            serialized.increment();
+            waiting.incrementAndGet();
+            // the outcome of the previous turn does not matter, only that it is over
+            previous.whenCompleteAsync((value, error) -> {
+                waiting.decrementAndGet();
+                start(turn, result);
+            }, executor);
+        }
+        return result;
+    }
+
+    int sessions() {
+        return tails.size();
+    }
+
+    private static <T> void start(Supplier<CompletableFuture<T>> turn, CompletableFuture<T> result) {
+        try {
+            turn.get().whenComplete((value, error) -> {
+                if (error != null) {
+                    result.completeExceptionally(error);
+                } else {
+                    result.complete(value);
+                }
+            });
+        } catch (RuntimeException e) {
+            result.completeExceptionally(e);
+        }
+    }
+}
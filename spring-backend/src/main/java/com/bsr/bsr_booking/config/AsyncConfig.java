@@ -0,0 +1,75 @@
+package com.bsr.bsr_booking.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+@Configuration
+@EnableAsync
+@Slf4j
+public class AsyncConfig {
+
+    @Value("${notification.executor.await-termination-seconds:30}")
+    private int awaitTerminationSeconds;
+
+    // Each notification channel gets its own bounded pool so a slow SMS or WhatsApp provider never delays e-mail
+    @Bean(name = "emailNotificationExecutor")
+    public ThreadPoolTaskExecutor emailNotificationExecutor(MeterRegistry meterRegistry,
+                                                            @Value("${notification.executor.email.core-size:2}") int coreSize,
+                                                            @Value("${notification.executor.email.max-size:4}") int maxSize,
+                                                            @Value("${notification.executor.email.queue-capacity:100}") int queueCapacity) {
+        return channelExecutor("email", coreSize, maxSize, queueCapacity, meterRegistry);
+    }
+
+    @Bean(name = "smsNotificationExecutor")
+    public ThreadPoolTaskExecutor smsNotificationExecutor(MeterRegistry meterRegistry,
+                                                          @Value("${notification.executor.sms.core-size:1}") int coreSize,
+                                                          @Value("${notification.executor.sms.max-size:2}") int maxSize,
+                                                          @Value("${notification.executor.sms.queue-capacity:50}") int queueCapacity) {
+        return channelExecutor("sms", coreSize, maxSize, queueCapacity, meterRegistry);
+    }
+
+    @Bean(name = "whatsappNotificationExecutor")
+    public ThreadPoolTaskExecutor whatsappNotificationExecutor(MeterRegistry meterRegistry,
+                                                               @Value("${notification.executor.whatsapp.core-size:1}") int coreSize,
+                                                               @Value("${notification.executor.whatsapp.max-size:2}") int maxSize,
+                                                               @Value("${notification.executor.whatsapp.queue-capacity:50}") int queueCapacity) {
+        return channelExecutor("whatsapp", coreSize, maxSize, queueCapacity, meterRegistry);
+    }
+
+    private ThreadPoolTaskExecutor channelExecutor(String channel, int coreSize, int maxSize, int queueCapacity,
+                                                   MeterRegistry meterRegistry) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(coreSize);
+        executor.setMaxPoolSize(maxSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("notification-" + channel + "-");
+
+        // drain queued deliveries on shutdown instead of dropping them
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(awaitTerminationSeconds);
+
+        // when the queue is full, shed the task rather than block the caller;
+        // the outbox row stays claimed and is picked up again once its lease expires
+        Counter rejected = Counter.builder("notification.executor.rejected").tag("channel", channel).register(meterRegistry);
+        executor.setRejectedExecutionHandler((task, pool) -> {
+            rejected.increment();
+            log.error("{} notification executor saturated ({} queued), deferring notification", channel, pool.getQueue().size());
+        });
+
+        Gauge.builder("notification.executor.queue.depth", executor,
+                        e -> e.getThreadPoolExecutor().getQueue().size())
+                .tag("channel", channel)
+                .register(meterRegistry);
+        Gauge.builder("notification.executor.active", executor, ThreadPoolTaskExecutor::getActiveCount)
+                .tag("channel", channel)
+                .register(meterRegistry);
+        return executor;
+    }
+}
@@ -0,0 +1,25 @@
+package com.bsr.bsr_booking.config;
+
+import com.bsr.bsr_booking.services.channels.StubTextMessageProvider;
+import com.bsr.bsr_booking.services.channels.TextMessageProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+// No SMS or WhatsApp account is wired up yet; these stubs log messages until a real provider bean replaces them
+@Configuration
+public class NotificationProviderConfig {
+
+    @Bean(name = "smsProvider")
+    @ConditionalOnProperty(name = "notification.sms.provider", havingValue = "stub", matchIfMissing = true)
+    public TextMessageProvider smsProvider(@Value("${notification.sms.stub-latency-ms:0}") long latencyMs) {
+        return new StubTextMessageProvider("sms", latencyMs);
+    }
+
+    @Bean(name = "whatsappProvider")
+    @ConditionalOnProperty(name = "notification.whatsapp.provider", havingValue = "stub", matchIfMissing = true)
+    public TextMessageProvider whatsappProvider(@Value("${notification.whatsapp.stub-latency-ms:0}") long latencyMs) {
+        return new StubTextMessageProvider("whatsapp", latencyMs);
+    }
+}
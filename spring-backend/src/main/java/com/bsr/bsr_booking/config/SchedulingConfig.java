@@ -0,0 +1,39 @@
+package com.bsr.bsr_booking.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * The scheduler pool (spring.task.scheduling.pool.size) only fires jobs. Long batch runs such as payment
+ * reconciliation and pre-arrival reminders hand themselves to batchJobExecutor, so they never hold a scheduler
+ * thread that the outbox dispatcher, webhook poller and hold sweeper need every few seconds.
+ */
+@Configuration
+@EnableScheduling
+@Slf4j
+public class SchedulingConfig {
+
+    @Bean(name = "batchJobExecutor")
+    public ThreadPoolTaskExecutor batchJobExecutor(MeterRegistry meterRegistry,
+                                                   @Value("${scheduling.batch-jobs.pool-size:2}") int poolSize) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(poolSize);
+        executor.setThreadNamePrefix("batch-job-");
+
+        // a run that cannot even queue is skipped; every batch job resumes where it left off on its next trigger
+        Counter rejected = Counter.builder("scheduling.batch.rejected").register(meterRegistry);
+        executor.setRejectedExecutionHandler((task, pool) -> {
+            rejected.increment();
+            log.warn("Batch job executor saturated ({} queued), skipping this run", pool.getQueue().size());
+        });
+        return executor;
+    }
+}
@@ -2,11 +2,14 @@ package com.bsr.bsr_booking.controllers;
 
 import com.bsr.bsr_booking.dtos.BookingDTO;
 import com.bsr.bsr_booking.dtos.Response;
+import com.bsr.bsr_booking.services.AggregateVersions;
 import com.bsr.bsr_booking.services.BookingService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 @RestController
 @RequestMapping("/api/bookings")
@@ -14,11 +17,14 @@ import org.springframework.web.bind.annotation.*;
 public class BookingController {
 
     private final BookingService bookingService;
+    private final AggregateVersions aggregateVersions;
 
     @GetMapping("/all")
     @PreAuthorize("hasAuthority('ADMIN')")
-    public ResponseEntity<Response> getAllBookings(){
-        return ResponseEntity.ok(bookingService.getAllBookings());
+    public ResponseEntity<Response> getAllBookings(WebRequest webRequest){
+        String eTag = aggregateVersions.bookingsTag();
+        if (webRequest.checkNotModified(eTag)) return null;
+        return ResponseEntity.ok().eTag(eTag).cacheControl(CacheControl.noCache().cachePrivate()).body(bookingService.getAllBookings());
     }
 
 
@@ -30,8 +36,10 @@ public class BookingController {
 
 
     @GetMapping("/{reference}")
-    public ResponseEntity<Response> findBookingByReferenceNo(@PathVariable String reference){
-        return ResponseEntity.ok(bookingService.findBookingByReferenceNo(reference));
+    public ResponseEntity<Response> findBookingByReferenceNo(@PathVariable String reference, WebRequest webRequest){
+        String eTag = aggregateVersions.bookingsTag();
+        if (webRequest.checkNotModified(eTag)) return null;
+        return ResponseEntity.ok().eTag(eTag).cacheControl(CacheControl.noCache().cachePrivate()).body(bookingService.findBookingByReferenceNo(reference));
     }
 
     @PutMapping("/update")
@@ -1,14 +1,17 @@
 package com.bsr.bsr_booking.controllers;
 
 import com.bsr.bsr_booking.dtos.Response;
+import com.bsr.bsr_booking.services.AggregateVersions;
 import com.bsr.bsr_booking.services.HotelImageService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.util.List;
@@ -19,6 +22,7 @@ import java.util.List;
 public class HotelImageController {
 
     private final HotelImageService hotelImageService;
+    private final AggregateVersions aggregateVersions;
 
     @PostMapping(
             value = "/add-multiple",
@@ -43,10 +47,12 @@ public class HotelImageController {
     }
 
     @GetMapping(value = "/all", produces = MediaType.APPLICATION_JSON_VALUE)
-    public ResponseEntity<Response> getAllHotelImages() {
+    public ResponseEntity<Response> getAllHotelImages(WebRequest webRequest) {
+        String eTag = aggregateVersions.imagesTag();
+        if (webRequest.checkNotModified(eTag)) return null;
         try {
             Response response = hotelImageService.getAllHotelImages();
-            return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(response);
+            return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).eTag(eTag).cacheControl(CacheControl.noCache()).body(response);
         } catch (Exception e) {
             Response errorResponse = Response.builder()
                     .status(500)
@@ -57,12 +63,16 @@ public class HotelImageController {
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<Response> getHotelImageById(@PathVariable Long id) {
-        return ResponseEntity.ok(hotelImageService.getHotelImageById(id));
+    public ResponseEntity<Response> getHotelImageById(@PathVariable Long id, WebRequest webRequest) {
+        String eTag = aggregateVersions.imagesTag();
+        if (webRequest.checkNotModified(eTag)) return null;
+        return ResponseEntity.ok().eTag(eTag).cacheControl(CacheControl.noCache()).body(hotelImageService.getHotelImageById(id));
     }
 
     @GetMapping("/{id}/image")
-    public ResponseEntity<byte[]> getHotelImageData(@PathVariable Long id) {
+    public ResponseEntity<byte[]> getHotelImageData(@PathVariable Long id, WebRequest webRequest) {
+        String eTag = aggregateVersions.imagesTag();
+        if (webRequest.checkNotModified(eTag)) return null;
         try {
             byte[] imageData = hotelImageService.getHotelImageData(id);
             String contentType = hotelImageService.getHotelImageContentType(id);
@@ -79,6 +89,8 @@ public class HotelImageController {
             headers.set("Access-Control-Allow-Methods", "GET, OPTIONS");
             headers.set("Access-Control-Allow-Headers", "*");
             headers.setContentLength(imageData.length);
+            headers.setETag(eTag);
+            headers.setCacheControl(CacheControl.noCache().cachePublic());
             
             return new ResponseEntity<>(imageData, headers, HttpStatus.OK);
         } catch (Exception e) {
@@ -3,12 +3,15 @@ package com.bsr.bsr_booking.controllers;
 import com.bsr.bsr_booking.dtos.Response;
 import com.bsr.bsr_booking.dtos.RoomDTO;
 import com.bsr.bsr_booking.enums.RoomType;
+import com.bsr.bsr_booking.services.AggregateVersions;
 import com.bsr.bsr_booking.services.RoomService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.MediaType;
+import org.springframework.http.CacheControl;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.math.BigDecimal;
@@ -20,6 +23,8 @@ import java.util.List;
 @RequiredArgsConstructor
 public class RoomController {
     private final RoomService roomService;
+    private final AggregateVersions aggregateVersions;
+
     @PostMapping(
             value = "/add",
             consumes = MediaType.MULTIPART_FORM_DATA_VALUE
@@ -70,14 +75,18 @@ public class RoomController {
     }
 
     @GetMapping("/all")
-    public ResponseEntity<Response> getAllRooms(){
-        return ResponseEntity.ok(roomService.getAllRooms());
+    public ResponseEntity<Response> getAllRooms(WebRequest webRequest){
+        String eTag = aggregateVersions.roomsTag();
+        if (webRequest.checkNotModified(eTag)) return null;
+        return ResponseEntity.ok().eTag(eTag).cacheControl(CacheControl.noCache()).body(roomService.getAllRooms());
     }
 
 
     @GetMapping("/{id}")
-    public ResponseEntity<Response> getRoomById(@PathVariable Long id){
-        return ResponseEntity.ok(roomService.getRoomById(id));
+    public ResponseEntity<Response> getRoomById(@PathVariable Long id, WebRequest webRequest){
+        String eTag = aggregateVersions.roomsTag();
+        if (webRequest.checkNotModified(eTag)) return null;
+        return ResponseEntity.ok().eTag(eTag).cacheControl(CacheControl.noCache()).body(roomService.getRoomById(id));
     }
 
 
@@ -91,21 +100,28 @@ public class RoomController {
     public ResponseEntity<Response> getAvailableRooms(
             @RequestParam LocalDate checkInDate,
             @RequestParam LocalDate checkOutDate,
-            @RequestParam(required = false) RoomType roomType
+            @RequestParam(required = false) RoomType roomType,
+            WebRequest webRequest
             ){
-        return ResponseEntity.ok(roomService.getAvailableRooms(checkInDate, checkOutDate, roomType));
+        String eTag = aggregateVersions.availabilityTag();
+        if (webRequest.checkNotModified(eTag)) return null;
+        return ResponseEntity.ok().eTag(eTag).cacheControl(CacheControl.noCache()).body(roomService.getAvailableRooms(checkInDate, checkOutDate, roomType));
     }
     @GetMapping("/types")
     public ResponseEntity<List<RoomType>> getAllRoomTypes(){
         return ResponseEntity.ok(roomService.getAllRoomTypes());
     }
     @GetMapping("/search")
-    public ResponseEntity<Response> searchRoom(@RequestParam String input){
-        return ResponseEntity.ok(roomService.searchRoom(input));
+    public ResponseEntity<Response> searchRoom(@RequestParam String input, WebRequest webRequest){
+        String eTag = aggregateVersions.roomsTag();
+        if (webRequest.checkNotModified(eTag)) return null;
+        return ResponseEntity.ok().eTag(eTag).cacheControl(CacheControl.noCache()).body(roomService.searchRoom(input));
     }
 
     @GetMapping("/{id}/booked-dates")
-    public ResponseEntity<Response> getBookedDates(@PathVariable Long id){
-        return ResponseEntity.ok(roomService.getBookedDates(id));
+    public ResponseEntity<Response> getBookedDates(@PathVariable Long id, WebRequest webRequest){
+        String eTag = aggregateVersions.roomBookingsTag(id);
+        if (webRequest.checkNotModified(eTag)) return null;
+        return ResponseEntity.ok().eTag(eTag).cacheControl(CacheControl.noCache()).body(roomService.getBookedDates(id));
     }
 }
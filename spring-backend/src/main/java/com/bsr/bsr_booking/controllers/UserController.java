@@ -2,11 +2,16 @@ package com.bsr.bsr_booking.controllers;
 
 import com.bsr.bsr_booking.dtos.Response;
 import com.bsr.bsr_booking.dtos.UserDTO;
+import com.bsr.bsr_booking.services.AggregateVersions;
 import com.bsr.bsr_booking.services.UserService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+
+import java.security.Principal;
 
 @RestController
 @RequestMapping("/api/users")
@@ -14,6 +19,7 @@ import org.springframework.web.bind.annotation.*;
 public class UserController {
 
     private final UserService userService;
+    private final AggregateVersions aggregateVersions;
 
     @GetMapping("/all")
     @PreAuthorize("hasAuthority('ADMIN')")
@@ -39,8 +45,10 @@ public class UserController {
 
 
     @GetMapping("/bookings")
-    public ResponseEntity<Response> getMyBookingHistory(){
-        return ResponseEntity.ok(userService.getMyBookingHistory());
+    public ResponseEntity<Response> getMyBookingHistory(Principal principal, WebRequest webRequest){
+        String eTag = aggregateVersions.userBookingsTag(principal.getName());
+        if (webRequest.checkNotModified(eTag)) return null;
+        return ResponseEntity.ok().eTag(eTag).cacheControl(CacheControl.noCache().cachePrivate()).body(userService.getMyBookingHistory());
     }
 
 }
@@ -0,0 +1,33 @@
+package com.bsr.bsr_booking.dtos;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ReconciliationReport {
+
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+
+    private long durationMs;
+    private long gatewayMs; //summed wall time of the parallel gateway lookups, per page
+    private long applyMs;
+
+    private int scanned;
+    private int markedPaid; //includes bookings paid after their hold was released and reinstated
+    private int markedFailed;
+    private int paidAfterRelease; //paid after the hold was released and the room was taken, needs a refund
+    private int unchanged;
+    private int gatewayErrors;
+
+    private boolean aborted; //stopped early because the gateway circuit opened
+}
@@ -55,5 +55,8 @@ public class Response {
     //Booked dates output
     private List<String> bookedDates;
 
+    //Payment reconciliation output
+    private ReconciliationReport reconciliation;
+
     private final LocalDateTime timestamp = LocalDateTime.now();
 }
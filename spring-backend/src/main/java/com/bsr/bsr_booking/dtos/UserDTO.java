@@ -1,5 +1,6 @@
 package com.bsr.bsr_booking.dtos;
 
+import com.bsr.bsr_booking.enums.NotificationType;
 import com.bsr.bsr_booking.enums.UserRole;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
@@ -10,6 +11,7 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import java.time.LocalDateTime;
+import java.util.Set;
 
 @Data
 @AllArgsConstructor
@@ -32,6 +34,8 @@ public class UserDTO {
     private UserRole role; //e.g CUSTOMER, ADMIN
 
     private Boolean isActive;
+
+    private Set<NotificationType> notificationChannels;
     private LocalDateTime createdAt;
 
 }
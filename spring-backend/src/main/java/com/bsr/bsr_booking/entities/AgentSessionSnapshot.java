@@ -0,0 +1,36 @@
+package com.bsr.bsr_booking.entities;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// Last known state of one chat-agent session, written behind the in-memory session store so chats survive a restart
+@Entity
+@Data
+@Table(name = "agent_session_snapshots", indexes = {
+        @Index(name = "idx_agent_session_snapshots_updated_at", columnList = "updated_at")
+})
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class AgentSessionSnapshot {
+
+    @Id
+    @Column(name = "session_id", length = 128)
+    private String sessionId;
+
+    //JSON of the session's slots and extraction progress
+    @Column(columnDefinition = "TEXT", nullable = false)
+    private String payload;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+}
@@ -15,7 +15,11 @@ import java.time.LocalDateTime;
 
 @Entity
 @Data
-@Table(name = "bookings")
+@Table(name = "bookings", indexes = {
+        @Index(name = "idx_bookings_check_in_date", columnList = "check_in_date, id"),
+        @Index(name = "idx_bookings_payment_order_id", columnList = "payment_order_id"),
+        @Index(name = "idx_bookings_hold_expires_at", columnList = "hold_expires_at")
+})
 @Builder
 @AllArgsConstructor
 @NoArgsConstructor
@@ -47,4 +51,14 @@ public class Booking {
     @Enumerated(EnumType.STRING)
     private BookingStatus bookingStatus;
 
+    //unpaid bookings only reserve the room until this instant, after which BookingHoldManager cancels them
+    private LocalDateTime holdExpiresAt;
+
+    //razorpay order created for this booking and the amount (in paise) it was created for, reused on retries
+    private String paymentOrderId;
+    private Long paymentOrderAmount;
+
+    //set in the same transaction that queues the pre-arrival reminder, so it is only ever sent once
+    private LocalDateTime reminderSentAt;
+
 }
@@ -0,0 +1,36 @@
+package com.bsr.bsr_booking.entities;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+// Progress of a chunked background job, advanced in the same transaction as each chunk it covers
+@Entity
+@Data
+@Table(name = "job_checkpoints")
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class JobCheckpoint {
+
+    @Id
+    private String jobName;
+
+    //the day the current pass started; a checkpoint from an earlier day is stale and restarts the scan
+    private LocalDate runDate;
+
+    //keyset cursor, the last (check-in date, id) handled
+    private LocalDate cursorDate;
+    private Long cursorId;
+
+    private Integer processed;
+
+    private LocalDateTime updatedAt;
+}
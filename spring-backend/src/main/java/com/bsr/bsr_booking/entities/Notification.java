@@ -1,6 +1,7 @@
 package com.bsr.bsr_booking.entities;
 
 
+import com.bsr.bsr_booking.enums.NotificationStatus;
 import com.bsr.bsr_booking.enums.NotificationType;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
@@ -13,7 +14,9 @@ import java.time.LocalDateTime;
 
 @Entity
 @Data
-@Table(name = "notifications")
+@Table(name = "notifications", indexes = {
+        @Index(name = "idx_notifications_type_status_next_attempt", columnList = "type, status, next_attempt_at")
+})
 @Builder
 @AllArgsConstructor
 @NoArgsConstructor
@@ -28,6 +31,7 @@ public class Notification {
     @NotBlank(message = "recipient is required")
     private String recipient;
 
+    @Column(columnDefinition = "TEXT")
     private String body;
 
     private String bookingReference;
@@ -35,6 +39,25 @@ public class Notification {
     @Enumerated(EnumType.STRING)
     private NotificationType type;
 
+    //outbox state, the dispatcher moves rows PENDING -> SENDING -> SENT (or FAILED after the last retry)
+    @Enumerated(EnumType.STRING)
+    @Builder.Default
+    private NotificationStatus status = NotificationStatus.PENDING;
+
+    @Builder.Default
+    private Integer attempts = 0;
+
+    private LocalDateTime nextAttemptAt;
+    private LocalDateTime claimedUntil;
+    private LocalDateTime sentAt;
+
+    @Column(length = 1000)
+    private String lastError;
+
+    // bumped on every write, so a dispatcher whose lease was taken over cannot overwrite the new owner's outcome
+    @Version
+    private long version;
+
     private final LocalDateTime createdAt = LocalDateTime.now();
 
 }
@@ -13,7 +13,9 @@ import java.time.LocalDateTime;
 
 @Entity
 @Data
-@Table(name = "payments")
+@Table(name = "payments", indexes = {
+        @Index(name = "idx_payments_transaction_id", columnList = "transaction_id")
+})
 @Builder
 @AllArgsConstructor
 @NoArgsConstructor
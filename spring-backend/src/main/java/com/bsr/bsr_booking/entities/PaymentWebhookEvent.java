@@ -0,0 +1,55 @@
+package com.bsr.bsr_booking.entities;
+
+import com.bsr.bsr_booking.enums.WebhookEventStatus;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Data
+@Table(name = "payment_webhook_events", indexes = {
+        @Index(name = "idx_payment_webhook_events_status", columnList = "status, id")
+}, uniqueConstraints = {
+        //Razorpay retries deliveries; the second copy of a payment's event is rejected here
+        @UniqueConstraint(name = "uk_payment_webhook_events_transaction_id", columnNames = "transaction_id")
+})
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class PaymentWebhookEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private String eventType; //e.g payment.captured, payment.failed
+
+    @Column(name = "transaction_id", nullable = false)
+    private String transactionId;
+
+    private String orderId;
+
+    @Column(columnDefinition = "TEXT")
+    private String payload;
+
+    @Enumerated(EnumType.STRING)
+    @Builder.Default
+    private WebhookEventStatus status = WebhookEventStatus.RECEIVED;
+
+    @Builder.Default
+    private Integer attempts = 0;
+
+    @Column(length = 1000)
+    private String lastError;
+
+    //a RECEIVED event that hit a transient error is not picked up again before this instant
+    private LocalDateTime nextAttemptAt;
+
+    private LocalDateTime processedAt;
+
+    private final LocalDateTime receivedAt = LocalDateTime.now();
+}
@@ -1,14 +1,20 @@
 package com.bsr.bsr_booking.entities;
 
+import com.bsr.bsr_booking.enums.NotificationType;
 import com.bsr.bsr_booking.enums.UserRole;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
+import org.hibernate.annotations.BatchSize;
 
 import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.Set;
 
 @Entity
 @Data
@@ -39,6 +45,18 @@ public class User {
     private UserRole role; //e.g CUSTOMER, ADMIN
 
     private Boolean isActive;
+
+    //channels the user wants booking notifications on; an empty set falls back to EMAIL
+    @ElementCollection
+    @CollectionTable(name = "user_notification_channels", joinColumns = @JoinColumn(name = "user_id"))
+    @Column(name = "channel")
+    @Enumerated(EnumType.STRING)
+    @BatchSize(size = 50)
+    @Builder.Default
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private Set<NotificationType> notificationChannels = new HashSet<>(Set.of(NotificationType.EMAIL));
+
     private final LocalDateTime createdAt = LocalDateTime.now();
 
 }
@@ -0,0 +1,5 @@
+package com.bsr.bsr_booking.enums;
+
+public enum WebhookEventStatus {
+    RECEIVED, PROCESSED, IGNORED, FAILED
+}
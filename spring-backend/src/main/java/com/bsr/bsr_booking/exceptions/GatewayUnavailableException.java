@@ -0,0 +1,11 @@
+package com.bsr.bsr_booking.exceptions;
+
+public class GatewayUnavailableException extends RuntimeException {
+    public GatewayUnavailableException(String message) {
+        super(message);
+    }
+
+    public GatewayUnavailableException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -1,16 +1,21 @@
 package com.bsr.bsr_booking.payments.razorpay;
 
+import com.bsr.bsr_booking.exceptions.GatewayUnavailableException;
 import com.bsr.bsr_booking.payments.razorpay.dto.PaymentRequest;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.nio.charset.StandardCharsets;
+
 @RestController
 @RequestMapping("/api/payments")
 @RequiredArgsConstructor
 public class PaymentController {
 
     private final PaymentService paymentService;
+    private final RazorpayWebhookVerifier webhookVerifier;
+    private final PaymentWebhookService paymentWebhookService;
 
     // STEP 1: Create Razorpay Order (earlier Stripe clientSecret)
     @PostMapping("/pay")
@@ -22,6 +27,9 @@ public class PaymentController {
             }
             String orderId = paymentService.createPaymentIntent(paymentRequest);
             return ResponseEntity.ok(orderId);
+        } catch (GatewayUnavailableException e) {
+            return ResponseEntity.status(503)
+                    .body("Error: " + e.getMessage());
         } catch (Exception e) {
             return ResponseEntity.status(500)
                     .body("Error: " + e.getMessage());
@@ -36,4 +44,17 @@ public class PaymentController {
         paymentService.updatePaymentBooking(paymentRequest);
         return ResponseEntity.ok().build();
     }
+
+    // Razorpay server-to-server callback; acknowledged as soon as the event is stored, applied asynchronously
+    @PostMapping("/webhook")
+    public ResponseEntity<Void> receiveWebhook(
+            @RequestBody byte[] payload,
+            @RequestHeader(value = "X-Razorpay-Signature", required = false) String signature) {
+
+        if (!webhookVerifier.isValid(payload, signature)) {
+            return ResponseEntity.badRequest().build();
+        }
+        paymentWebhookService.ingest(new String(payload, StandardCharsets.UTF_8));
+        return ResponseEntity.ok().build();
+    }
 }
@@ -0,0 +1,360 @@
+package com.bsr.bsr_booking.payments.razorpay;
+
+import com.bsr.bsr_booking.dtos.NotificationDTO;
+import com.bsr.bsr_booking.dtos.ReconciliationReport;
+import com.bsr.bsr_booking.entities.Booking;
+import com.bsr.bsr_booking.enums.BookingStatus;
+import com.bsr.bsr_booking.enums.PaymentStatus;
+import com.bsr.bsr_booking.exceptions.GatewayUnavailableException;
+import com.bsr.bsr_booking.payments.razorpay.dto.PaymentRequest;
+import com.bsr.bsr_booking.repositories.BookingRepository;
+import com.bsr.bsr_booking.services.AggregateVersions;
+import com.bsr.bsr_booking.services.CircuitBreaker;
+import com.bsr.bsr_booking.services.NotificationService;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Finds bookings stuck in PENDING or FAILED whose Razorpay order was actually paid (browser closed before the
+ * callback, webhook lost) and, conversely, pending bookings whose every attempt failed.
+ * Candidates are paged by id; each page is looked up at the gateway in parallel, at most
+ * reconciliation.concurrency calls at a time, and the corrections for the page are written with JDBC batch updates
+ * in one transaction. The updates are conditional on the current payment status, so a run overlapping a webhook
+ * or another node's run cannot apply a payment twice. A booking paid after its hold was released goes through
+ * {@link PaymentService#applyPaymentOutcome} under the row lock instead, like the callback and the webhook, so it is
+ * reinstated when the room is still free and otherwise kept for a refund.
+ */
+@Component
+@Slf4j
+public class PaymentReconciliationJob {
+
+    private final BookingRepository bookingRepository;
+    private final RazorpayGateway razorpayGateway;
+    private final JdbcTemplate jdbcTemplate;
+    private final NotificationService notificationService;
+    private final PaymentService paymentService;
+    private final AggregateVersions aggregateVersions;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    @Value("${reconciliation.enabled:true}")
+    private boolean enabled;
+
+    @Value("${reconciliation.page-size:100}")
+    private int pageSize;
+
+    @Value("${reconciliation.concurrency:4}")
+    private int concurrency;
+
+    @Value("${reconciliation.min-age-minutes:10}")
+    private long minAgeMinutes;
+
+    @Value("${reconciliation.lookback-hours:48}")
+    private long lookbackHours;
+
+    public PaymentReconciliationJob(BookingRepository bookingRepository,
+                                    RazorpayGateway razorpayGateway,
+                                    JdbcTemplate jdbcTemplate,
+                                    NotificationService notificationService,
+                                    PaymentService paymentService,
+                                    AggregateVersions aggregateVersions,
+                                    PlatformTransactionManager transactionManager,
+                                    MeterRegistry meterRegistry) {
+        this.bookingRepository = bookingRepository;
+        this.razorpayGateway = razorpayGateway;
+        this.jdbcTemplate = jdbcTemplate;
+        this.notificationService = notificationService;
+        this.paymentService = paymentService;
+        this.aggregateVersions = aggregateVersions;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.meterRegistry = meterRegistry;
+    }
+
+    // runs on the batch executor so a long reconciliation never holds a scheduler thread
+    @Async("batchJobExecutor")
+    @Scheduled(cron = "${reconciliation.cron:0 */30 * * * *}")
+    public void scheduledRun() {
+        if (!enabled || running.get()) {
+            return;
+        }
+        try {
+            ReconciliationReport report = run();
+            log.info("Payment reconciliation finished: {}", report);
+        } catch (IllegalStateException e) {
+            log.info("Skipping scheduled reconciliation: {}", e.getMessage());
+        }
+    }
+
+    public ReconciliationReport run() {
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("Reconciliation is already running");
+        }
+        try {
+            return reconcile();
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private ReconciliationReport reconcile() {
+        ReconciliationReport report = ReconciliationReport.builder().startedAt(LocalDateTime.now()).build();
+        long start = System.nanoTime();
+        // leave fresh bookings to the browser callback and the webhook
+        LocalDateTime createdBefore = LocalDateTime.now().minusMinutes(minAgeMinutes);
+        // an order still unpaid after the lookback was abandoned; polling it on every run only costs gateway calls
+        LocalDateTime createdAfter = LocalDateTime.now().minusHours(lookbackHours);
+
+        long afterId = 0;
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            while (true) {
+                List<Booking> page = bookingRepository.findReconciliationCandidates(afterId, createdAfter, createdBefore, PageRequest.of(0, pageSize));
+                if (page.isEmpty()) {
+                    break;
+                }
+                afterId = page.get(page.size() - 1).getId();
+                report.setScanned(report.getScanned() + page.size());
+
+                long lookupStart = System.nanoTime();
+                List<Lookup> lookups = lookUp(page, executor, report);
+                report.setGatewayMs(report.getGatewayMs() + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - lookupStart));
+
+                long applyStart = System.nanoTime();
+                apply(lookups, report);
+                report.setApplyMs(report.getApplyMs() + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - applyStart));
+
+                if (razorpayGateway.circuitState() == CircuitBreaker.State.OPEN) {
+                    log.warn("Payment gateway circuit is open, stopping reconciliation after booking {}", afterId);
+                    report.setAborted(true);
+                    break;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            report.setAborted(true);
+        }
+
+        report.setFinishedAt(LocalDateTime.now());
+        report.setDurationMs(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        meterRegistry.timer("reconciliation.run").record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        meterRegistry.counter("reconciliation.corrections", "type", "paid").increment(report.getMarkedPaid());
+        meterRegistry.counter("reconciliation.corrections", "type", "failed").increment(report.getMarkedFailed());
+        meterRegistry.counter("reconciliation.corrections", "type", "paid_after_release").increment(report.getPaidAfterRelease());
+        return report;
+    }
+
+    private List<Lookup> lookUp(List<Booking> page, ExecutorService executor, ReconciliationReport report) throws InterruptedException {
+        Semaphore permits = new Semaphore(concurrency);
+        List<Future<List<RazorpayGateway.OrderPayment>>> futures = new ArrayList<>(page.size());
+        for (Booking booking : page) {
+            permits.acquire();
+            futures.add(executor.submit(() -> {
+                try {
+                    return razorpayGateway.fetchOrderPayments(booking.getPaymentOrderId());
+                } finally {
+                    permits.release();
+                }
+            }));
+        }
+
+        List<Lookup> lookups = new ArrayList<>(page.size());
+        for (int i = 0; i < page.size(); i++) {
+            try {
+                lookups.add(new Lookup(page.get(i), futures.get(i).get()));
+            } catch (ExecutionException e) {
+                report.setGatewayErrors(report.getGatewayErrors() + 1);
+                if (!(e.getCause() instanceof GatewayUnavailableException)) {
+                    log.warn("Could not look up order {}: {}", page.get(i).getPaymentOrderId(), e.getCause().getMessage());
+                }
+            }
+        }
+        return lookups;
+    }
+
+    private void apply(List<Lookup> lookups, ReconciliationReport report) {
+        List<Lookup> paid = new ArrayList<>();
+        List<Lookup> released = new ArrayList<>();
+        List<Lookup> failed = new ArrayList<>();
+        for (Lookup lookup : lookups) {
+            if (lookup.captured() != null && lookup.booking().getBookingStatus() == BookingStatus.CANCELLED) {
+                released.add(lookup);
+            } else if (lookup.captured() != null) {
+                paid.add(lookup);
+            } else if (lookup.allFailed() && lookup.booking().getPaymentStatus() == PaymentStatus.PENDING) {
+                failed.add(lookup);
+            } else {
+                report.setUnchanged(report.getUnchanged() + 1);
+            }
+        }
+        for (Lookup lookup : released) {
+            applyReleased(lookup, report);
+        }
+        if (paid.isEmpty() && failed.isEmpty()) {
+            return;
+        }
+
+        List<Booking> changed = transactionTemplate.execute(status -> {
+            List<Booking> updated = new ArrayList<>();
+            LocalDateTime now = LocalDateTime.now();
+
+            // a hold released since the page was read is left alone; the next run takes it through applyReleased
+            int[] paidRows = batchUpdate("""
+                            UPDATE bookings
+                            SET payment_status = 'COMPLETED', booking_status = 'BOOKED', hold_expires_at = NULL
+                            WHERE id = ? AND payment_status IN ('PENDING', 'FAILED') AND booking_status <> 'CANCELLED'
+                            """,
+                    paid, (ps, lookup) -> ps.setLong(1, lookup.booking().getId()));
+
+            List<Lookup> applied = new ArrayList<>();
+            for (int i = 0; i < paid.size(); i++) {
+                if (rowChanged(paidRows[i])) {
+                    applied.add(paid.get(i));
+                }
+            }
+
+            batchUpdate("""
+                            INSERT INTO payments (transaction_id, amount, payment_gateway, payment_date, payment_status,
+                                                  booking_reference, user_id, failure_reason)
+                            SELECT ?, ?, 'RAZORPAY', ?, 'COMPLETED', ?, ?, ? FROM DUAL
+                            WHERE NOT EXISTS (SELECT 1 FROM payments WHERE transaction_id = ?)
+                            """,
+                    applied, (ps, lookup) -> {
+                        Booking booking = lookup.booking();
+                        RazorpayGateway.OrderPayment payment = lookup.captured();
+                        ps.setString(1, payment.id());
+                        ps.setBigDecimal(2, BigDecimal.valueOf(payment.amount(), 2));
+                        ps.setTimestamp(3, Timestamp.valueOf(now));
+                        ps.setString(4, booking.getBookingReference());
+                        ps.setObject(5, booking.getUser() != null ? booking.getUser().getId() : null);
+                        ps.setString(6, "Found by reconciliation");
+                        ps.setString(7, payment.id());
+                    });
+
+            List<Long> confirmIds = new ArrayList<>();
+            for (Lookup lookup : applied) {
+                updated.add(lookup.booking());
+                confirmIds.add(lookup.booking().getId());
+                report.setMarkedPaid(report.getMarkedPaid() + 1);
+            }
+            // re-read inside the transaction: the page was loaded outside it and user preferences load lazily
+            for (Booking booking : bookingRepository.findAllById(confirmIds)) {
+                if (booking.getUser() != null) {
+                    notificationService.notifyUser(booking.getUser(), confirmation(booking));
+                }
+            }
+            report.setUnchanged(report.getUnchanged() + paid.size() - applied.size());
+
+            int[] failedRows = batchUpdate(
+                    "UPDATE bookings SET payment_status = 'FAILED' WHERE id = ? AND payment_status = 'PENDING'",
+                    failed, (ps, lookup) -> ps.setLong(1, lookup.booking().getId()));
+            for (int i = 0; i < failed.size(); i++) {
+                if (rowChanged(failedRows[i])) {
+                    updated.add(failed.get(i).booking());
+                    report.setMarkedFailed(report.getMarkedFailed() + 1);
+                } else {
+                    report.setUnchanged(report.getUnchanged() + 1);
+                }
+            }
+            return updated;
+        });
+
+        if (changed != null) {
+            for (Booking booking : changed) {
+                aggregateVersions.bookingChanged(
+                        booking.getRoom() != null ? booking.getRoom().getId() : null,
+                        booking.getUser() != null ? booking.getUser().getEmail() : null);
+            }
+        }
+    }
+
+    // rare enough to take one row lock and transaction per booking
+    private void applyReleased(Lookup lookup, ReconciliationReport report) {
+        String reference = lookup.booking().getBookingReference();
+        RazorpayGateway.OrderPayment payment = lookup.captured();
+        Booking outcome;
+        try {
+            outcome = transactionTemplate.execute(status -> {
+                Booking booking = bookingRepository.lockByBookingReference(reference).orElse(null);
+                if (booking == null || booking.getPaymentStatus() == PaymentStatus.COMPLETED) {
+                    return null;
+                }
+                paymentService.applyPaymentOutcome(booking, new PaymentRequest(
+                        reference, BigDecimal.valueOf(payment.amount(), 2), payment.id(), true, null));
+                return booking.getPaymentStatus() == PaymentStatus.COMPLETED ? booking : null;
+            });
+        } catch (RuntimeException e) {
+            log.warn("Could not apply payment {} to released booking {}: {}", payment.id(), reference, e.getMessage());
+            outcome = null;
+        }
+
+        if (outcome == null) {
+            report.setUnchanged(report.getUnchanged() + 1);
+        } else if (outcome.getBookingStatus() == BookingStatus.CANCELLED) {
+            report.setPaidAfterRelease(report.getPaidAfterRelease() + 1);
+        } else {
+            log.info("Booking {} was paid ({}) after its hold was released and has been reinstated", reference, payment.id());
+            report.setMarkedPaid(report.getMarkedPaid() + 1);
+        }
+    }
+
+    private <T> int[] batchUpdate(String sql, List<T> items, ParameterizedPreparedStatementSetter<T> setter) {
+        if (items.isEmpty()) {
+            return new int[0];
+        }
+        // one JDBC batch per page
+        return jdbcTemplate.batchUpdate(sql, items, items.size(), setter)[0];
+    }
+
+    // drivers that rewrite batches report SUCCESS_NO_INFO instead of a row count
+    private static boolean rowChanged(int count) {
+        return count > 0 || count == Statement.SUCCESS_NO_INFO;
+    }
+
+    private NotificationDTO confirmation(Booking booking) {
+        return NotificationDTO.builder()
+                .recipient(booking.getUser().getEmail())
+                .subject("Payment Received - " + booking.getBookingReference())
+                .body("Dear " + booking.getUser().getFirstName() + " " + booking.getUser().getLastName() + ",\n\n"
+                        + "We have received your payment for booking " + booking.getBookingReference()
+                        + " (" + booking.getCheckInDate() + " to " + booking.getCheckOutDate() + ").\n"
+                        + "Your booking is confirmed.\n\n"
+                        + "Best regards,\n"
+                        + "Bhagat Singh Resort Team")
+                .bookingReference(booking.getBookingReference())
+                .build();
+    }
+
+    private record Lookup(Booking booking, List<RazorpayGateway.OrderPayment> payments) {
+
+        RazorpayGateway.OrderPayment captured() {
+            return payments.stream().filter(RazorpayGateway.OrderPayment::isCaptured).findFirst().orElse(null);
+        }
+
+        boolean allFailed() {
+            return !payments.isEmpty() && payments.stream().allMatch(RazorpayGateway.OrderPayment::isFailed);
+        }
+    }
+}
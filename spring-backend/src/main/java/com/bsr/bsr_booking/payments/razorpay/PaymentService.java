@@ -3,21 +3,25 @@ package com.bsr.bsr_booking.payments.razorpay;
 import com.bsr.bsr_booking.dtos.NotificationDTO;
 import com.bsr.bsr_booking.entities.Booking;
 import com.bsr.bsr_booking.entities.PaymentEntity;
+import com.bsr.bsr_booking.enums.BookingStatus;
 import com.bsr.bsr_booking.enums.NotificationType;
 import com.bsr.bsr_booking.enums.PaymentGateway;
 import com.bsr.bsr_booking.enums.PaymentStatus;
+import com.bsr.bsr_booking.exceptions.InvalidBookingStateAndDateException;
 import com.bsr.bsr_booking.exceptions.NotFoundException;
 import com.bsr.bsr_booking.payments.razorpay.dto.PaymentRequest;
 import com.bsr.bsr_booking.repositories.BookingRepository;
 import com.bsr.bsr_booking.repositories.PaymentRepository;
+import com.bsr.bsr_booking.services.AggregateVersions;
+import com.bsr.bsr_booking.services.AvailabilityCache;
 import com.bsr.bsr_booking.services.NotificationService;
-import com.razorpay.Order;
-import com.razorpay.RazorpayClient;
+import com.bsr.bsr_booking.services.RequestCoalescer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.json.JSONObject;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
@@ -30,12 +34,10 @@ public class PaymentService {
     private final BookingRepository bookingRepository;
     private final PaymentRepository paymentRepository;
     private final NotificationService notificationService;
-
-    @Value("${razorpay.key.id}")
-    private String razorpayKeyId;
-
-    @Value("${razorpay.key.secret}")
-    private String razorpayKeySecret;
+    private final AvailabilityCache availabilityCache;
+    private final AggregateVersions aggregateVersions;
+    private final RazorpayGateway razorpayGateway;
+    private final RequestCoalescer requestCoalescer;
 
     /**
      * STEP 1:
@@ -59,6 +61,10 @@ public class PaymentService {
             throw new RuntimeException("Payment already completed for this booking");
         }
 
+        if (booking.getBookingStatus() == BookingStatus.CANCELLED) {
+            throw new InvalidBookingStateAndDateException("This booking is no longer held, please book again");
+        }
+
         // Use booking's total price if amount is null or zero
         BigDecimal amountToUse = paymentRequest.getAmount();
         if (amountToUse == null || amountToUse.compareTo(BigDecimal.ZERO) <= 0) {
@@ -66,52 +72,84 @@ public class PaymentService {
             amountToUse = booking.getTotalPrice();
         }
 
-        try {
-            log.info("Initializing Razorpay client with key: {}", razorpayKeyId);
-            RazorpayClient client =
-                    new RazorpayClient(razorpayKeyId, razorpayKeySecret);
+        long amountInPaise = amountToUse
+                .multiply(BigDecimal.valueOf(100))
+                .longValue();
 
-            int amountInPaise = amountToUse
-                    .multiply(BigDecimal.valueOf(100))
-                    .intValue();
-
-            log.info("Creating Razorpay order with amount: {} paise ({} INR)", amountInPaise, amountToUse);
+        // a double-click or page reload must not open a second gateway order for the same booking
+        if (isReusable(booking, amountInPaise)) {
+            log.info("Reusing Razorpay order {} for booking {}", booking.getPaymentOrderId(), booking.getBookingReference());
+            return booking.getPaymentOrderId();
+        }
 
-            JSONObject orderRequest = new JSONObject();
-            orderRequest.put("amount", amountInPaise);
-            orderRequest.put("currency", "INR");
-            orderRequest.put("receipt", booking.getBookingReference());
-            orderRequest.put("payment_capture", 1); // Auto capture payment
+        String reference = booking.getBookingReference();
+        return requestCoalescer.execute("payment-order:" + reference + ":" + amountInPaise,
+                () -> createOrReuseOrder(reference, amountInPaise));
+    }
 
-            Order order = client.orders.create(orderRequest);
+    private String createOrReuseOrder(String bookingReference, long amountInPaise) {
+        // re-read: a request that finished just before this one may already have recorded an order
+        Booking booking = bookingRepository.findByBookingReference(bookingReference)
+                .orElseThrow(() -> new NotFoundException("Booking not found"));
+        if (isReusable(booking, amountInPaise)) {
+            return booking.getPaymentOrderId();
+        }
 
-            String orderId = order.get("id");
-            log.info("Razorpay order created successfully: {}", orderId);
+        log.info("Creating Razorpay order with amount: {} paise", amountInPaise);
+        String orderId = razorpayGateway.createOrder(amountInPaise, "INR", bookingReference);
+        log.info("Razorpay order created successfully: {}", orderId);
+
+        int updated = bookingRepository.recordPaymentOrder(booking.getId(), booking.getPaymentOrderId(), orderId, amountInPaise);
+        if (updated == 0) {
+            // another node raced us; hand out its order so every client pays against the same one
+            Booking current = bookingRepository.findByBookingReference(bookingReference)
+                    .orElseThrow(() -> new NotFoundException("Booking not found"));
+            log.warn("Order {} for booking {} lost the race to {}, discarding it", orderId, bookingReference, current.getPaymentOrderId());
+            return current.getPaymentOrderId();
+        }
 
-            // 🔥 Send order_id to frontend
-            return orderId;
+        // 🔥 Send order_id to frontend
+        return orderId;
+    }
 
-        } catch (com.razorpay.RazorpayException e) {
-            log.error("Razorpay API error: {}", e.getMessage(), e);
-            throw new RuntimeException("Razorpay error: " + e.getMessage());
-        } catch (Exception e) {
-            log.error("Error creating Razorpay order: {}", e.getMessage(), e);
-            throw new RuntimeException("Error creating Razorpay order: " + e.getMessage());
-        }
+    private boolean isReusable(Booking booking, long amountInPaise) {
+        return booking.getPaymentOrderId() != null
+                && booking.getPaymentOrderAmount() != null
+                && booking.getPaymentOrderAmount() == amountInPaise;
     }
 
     /**
      * STEP 2:
-     * Update booking & payment after Razorpay response
+     * Update booking & payment after Razorpay response.
+     * The confirmation email is written to the notification outbox in the same transaction.
      */
+    @Transactional
     public void updatePaymentBooking(PaymentRequest paymentRequest) {
 
         log.info("Updating payment status for booking");
 
         Booking booking = bookingRepository
-                .findByBookingReference(paymentRequest.getBookingReference())
+                .lockByBookingReference(paymentRequest.getBookingReference())
                 .orElseThrow(() -> new NotFoundException("Booking not found"));
 
+        applyPaymentOutcome(booking, paymentRequest);
+    }
+
+    /**
+     * Records a payment result exactly once. Shared by the browser callback and the webhook processor;
+     * callers hold the booking row lock, so a repeated callback and a webhook for the same payment cannot both apply.
+     */
+    void applyPaymentOutcome(Booking booking, PaymentRequest paymentRequest) {
+        String transactionId = paymentRequest.getTransactionId();
+        if (transactionId != null && paymentRepository.existsByTransactionId(transactionId)) {
+            log.info("Payment {} for booking {} already recorded, ignoring repeat", transactionId, booking.getBookingReference());
+            return;
+        }
+        if (booking.getPaymentStatus() == PaymentStatus.COMPLETED) {
+            log.info("Booking {} is already paid, ignoring payment {}", booking.getBookingReference(), transactionId);
+            return;
+        }
+
         PaymentEntity payment = new PaymentEntity();
         payment.setPaymentGateway(PaymentGateway.RAZORPAY);
         payment.setAmount(paymentRequest.getAmount());
@@ -126,10 +164,30 @@ public class PaymentService {
                 .bookingReference(paymentRequest.getBookingReference())
                 .build();
 
-        if (paymentRequest.isSuccess()) {
+        if (paymentRequest.isSuccess() && booking.getBookingStatus() == BookingStatus.CANCELLED
+                && !bookingRepository.isRoomAvailable(booking.getRoom().getId(), booking.getCheckInDate(), booking.getCheckOutDate())) {
+            // paid after the hold expired and the room went to someone else; keep the money on record for a refund
+            log.error("Payment {} arrived for released booking {} whose room is taken, refund required",
+                    paymentRequest.getTransactionId(), booking.getBookingReference());
+            payment.setPaymentStatus(PaymentStatus.COMPLETED);
+            payment.setFailureReason("Hold expired before payment, room no longer available");
+            booking.setPaymentStatus(PaymentStatus.COMPLETED);
+
+            notification.setSubject("Payment Received - Refund Pending - " + booking.getBookingReference());
+            notification.setBody("Dear " + booking.getUser().getFirstName() + " " + booking.getUser().getLastName() + ",\n\n"
+                    + "We received your payment (transaction ID " + paymentRequest.getTransactionId() + ") for booking "
+                    + booking.getBookingReference() + ", but it arrived after the room hold expired and the room is no longer "
+                    + "available for " + booking.getCheckInDate() + " to " + booking.getCheckOutDate() + ".\n\n"
+                    + "A full refund of ₹" + paymentRequest.getAmount() + " is pending and will reach your original payment method. "
+                    + "We are sorry for the inconvenience.\n\n"
+                    + "Best regards,\n"
+                    + "Bhagat Singh Resort Team");
+
+        } else if (paymentRequest.isSuccess()) {
             payment.setPaymentStatus(PaymentStatus.COMPLETED);
             booking.setPaymentStatus(PaymentStatus.COMPLETED);
             booking.setBookingStatus(com.bsr.bsr_booking.enums.BookingStatus.BOOKED);
+            booking.setHoldExpiresAt(null);
 
             // Send detailed confirmation email with booking details
             notification.setSubject("Booking Confirmation - " + booking.getBookingReference());
@@ -166,6 +224,25 @@ public class PaymentService {
 
         paymentRepository.save(payment);
         bookingRepository.save(booking);
-        notificationService.sendEmail(notification);
+        notificationService.notifyUser(booking.getUser(), notification);
+
+        afterCommit(() -> {
+            availabilityCache.invalidateOverlapping(booking.getCheckInDate(), booking.getCheckOutDate());
+            aggregateVersions.bookingChanged(booking.getRoom().getId(), booking.getUser().getEmail());
+        });
+    }
+
+    // caches must not be refreshed before the new booking state is visible to other readers
+    private void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
     }
 }
@@ -0,0 +1,227 @@
+package com.bsr.bsr_booking.payments.razorpay;
+
+import com.bsr.bsr_booking.entities.Booking;
+import com.bsr.bsr_booking.entities.PaymentWebhookEvent;
+import com.bsr.bsr_booking.enums.WebhookEventStatus;
+import com.bsr.bsr_booking.payments.razorpay.dto.PaymentRequest;
+import com.bsr.bsr_booking.repositories.BookingRepository;
+import com.bsr.bsr_booking.repositories.PaymentWebhookEventRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTransientException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Razorpay webhook ingestion. The controller only verifies the signature and calls ingest, which stores the
+ * raw event; a unique index on the payment id turns Razorpay's redeliveries into no-ops. A scheduled
+ * processor then applies stored events in batches through the same path as the browser callback.
+ * An event that fails on a transient database error (timeout, lock wait, lost connection) stays RECEIVED and is
+ * retried with a growing delay until payments.webhook.max-attempts; any other failure marks it FAILED.
+ */
+@Service
+@Slf4j
+public class PaymentWebhookService {
+
+    private static final Set<String> HANDLED_EVENTS = Set.of("payment.captured", "payment.failed");
+
+    private final PaymentWebhookEventRepository eventRepository;
+    private final BookingRepository bookingRepository;
+    private final PaymentService paymentService;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${payments.webhook.batch-size:50}")
+    private int batchSize;
+
+    @Value("${payments.webhook.max-attempts:5}")
+    private int maxAttempts;
+
+    @Value("${payments.webhook.retry-backoff-seconds:30}")
+    private long retryBackoffSeconds;
+
+    public PaymentWebhookService(PaymentWebhookEventRepository eventRepository,
+                                 BookingRepository bookingRepository,
+                                 PaymentService paymentService,
+                                 PlatformTransactionManager transactionManager,
+                                 MeterRegistry meterRegistry) {
+        this.eventRepository = eventRepository;
+        this.bookingRepository = bookingRepository;
+        this.paymentService = paymentService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.meterRegistry = meterRegistry;
+    }
+
+    // Stores a verified event for later processing; false when it is a redelivery or an event type we ignore
+    public boolean ingest(String payload) {
+        String eventType;
+        JSONObject payment;
+        try {
+            JSONObject event = new JSONObject(payload);
+            eventType = event.optString("event");
+            if (!HANDLED_EVENTS.contains(eventType)) {
+                count("ignored");
+                return false;
+            }
+            payment = paymentEntity(event);
+            payment.getString("id");
+        } catch (JSONException e) {
+            // signed but unreadable; redelivering it would not help
+            log.error("Malformed payment webhook: {}", e.getMessage());
+            count("malformed");
+            return false;
+        }
+
+        try {
+            eventRepository.save(PaymentWebhookEvent.builder()
+                    .eventType(eventType)
+                    .transactionId(payment.getString("id"))
+                    .orderId(payment.optString("order_id", null))
+                    .payload(payload)
+                    .build());
+        } catch (DataIntegrityViolationException e) {
+            log.info("Duplicate {} webhook for payment {}", eventType, payment.optString("id"));
+            count("duplicate");
+            return false;
+        }
+        count("accepted");
+        return true;
+    }
+
+    @Scheduled(fixedDelayString = "${payments.webhook.poll-interval-ms:1000}")
+    public void processReceived() {
+        try {
+            transactionTemplate.executeWithoutResult(status -> processBatch());
+        } catch (RuntimeException e) {
+            // one bad event rolled back the batch; go through them one by one so it can be set aside
+            log.warn("Webhook batch failed, retrying events individually: {}", e.getMessage());
+            processIndividually();
+        }
+    }
+
+    private void processBatch() {
+        List<PaymentWebhookEvent> batch = eventRepository.lockReceivedBatch(LocalDateTime.now(), batchSize);
+        for (PaymentWebhookEvent event : batch) {
+            apply(event);
+        }
+        eventRepository.saveAll(batch);
+    }
+
+    private void processIndividually() {
+        for (int i = 0; i < batchSize; i++) {
+            Long[] current = new Long[1];
+            try {
+                Boolean processed = transactionTemplate.execute(status -> {
+                    List<PaymentWebhookEvent> next = eventRepository.lockReceivedBatch(LocalDateTime.now(), 1);
+                    if (next.isEmpty()) {
+                        return false;
+                    }
+                    PaymentWebhookEvent event = next.get(0);
+                    current[0] = event.getId();
+                    apply(event);
+                    eventRepository.save(event);
+                    return true;
+                });
+                if (!Boolean.TRUE.equals(processed)) {
+                    return;
+                }
+            } catch (RuntimeException e) {
+                if (current[0] == null) {
+                    throw e;
+                }
+                markFailed(current[0], e);
+            }
+        }
+    }
+
+    private void apply(PaymentWebhookEvent event) {
+        event.setAttempts(event.getAttempts() + 1);
+        Optional<Booking> booking = event.getOrderId() == null
+                ? Optional.empty()
+                : bookingRepository.lockByPaymentOrderId(event.getOrderId());
+        if (booking.isEmpty()) {
+            finish(event, WebhookEventStatus.IGNORED, "No booking for order " + event.getOrderId());
+            return;
+        }
+
+        JSONObject payment = paymentEntity(new JSONObject(event.getPayload()));
+        boolean captured = "payment.captured".equals(event.getEventType());
+        PaymentRequest request = new PaymentRequest(
+                booking.get().getBookingReference(),
+                BigDecimal.valueOf(payment.optLong("amount"), 2),
+                event.getTransactionId(),
+                captured,
+                captured ? null : payment.optString("error_description", "Payment failed"));
+
+        paymentService.applyPaymentOutcome(booking.get(), request);
+        finish(event, WebhookEventStatus.PROCESSED, null);
+    }
+
+    private void markFailed(Long eventId, RuntimeException e) {
+        transactionTemplate.executeWithoutResult(status -> eventRepository.findById(eventId).ifPresent(event -> {
+            int attempts = event.getAttempts() + 1;
+            event.setAttempts(attempts);
+            if (isTransient(e) && attempts < maxAttempts) {
+                long delaySeconds = retryBackoffSeconds * attempts;
+                log.warn("Webhook event {} hit a transient error (attempt {}), retrying in {}s: {}",
+                        eventId, attempts, delaySeconds, e.getMessage());
+                event.setNextAttemptAt(LocalDateTime.now().plusSeconds(delaySeconds));
+                event.setLastError(truncate(e.getMessage()));
+                meterRegistry.counter("payments.webhook.applied", "result", "retry").increment();
+            } else {
+                log.error("Webhook event {} could not be applied after {} attempt(s): {}", eventId, attempts, e.getMessage(), e);
+                finish(event, WebhookEventStatus.FAILED, e.getMessage());
+            }
+            eventRepository.save(event);
+        }));
+    }
+
+    // failures that say nothing about the event itself, so applying it again later can succeed
+    static boolean isTransient(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof TransientDataAccessException
+                    || cause instanceof RecoverableDataAccessException
+                    || cause instanceof CannotCreateTransactionException
+                    || cause instanceof SQLTransientException
+                    || cause instanceof SQLRecoverableException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void finish(PaymentWebhookEvent event, WebhookEventStatus status, String error) {
+        event.setStatus(status);
+        event.setProcessedAt(LocalDateTime.now());
+        event.setLastError(truncate(error));
+        meterRegistry.counter("payments.webhook.applied", "result", status.name().toLowerCase()).increment();
+    }
+
+    private static String truncate(String error) {
+        return error == null || error.length() <= 1000 ? error : error.substring(0, 1000);
+    }
+
+    private JSONObject paymentEntity(JSONObject event) {
+        return event.getJSONObject("payload").getJSONObject("payment").getJSONObject("entity");
+    }
+
+    private void count(String result) {
+        meterRegistry.counter("payments.webhook.events", "result", result).increment();
+    }
+}
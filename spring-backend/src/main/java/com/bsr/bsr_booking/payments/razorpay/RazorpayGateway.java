@@ -0,0 +1,170 @@
+package com.bsr.bsr_booking.payments.razorpay;
+
+import com.bsr.bsr_booking.exceptions.GatewayUnavailableException;
+import com.bsr.bsr_booking.services.CircuitBreaker;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Shared client for the Razorpay REST API.
+ * One HttpClient is kept for the life of the application so TLS sessions and keep-alive connections are
+ * reused across payments, every request carries an explicit timeout, and a circuit breaker makes callers
+ * fail fast with GatewayUnavailableException while Razorpay is unreachable or returning 5xx.
+ */
+@Component
+@Slf4j
+public class RazorpayGateway {
+
+    private final HttpClient httpClient;
+    private final String baseUrl;
+    private final String authorization;
+    private final Duration readTimeout;
+    private final CircuitBreaker circuitBreaker;
+    private final MeterRegistry meterRegistry;
+    private final Counter rejected;
+
+    public RazorpayGateway(@Value("${razorpay.key.id}") String keyId,
+                           @Value("${razorpay.key.secret}") String keySecret,
+                           @Value("${razorpay.api.base-url:https://api.razorpay.com}") String baseUrl,
+                           @Value("${razorpay.api.connect-timeout-ms:2000}") long connectTimeoutMs,
+                           @Value("${razorpay.api.read-timeout-ms:5000}") long readTimeoutMs,
+                           @Value("${razorpay.circuit.failure-threshold:5}") int failureThreshold,
+                           @Value("${razorpay.circuit.open-seconds:30}") long openSeconds,
+                           MeterRegistry meterRegistry) {
+        this.httpClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+                .build();
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        this.authorization = "Basic " + Base64.getEncoder()
+                .encodeToString((keyId + ":" + keySecret).getBytes(StandardCharsets.UTF_8));
+        this.readTimeout = Duration.ofMillis(readTimeoutMs);
+        this.circuitBreaker = new CircuitBreaker("razorpay", failureThreshold, openSeconds, TimeUnit.SECONDS);
+        this.meterRegistry = meterRegistry;
+        this.rejected = Counter.builder("razorpay.circuit.rejected").register(meterRegistry);
+        Gauge.builder("razorpay.circuit.state", circuitBreaker, cb -> cb.state().ordinal()).register(meterRegistry);
+    }
+
+    // Creates an auto-captured order and returns its id
+    public String createOrder(long amountInPaise, String currency, String receipt) {
+        JSONObject orderRequest = new JSONObject();
+        orderRequest.put("amount", amountInPaise);
+        orderRequest.put("currency", currency);
+        orderRequest.put("receipt", receipt);
+        orderRequest.put("payment_capture", 1);
+
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(baseUrl + "/v1/orders"))
+                .POST(HttpRequest.BodyPublishers.ofString(orderRequest.toString()));
+        return call("orders.create", request).getString("id");
+    }
+
+    // Payment attempts made against an order, newest first as returned by Razorpay
+    public List<OrderPayment> fetchOrderPayments(String orderId) {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(baseUrl + "/v1/orders/" + orderId + "/payments")).GET();
+        JSONArray items = call("orders.payments", request).optJSONArray("items");
+        List<OrderPayment> payments = new ArrayList<>();
+        if (items != null) {
+            for (int i = 0; i < items.length(); i++) {
+                JSONObject item = items.getJSONObject(i);
+                payments.add(new OrderPayment(
+                        item.getString("id"),
+                        item.optString("status"),
+                        item.optLong("amount"),
+                        item.optString("error_description", null)));
+            }
+        }
+        return payments;
+    }
+
+    public record OrderPayment(String id, String status, long amount, String errorDescription) {
+
+        public boolean isCaptured() {
+            return "captured".equals(status);
+        }
+
+        public boolean isFailed() {
+            return "failed".equals(status);
+        }
+    }
+
+    public CircuitBreaker.State circuitState() {
+        return circuitBreaker.state();
+    }
+
+    private JSONObject call(String operation, HttpRequest.Builder request) {
+        if (!circuitBreaker.tryAcquire()) {
+            rejected.increment();
+            throw new GatewayUnavailableException("Payment gateway is temporarily unavailable, please try again shortly");
+        }
+
+        long start = System.nanoTime();
+        String outcome = "error";
+        try {
+            HttpResponse<String> response = httpClient.send(request
+                            .timeout(readTimeout)
+                            .header("Authorization", authorization)
+                            .header("Content-Type", "application/json")
+                            .build(),
+                    HttpResponse.BodyHandlers.ofString());
+
+            int status = response.statusCode();
+            if (status >= 500 || status == 429) {
+                circuitBreaker.onFailure();
+                outcome = "unavailable";
+                throw new GatewayUnavailableException("Razorpay responded with HTTP " + status);
+            }
+
+            // a 4xx is our request's fault, the gateway itself is healthy
+            circuitBreaker.onSuccess();
+            if (status >= 400) {
+                outcome = "rejected";
+                throw new RuntimeException("Razorpay error: " + errorDescription(response.body(), status));
+            }
+            outcome = "success";
+            return new JSONObject(response.body());
+
+        } catch (IOException e) {
+            circuitBreaker.onFailure();
+            outcome = "io_error";
+            log.error("Razorpay {} failed: {}", operation, e.toString());
+            throw new GatewayUnavailableException("Payment gateway did not respond, please try again shortly", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            circuitBreaker.onFailure();
+            throw new GatewayUnavailableException("Interrupted while calling the payment gateway", e);
+        } finally {
+            Timer.builder("razorpay.request.latency")
+                    .tag("operation", operation)
+                    .tag("outcome", outcome)
+                    .register(meterRegistry)
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private String errorDescription(String body, int status) {
+        try {
+            return new JSONObject(body).getJSONObject("error").optString("description", "HTTP " + status);
+        } catch (JSONException e) {
+            return "HTTP " + status;
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.bsr.bsr_booking.payments.razorpay;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+
+/**
+ * Checks X-Razorpay-Signature, the hex HMAC-SHA256 of the raw request body keyed with the webhook secret.
+ */
+@Component
+@Slf4j
+public class RazorpayWebhookVerifier {
+
+    private final String webhookSecret;
+
+    public RazorpayWebhookVerifier(@Value("${razorpay.webhook.secret:}") String webhookSecret) {
+        this.webhookSecret = webhookSecret;
+        if (webhookSecret.isBlank()) {
+            log.warn("razorpay.webhook.secret is not set, all payment webhooks will be rejected");
+        }
+    }
+
+    public boolean isValid(byte[] payload, String signature) {
+        if (webhookSecret.isBlank() || signature == null || signature.isBlank()) {
+            return false;
+        }
+        byte[] expected = sign(payload).getBytes(StandardCharsets.US_ASCII);
+        // constant time, so the signature cannot be guessed byte by byte
+        return MessageDigest.isEqual(expected, signature.trim().toLowerCase().getBytes(StandardCharsets.US_ASCII));
+    }
+
+    String sign(byte[] payload) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(webhookSecret.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+            return HexFormat.of().formatHex(mac.doFinal(payload));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 unavailable", e);
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.bsr.bsr_booking.payments.razorpay;
+
+import com.bsr.bsr_booking.dtos.ReconciliationReport;
+import com.bsr.bsr_booking.dtos.Response;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/admin/reconciliation")
+@RequiredArgsConstructor
+public class ReconciliationController {
+
+    private final PaymentReconciliationJob reconciliationJob;
+
+    // Runs a reconciliation pass now and returns its report; the scheduled run is unaffected
+    @PostMapping("/run")
+    @PreAuthorize("hasAuthority('ADMIN')")
+    public ResponseEntity<Response> run() {
+        try {
+            ReconciliationReport report = reconciliationJob.run();
+            return ResponseEntity.ok(Response.builder()
+                    .status(200)
+                    .message(report.isAborted() ? "Reconciliation stopped early, payment gateway unavailable" : "success")
+                    .reconciliation(report)
+                    .build());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(409).body(Response.builder()
+                    .status(409)
+                    .message(e.getMessage())
+                    .build());
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.bsr.bsr_booking.repositories;
+
+import com.bsr.bsr_booking.entities.AgentSessionSnapshot;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+
+public interface AgentSessionSnapshotRepository extends JpaRepository<AgentSessionSnapshot, String> {
+
+    // no read before the write; the newest snapshot of a session simply replaces the row
+    @Modifying
+    @Query(value = """
+            INSERT INTO agent_session_snapshots (session_id, payload, updated_at)
+            VALUES (:sessionId, :payload, :updatedAt)
+            ON DUPLICATE KEY UPDATE payload = VALUES(payload), updated_at = VALUES(updated_at)
+            """, nativeQuery = true)
+    void upsert(@Param("sessionId") String sessionId, @Param("payload") String payload, @Param("updatedAt") LocalDateTime updatedAt);
+
+    @Modifying
+    @Query("DELETE FROM AgentSessionSnapshot s WHERE s.updatedAt < :cutoff")
+    int deleteUpdatedBefore(@Param("cutoff") LocalDateTime cutoff);
+}
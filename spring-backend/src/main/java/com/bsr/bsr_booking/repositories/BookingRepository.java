@@ -1,11 +1,17 @@
 package com.bsr.bsr_booking.repositories;
 
 import com.bsr.bsr_booking.entities.Booking;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -16,6 +22,15 @@ public interface BookingRepository extends JpaRepository<Booking, Long> {
 
     Optional<Booking> findByBookingReference(String bookingReference);
 
+    // row-locked reads for applying payment results; concurrent callbacks for one booking queue up behind each other
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT b FROM Booking b WHERE b.bookingReference = :bookingReference")
+    Optional<Booking> lockByBookingReference(@Param("bookingReference") String bookingReference);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT b FROM Booking b WHERE b.paymentOrderId = :orderId")
+    Optional<Booking> lockByPaymentOrderId(@Param("orderId") String orderId);
+
 
     @Query("""
                SELECT CASE WHEN COUNT(b) = 0 THEN true ELSE false END
@@ -36,4 +51,92 @@ public interface BookingRepository extends JpaRepository<Booking, Long> {
               ORDER BY b.checkInDate ASC
             """)
     List<Booking> findBookingsByRoomId(@Param("roomId") Long roomId);
+
+    interface HoldView {
+        Long getId();
+
+        LocalDateTime getHoldExpiresAt();
+    }
+
+    // unpaid holds still reserving a room, used to rebuild the in-memory expiry queue at startup
+    @Query("""
+            SELECT b.id AS id, b.holdExpiresAt AS holdExpiresAt FROM Booking b
+            WHERE b.holdExpiresAt IS NOT NULL
+              AND b.bookingStatus = 'BOOKED'
+              AND b.paymentStatus <> 'COMPLETED'
+            """)
+    List<HoldView> findActiveHolds();
+
+    @Query("""
+            SELECT b.id FROM Booking b
+            WHERE b.holdExpiresAt <= :now
+              AND b.bookingStatus = 'BOOKED'
+              AND b.paymentStatus <> 'COMPLETED'
+            ORDER BY b.holdExpiresAt
+            """)
+    List<Long> findExpiredHoldIds(@Param("now") LocalDateTime now, Pageable pageable);
+
+    // re-checks expiry under lock: a payment that landed meanwhile keeps its booking
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("""
+            SELECT b FROM Booking b
+            WHERE b.id IN :ids
+              AND b.holdExpiresAt <= :now
+              AND b.bookingStatus = 'BOOKED'
+              AND b.paymentStatus <> 'COMPLETED'
+            """)
+    List<Booking> lockExpiredHolds(@Param("ids") List<Long> ids, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("UPDATE Booking b SET b.bookingStatus = 'CANCELLED' WHERE b.id IN :ids")
+    int cancelHolds(@Param("ids") List<Long> ids);
+
+    // keyset page of bookings created inside the lookback window that have a gateway order but no recorded
+    // successful payment; older abandoned orders are never polled again
+    @Query("""
+            SELECT b FROM Booking b
+            WHERE b.id > :afterId
+              AND b.paymentOrderId IS NOT NULL
+              AND b.paymentStatus IN ('PENDING', 'FAILED')
+              AND b.createdAt >= :createdAfter
+              AND b.createdAt < :createdBefore
+            ORDER BY b.id
+            """)
+    List<Booking> findReconciliationCandidates(@Param("afterId") Long afterId,
+                                               @Param("createdAfter") LocalDateTime createdAfter,
+                                               @Param("createdBefore") LocalDateTime createdBefore,
+                                               Pageable pageable);
+
+    // compare-and-set of the booking's gateway order; 0 rows means another request recorded an order first
+    @Modifying
+    @Transactional
+    @Query("""
+            UPDATE Booking b
+            SET b.paymentOrderId = :orderId, b.paymentOrderAmount = :amount
+            WHERE b.id = :bookingId
+              AND ((:previousOrderId IS NULL AND b.paymentOrderId IS NULL) OR b.paymentOrderId = :previousOrderId)
+            """)
+    int recordPaymentOrder(@Param("bookingId") Long bookingId,
+                           @Param("previousOrderId") String previousOrderId,
+                           @Param("orderId") String orderId,
+                           @Param("amount") Long amount);
+
+    // next chunk of paid, not yet reminded bookings arriving in [fromDate, toDate], keyset-ordered on
+    // (check_in_date, id) so it walks idx_bookings_check_in_date; locked rows belong to another node and are skipped
+    @Query(value = """
+            SELECT * FROM bookings
+            WHERE check_in_date BETWEEN :fromDate AND :toDate
+              AND (check_in_date > :afterDate OR (check_in_date = :afterDate AND id > :afterId))
+              AND booking_status = 'BOOKED'
+              AND payment_status = 'COMPLETED'
+              AND reminder_sent_at IS NULL
+            ORDER BY check_in_date, id
+            LIMIT :limit
+            FOR UPDATE SKIP LOCKED
+            """, nativeQuery = true)
+    List<Booking> lockReminderChunk(@Param("fromDate") LocalDate fromDate,
+                                    @Param("toDate") LocalDate toDate,
+                                    @Param("afterDate") LocalDate afterDate,
+                                    @Param("afterId") Long afterId,
+                                    @Param("limit") int limit);
 }
@@ -2,6 +2,34 @@ package com.bsr.bsr_booking.repositories;
 
 import com.bsr.bsr_booking.entities.Notification;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
 
 public interface NotificationRepository extends JpaRepository<Notification, Long> {
+
+    // due outbox rows of one channel, plus SENDING rows whose claim expired (the node that claimed them died);
+    // SKIP LOCKED lets several dispatchers claim disjoint batches concurrently
+    @Query(value = """
+            SELECT * FROM notifications
+            WHERE type = :type
+              AND ((status = 'PENDING' AND (next_attempt_at IS NULL OR next_attempt_at <= :now))
+                OR (status = 'SENDING' AND claimed_until < :now))
+            ORDER BY id
+            LIMIT :limit
+            FOR UPDATE SKIP LOCKED
+            """, nativeQuery = true)
+    List<Notification> lockDueBatch(@Param("type") String type, @Param("now") LocalDateTime now, @Param("limit") int limit);
+
+    // extends the lease of a claimed row unless another dispatcher reclaimed it meanwhile (its version moved on)
+    @Modifying
+    @Query("""
+            UPDATE Notification n
+            SET n.claimedUntil = :claimedUntil, n.version = n.version + 1
+            WHERE n.id = :id AND n.version = :version AND n.status = 'SENDING'
+            """)
+    int renewLease(@Param("id") Long id, @Param("version") long version, @Param("claimedUntil") LocalDateTime claimedUntil);
 }
@@ -4,4 +4,6 @@ import com.bsr.bsr_booking.entities.PaymentEntity;
 import org.springframework.data.jpa.repository.JpaRepository;
 
 public interface PaymentRepository extends JpaRepository<PaymentEntity, Long> {
+
+    boolean existsByTransactionId(String transactionId);
 }
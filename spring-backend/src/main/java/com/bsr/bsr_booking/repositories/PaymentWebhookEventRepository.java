@@ -0,0 +1,24 @@
+package com.bsr.bsr_booking.repositories;
+
+import com.bsr.bsr_booking.entities.PaymentWebhookEvent;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface PaymentWebhookEventRepository extends JpaRepository<PaymentWebhookEvent, Long> {
+
+    // events not yet applied and not backing off after a transient error, oldest first;
+    // rows another node is working on are skipped
+    @Query(value = """
+            SELECT * FROM payment_webhook_events
+            WHERE status = 'RECEIVED'
+              AND (next_attempt_at IS NULL OR next_attempt_at <= :now)
+            ORDER BY id
+            LIMIT :limit
+            FOR UPDATE SKIP LOCKED
+            """, nativeQuery = true)
+    List<PaymentWebhookEvent> lockReceivedBatch(@Param("now") LocalDateTime now, @Param("limit") int limit);
+}
@@ -48,6 +48,8 @@ public class SecurityFilter {
                         .requestMatchers("/api/agent/**").permitAll()
                         .requestMatchers("/api/hotel-images/all", "/api/hotel-images/*/image").permitAll()
                         .requestMatchers("/api/payments/**").permitAll()
+                        .requestMatchers("/actuator/health").permitAll()
+                        .requestMatchers("/actuator/**").hasAuthority("ADMIN")
                         .anyRequest().authenticated()
                 )
                 .sessionManagement(manager -> manager.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
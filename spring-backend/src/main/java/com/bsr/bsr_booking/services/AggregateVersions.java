@@ -0,0 +1,87 @@
+package com.bsr.bsr_booking.services;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Write counters per aggregate, used to build weak ETags for read endpoints.
+ * Services bump them on every write; controllers compare them against If-None-Match
+ * before loading anything from the database.
+ * The epoch changes on every start, so tags issued before a restart never match.
+ */
+@Component
+public class AggregateVersions {
+
+    private final String epoch = Long.toString(ThreadLocalRandom.current().nextLong() & Long.MAX_VALUE, 36);
+
+    private final AtomicLong rooms = new AtomicLong();
+    private final AtomicLong bookings = new AtomicLong();
+    private final AtomicLong images = new AtomicLong();
+    private final Map<Long, AtomicLong> roomBookings = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> userBookings = new ConcurrentHashMap<>();
+
+    public void roomsChanged() {
+        rooms.incrementAndGet();
+    }
+
+    public void imagesChanged() {
+        images.incrementAndGet();
+    }
+
+    public void bookingChanged(Long roomId, String userEmail) {
+        if (roomId != null) {
+            roomBookings.computeIfAbsent(roomId, id -> new AtomicLong()).incrementAndGet();
+        }
+        userBookingsChanged(userEmail);
+    }
+
+    public void userBookingsChanged(String userEmail) {
+        bookings.incrementAndGet();
+        if (userEmail != null) {
+            userBookings.computeIfAbsent(userEmail, email -> new AtomicLong()).incrementAndGet();
+        }
+    }
+
+    public String roomsTag() {
+        return tag("rooms", rooms.get());
+    }
+
+    // availability depends on both the room list and every booking
+    public String availabilityTag() {
+        return tag("availability", rooms.get(), bookings.get());
+    }
+
+    public String roomBookingsTag(Long roomId) {
+        return tag("room-" + roomId, current(roomBookings.get(roomId)));
+    }
+
+    // booking payloads embed room details, so room edits change them too
+    public String bookingsTag() {
+        return tag("bookings", bookings.get(), rooms.get());
+    }
+
+    // the same URL serves every user, so the tag has to be user specific
+    public String userBookingsTag(String userEmail) {
+        return tag("user-" + Integer.toHexString(userEmail.hashCode()), current(userBookings.get(userEmail)), rooms.get());
+    }
+
+    public String imagesTag() {
+        return tag("images", images.get());
+    }
+
+    private long current(AtomicLong counter) {
+        return counter == null ? 0 : counter.get();
+    }
+
+    private String tag(String name, long... versions) {
+        StringBuilder tag = new StringBuilder("W/\"").append(name).append('-').append(epoch);
+        for (long version : versions) {
+            tag.append('-').append(version);
+        }
+        return tag.append('"').toString();
+    }
+}
@@ -0,0 +1,82 @@
+package com.bsr.bsr_booking.services;
+
+import com.bsr.bsr_booking.enums.RoomType;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory cache of available room ids per search range.
+ * Bookings invalidate only the cached ranges they overlap, using the same
+ * inclusive overlap rule as RoomRepository.findAvailableRooms.
+ */
+@Component
+@Slf4j
+public class AvailabilityCache {
+
+    private final Map<SearchKey, List<Long>> entries = new ConcurrentHashMap<>();
+
+    // bumped on every invalidation so a search that started before a booking cannot cache stale ids
+    private final AtomicLong generation = new AtomicLong();
+
+    @Value("${availability.cache.max-entries:1000}")
+    private int maxEntries;
+
+    public long generation() {
+        return generation.get();
+    }
+
+    public List<Long> get(LocalDate checkInDate, LocalDate checkOutDate, RoomType roomType) {
+        return entries.get(new SearchKey(checkInDate, checkOutDate, roomType));
+    }
+
+    public void put(LocalDate checkInDate, LocalDate checkOutDate, RoomType roomType, List<Long> roomIds, long observedGeneration) {
+        if (entries.size() >= maxEntries) {
+            evictPastSearches();
+        }
+        if (entries.size() >= maxEntries) {
+            return;
+        }
+        SearchKey key = new SearchKey(checkInDate, checkOutDate, roomType);
+        entries.put(key, List.copyOf(roomIds));
+
+        // an invalidation raced with the query; drop what we just stored
+        if (generation.get() != observedGeneration) {
+            entries.remove(key);
+        }
+    }
+
+    public void invalidateOverlapping(LocalDate from, LocalDate to) {
+        if (from == null || to == null) {
+            invalidateAll();
+            return;
+        }
+        generation.incrementAndGet();
+        entries.keySet().removeIf(key -> key.overlaps(from, to));
+        log.debug("Availability cache invalidated for range {} - {}", from, to);
+    }
+
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        entries.clear();
+        log.debug("Availability cache cleared");
+    }
+
+    private void evictPastSearches() {
+        LocalDate today = LocalDate.now();
+        entries.keySet().removeIf(key -> key.checkInDate().isBefore(today));
+    }
+
+    private record SearchKey(LocalDate checkInDate, LocalDate checkOutDate, RoomType roomType) {
+
+        boolean overlaps(LocalDate from, LocalDate to) {
+            return !checkInDate.isAfter(to) && !checkOutDate.isBefore(from);
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package com.bsr.bsr_booking.services;
+
+import com.bsr.bsr_booking.entities.Booking;
+import com.bsr.bsr_booking.repositories.BookingRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Releases rooms held by unpaid bookings.
+ * New bookings reserve their room for bookings.hold.ttl-minutes; each hold sits in an in-memory DelayQueue
+ * that a single thread drains as holds come due, cancelling everything already expired in one batched update.
+ * The queue is rebuilt from the database at startup, and a periodic sweep catches holds created on other
+ * nodes or missed while this one was down.
+ */
+@Component
+@Slf4j
+public class BookingHoldManager {
+
+    private final BookingRepository bookingRepository;
+    private final AvailabilityCache availabilityCache;
+    private final AggregateVersions aggregateVersions;
+    private final TransactionTemplate transactionTemplate;
+    private final DelayQueue<Hold> holds = new DelayQueue<>();
+    private final Counter released;
+
+    @Value("${bookings.hold.ttl-minutes:15}")
+    private long ttlMinutes;
+
+    @Value("${bookings.hold.release-batch-size:100}")
+    private int releaseBatchSize;
+
+    private volatile Thread expiryThread;
+
+    public BookingHoldManager(BookingRepository bookingRepository,
+                              AvailabilityCache availabilityCache,
+                              AggregateVersions aggregateVersions,
+                              PlatformTransactionManager transactionManager,
+                              MeterRegistry meterRegistry) {
+        this.bookingRepository = bookingRepository;
+        this.availabilityCache = availabilityCache;
+        this.aggregateVersions = aggregateVersions;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.released = Counter.builder("bookings.holds.released").register(meterRegistry);
+        Gauge.builder("bookings.holds.tracked", holds, DelayQueue::size).register(meterRegistry);
+    }
+
+    public LocalDateTime newHoldExpiry() {
+        return LocalDateTime.now().plusMinutes(ttlMinutes);
+    }
+
+    public void track(Booking booking) {
+        if (booking.getId() != null && booking.getHoldExpiresAt() != null) {
+            holds.add(new Hold(booking.getId(), booking.getHoldExpiresAt()));
+        }
+    }
+
+    @PostConstruct
+    void start() {
+        expiryThread = Thread.ofPlatform().daemon().name("booking-hold-expiry").start(this::expiryLoop);
+    }
+
+    @PreDestroy
+    void stop() {
+        Thread thread = expiryThread;
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        List<BookingRepository.HoldView> active = bookingRepository.findActiveHolds();
+        for (BookingRepository.HoldView hold : active) {
+            holds.add(new Hold(hold.getId(), hold.getHoldExpiresAt()));
+        }
+        log.info("Tracking {} unpaid booking hold(s)", active.size());
+    }
+
+    // backstop for holds this node never saw
+    @Scheduled(fixedDelayString = "${bookings.hold.sweep-interval-ms:60000}")
+    public void sweep() {
+        List<Long> expired;
+        do {
+            expired = bookingRepository.findExpiredHoldIds(LocalDateTime.now(), PageRequest.of(0, releaseBatchSize));
+            if (!expired.isEmpty()) {
+                release(expired);
+            }
+        } while (expired.size() == releaseBatchSize);
+    }
+
+    private void expiryLoop() {
+        List<Hold> due = new ArrayList<>();
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                due.add(holds.take());
+                // everything else already expired goes in the same update
+                holds.drainTo(due, releaseBatchSize - 1);
+                release(due.stream().map(Hold::bookingId).toList());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (RuntimeException e) {
+                log.error("Releasing {} expired hold(s) failed, the sweep will retry: {}", due.size(), e.getMessage(), e);
+            } finally {
+                due.clear();
+            }
+        }
+    }
+
+    private void release(List<Long> bookingIds) {
+        List<Booking> cancelled = transactionTemplate.execute(status -> {
+            List<Booking> expired = bookingRepository.lockExpiredHolds(bookingIds, LocalDateTime.now());
+            if (!expired.isEmpty()) {
+                bookingRepository.cancelHolds(expired.stream().map(Booking::getId).toList());
+            }
+            return expired;
+        });
+        if (cancelled == null || cancelled.isEmpty()) {
+            return;
+        }
+
+        for (Booking booking : cancelled) {
+            availabilityCache.invalidateOverlapping(booking.getCheckInDate(), booking.getCheckOutDate());
+            aggregateVersions.bookingChanged(
+                    booking.getRoom() != null ? booking.getRoom().getId() : null,
+                    booking.getUser() != null ? booking.getUser().getEmail() : null);
+        }
+        released.increment(cancelled.size());
+        log.info("Released {} unpaid booking hold(s)", cancelled.size());
+    }
+
+    private record Hold(Long bookingId, long expiresAtNanos) implements Delayed {
+
+        Hold(Long bookingId, LocalDateTime expiresAt) {
+            this(bookingId, System.nanoTime() + Duration.between(LocalDateTime.now(), expiresAt).toNanos());
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(expiresAtNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(expiresAtNanos, ((Hold) other).expiresAtNanos);
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package com.bsr.bsr_booking.services;
+
+import com.bsr.bsr_booking.entities.Notification;
+import com.bsr.bsr_booking.enums.NotificationStatus;
+import com.bsr.bsr_booking.repositories.NotificationRepository;
+import com.bsr.bsr_booking.services.channels.NotificationChannel;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Delivers outbox rows written by NotificationService.
+ * Each poll claims a batch of due rows per channel with SKIP LOCKED, leases them as SENDING and hands them to
+ * that channel's executor, so several nodes can dispatch concurrently without sending twice and a backlog on
+ * one channel never holds up another. A delivery task renews the lease of its rows when it starts and skips the
+ * ones another poll reclaimed while they waited in the queue; rows are versioned, so a late writer cannot overwrite
+ * a newer outcome. Failed sends are retried with exponential backoff until notification.dispatcher.max-attempts.
+ */
+@Component
+@Slf4j
+public class NotificationDispatcher {
+
+    private final NotificationRepository notificationRepository;
+    private final List<NotificationChannel> channels;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${notification.dispatcher.batch-size:20}")
+    private int batchSize;
+
+    @Value("${notification.dispatcher.lease-seconds:120}")
+    private long leaseSeconds;
+
+    @Value("${notification.dispatcher.max-attempts:6}")
+    private int maxAttempts;
+
+    @Value("${notification.dispatcher.backoff-base-seconds:30}")
+    private long backoffBaseSeconds;
+
+    @Value("${notification.dispatcher.backoff-max-seconds:3600}")
+    private long backoffMaxSeconds;
+
+    public NotificationDispatcher(NotificationRepository notificationRepository,
+                                  List<NotificationChannel> channels,
+                                  PlatformTransactionManager transactionManager,
+                                  MeterRegistry meterRegistry) {
+        this.notificationRepository = notificationRepository;
+        this.channels = channels;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Scheduled(fixedDelayString = "${notification.dispatcher.poll-interval-ms:2000}")
+    public void dispatchDue() {
+        for (NotificationChannel channel : channels) {
+            dispatchDue(channel);
+        }
+    }
+
+    private void dispatchDue(NotificationChannel channel) {
+        // never claim more than the channel's executor can queue; unclaimed rows simply wait for the next poll
+        int queueCapacity = channel.executor().getThreadPoolExecutor().getQueue().remainingCapacity();
+        int capacity = (int) Math.min(batchSize, (long) queueCapacity * channel.batchSize());
+        if (capacity <= 0) {
+            return;
+        }
+
+        List<Notification> claimed = claimBatch(channel, capacity);
+        if (!claimed.isEmpty()) {
+            log.info("Dispatching {} queued {} notification(s)", claimed.size(), channel.type());
+        }
+        for (int from = 0; from < claimed.size(); from += channel.batchSize()) {
+            List<Notification> batch = claimed.subList(from, Math.min(from + channel.batchSize(), claimed.size()));
+            channel.executor().execute(() -> deliver(channel, batch));
+        }
+    }
+
+    private List<Notification> claimBatch(NotificationChannel channel, int limit) {
+        List<Notification> claimed = transactionTemplate.execute(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            List<Notification> due = notificationRepository.lockDueBatch(channel.type().name(), now, limit);
+            for (Notification notification : due) {
+                notification.setStatus(NotificationStatus.SENDING);
+                notification.setClaimedUntil(now.plusSeconds(leaseSeconds));
+            }
+            notificationRepository.saveAll(due);
+            return due;
+        });
+        return claimed == null ? List.of() : claimed;
+    }
+
+    private void deliver(NotificationChannel channel, List<Notification> claimed) {
+        String channelTag = channel.type().name().toLowerCase(Locale.ROOT);
+        // the rows may have waited in the channel queue past their lease; only send the ones still ours
+        List<Notification> batch = renewLeases(claimed, channelTag);
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        Timer.Sample sample = Timer.start(meterRegistry);
+        List<Exception> failures;
+        try {
+            failures = channel.deliver(batch);
+        } catch (Exception e) {
+            failures = batch.stream().map(n -> e).toList();
+        } finally {
+            sample.stop(meterRegistry.timer("notification.batch.latency", "channel", channelTag));
+        }
+
+        for (int i = 0; i < batch.size(); i++) {
+            Notification notification = batch.get(i);
+            Exception failure = failures.get(i);
+            if (failure == null) {
+                notification.setStatus(NotificationStatus.SENT);
+                notification.setSentAt(LocalDateTime.now());
+                notification.setClaimedUntil(null);
+                notification.setLastError(null);
+                meterRegistry.counter("notification.dispatch", "channel", channelTag, "result", "sent").increment();
+            } else {
+                scheduleRetry(notification, channelTag, failure);
+            }
+        }
+        saveOutcomes(batch, channelTag);
+    }
+
+    private List<Notification> renewLeases(List<Notification> claimed, String channelTag) {
+        List<Notification> renewed = transactionTemplate.execute(status -> {
+            LocalDateTime leaseEnd = LocalDateTime.now().plusSeconds(leaseSeconds);
+            List<Notification> owned = new ArrayList<>(claimed.size());
+            for (Notification notification : claimed) {
+                if (notificationRepository.renewLease(notification.getId(), notification.getVersion(), leaseEnd) == 1) {
+                    notification.setVersion(notification.getVersion() + 1);
+                    notification.setClaimedUntil(leaseEnd);
+                    owned.add(notification);
+                }
+            }
+            return owned;
+        });
+        int lost = claimed.size() - (renewed == null ? 0 : renewed.size());
+        if (lost > 0) {
+            meterRegistry.counter("notification.lease.lost", "channel", channelTag).increment(lost);
+            log.warn("{} {} notification(s) were reclaimed by another poll while queued, skipping them", lost, channelTag);
+        }
+        return renewed == null ? List.of() : renewed;
+    }
+
+    // the version check keeps a dispatcher that lost its lease from overwriting the outcome of the one that took over
+    private void saveOutcomes(List<Notification> batch, String channelTag) {
+        try {
+            notificationRepository.saveAll(batch);
+        } catch (OptimisticLockingFailureException e) {
+            for (Notification notification : batch) {
+                try {
+                    notificationRepository.save(notification);
+                } catch (OptimisticLockingFailureException conflict) {
+                    meterRegistry.counter("notification.lease.lost", "channel", channelTag).increment();
+                    log.warn("{} notification {} was reclaimed during delivery, keeping the newer state",
+                            notification.getType(), notification.getId());
+                }
+            }
+        }
+    }
+
+    private void scheduleRetry(Notification notification, String channelTag, Exception e) {
+        int attempts = (notification.getAttempts() == null ? 0 : notification.getAttempts()) + 1;
+        notification.setAttempts(attempts);
+        notification.setClaimedUntil(null);
+        notification.setLastError(truncate(e.getMessage()));
+        meterRegistry.counter("notification.send.failures", "channel", channelTag).increment();
+
+        if (attempts >= maxAttempts) {
+            notification.setStatus(NotificationStatus.FAILED);
+            meterRegistry.counter("notification.dispatch", "channel", channelTag, "result", "failed").increment();
+            log.error("Giving up on {} notification {} to {} after {} attempts: {}",
+                    notification.getType(), notification.getId(), notification.getRecipient(), attempts, e.getMessage(), e);
+            return;
+        }
+
+        long delaySeconds = backoffSeconds(attempts);
+        notification.setStatus(NotificationStatus.PENDING);
+        notification.setNextAttemptAt(LocalDateTime.now().plusSeconds(delaySeconds));
+        meterRegistry.counter("notification.dispatch", "channel", channelTag, "result", "retry").increment();
+        log.warn("{} notification {} to {} failed (attempt {}), retrying in {}s: {}",
+                notification.getType(), notification.getId(), notification.getRecipient(), attempts, delaySeconds, e.getMessage());
+    }
+
+    // base * 2^(attempt-1), capped, with up to 20% jitter so retries from a burst spread out
+    private long backoffSeconds(int attempts) {
+        long delay = backoffBaseSeconds << Math.min(attempts - 1, 20);
+        delay = Math.min(delay, backoffMaxSeconds);
+        return delay + ThreadLocalRandom.current().nextLong(delay / 5 + 1);
+    }
+
+    private String truncate(String message) {
+        if (message == null) return null;
+        return message.length() > 1000 ? message.substring(0, 1000) : message;
+    }
+}
@@ -1,12 +1,16 @@
 package com.bsr.bsr_booking.services;
 
 import com.bsr.bsr_booking.dtos.NotificationDTO;
+import com.bsr.bsr_booking.entities.User;
 
 public interface NotificationService {
 
     void sendEmail(NotificationDTO notificationDTO);
 
-    void sendSms();
+    void sendSms(NotificationDTO notificationDTO);
 
-    void sendWhatsapp();
+    void sendWhatsapp(NotificationDTO notificationDTO);
+
+    // queues the notification on every channel the user opted into
+    void notifyUser(User user, NotificationDTO notificationDTO);
 }
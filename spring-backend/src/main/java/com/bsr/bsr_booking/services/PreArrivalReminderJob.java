@@ -0,0 +1,178 @@
+package com.bsr.bsr_booking.services;
+
+import com.bsr.bsr_booking.dtos.NotificationDTO;
+import com.bsr.bsr_booking.entities.Booking;
+import com.bsr.bsr_booking.entities.JobCheckpoint;
+import com.bsr.bsr_booking.repositories.BookingRepository;
+import com.bsr.bsr_booking.repositories.JobCheckpointRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Queues a reminder for paid BOOKED stays arriving within reminders.days-before days.
+ * Bookings are walked in keyset order, one transaction per chunk: the chunk is locked, its reminders are
+ * written to the notification outbox, the bookings are stamped with reminderSentAt and the job checkpoint
+ * is advanced, all in one commit. A node that dies mid-run therefore leaves either a whole chunk or nothing,
+ * and the next run resumes from the checkpoint. The checkpoint row lock serialises concurrent nodes.
+ */
+@Component
+@Slf4j
+public class PreArrivalReminderJob {
+
+    static final String JOB_NAME = "pre-arrival-reminders";
+
+    private final BookingRepository bookingRepository;
+    private final JobCheckpointRepository jobCheckpointRepository;
+    private final NotificationService notificationService;
+    private final TransactionTemplate transactionTemplate;
+    private final Counter queuedCounter;
+
+    @Value("${reminders.enabled:true}")
+    private boolean enabled;
+
+    @Value("${reminders.days-before:2}")
+    private int daysBefore;
+
+    @Value("${reminders.chunk-size:100}")
+    private int chunkSize;
+
+    @Value("${reminders.max-per-run:500}")
+    private int maxPerRun;
+
+    public PreArrivalReminderJob(BookingRepository bookingRepository,
+                                 JobCheckpointRepository jobCheckpointRepository,
+                                 NotificationService notificationService,
+                                 PlatformTransactionManager transactionManager,
+                                 MeterRegistry meterRegistry) {
+        this.bookingRepository = bookingRepository;
+        this.jobCheckpointRepository = jobCheckpointRepository;
+        this.notificationService = notificationService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.queuedCounter = Counter.builder("reminders.queued").register(meterRegistry);
+    }
+
+    @Async("batchJobExecutor")
+    @Scheduled(cron = "${reminders.cron:0 0 * * * *}")
+    public void run() {
+        if (!enabled) {
+            return;
+        }
+        ensureCheckpoint();
+
+        // the cap keeps one run from flooding the outbox; whatever is left is picked up by the next run
+        int queued = 0;
+        while (queued < maxPerRun) {
+            int limit = Math.min(chunkSize, maxPerRun - queued);
+            Integer handled = transactionTemplate.execute(status -> processChunk(limit));
+            if (handled == null || handled == 0) {
+                break;
+            }
+            queued += handled;
+        }
+        if (queued > 0) {
+            log.info("Queued {} pre-arrival reminder(s)", queued);
+        }
+    }
+
+    private int processChunk(int limit) {
+        JobCheckpoint checkpoint = jobCheckpointRepository.lockByJobName(JOB_NAME)
+                .orElseThrow(() -> new IllegalStateException("Missing checkpoint for " + JOB_NAME));
+
+        LocalDate today = LocalDate.now();
+        if (!today.equals(checkpoint.getRunDate())) {
+            restart(checkpoint, today);
+            checkpoint.setProcessed(0);
+        }
+
+        List<Booking> chunk = bookingRepository.lockReminderChunk(
+                today, today.plusDays(daysBefore), checkpoint.getCursorDate(), checkpoint.getCursorId(), limit);
+
+        if (chunk.isEmpty()) {
+            // pass finished; the next run rescans the window for bookings paid since
+            restart(checkpoint, today);
+            jobCheckpointRepository.save(checkpoint);
+            return 0;
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        for (Booking booking : chunk) {
+            if (booking.getUser() != null) {
+                notificationService.notifyUser(booking.getUser(), reminderFor(booking));
+            }
+            booking.setReminderSentAt(now);
+        }
+        bookingRepository.saveAll(chunk);
+
+        Booking last = chunk.get(chunk.size() - 1);
+        checkpoint.setCursorDate(last.getCheckInDate());
+        checkpoint.setCursorId(last.getId());
+        checkpoint.setProcessed(checkpoint.getProcessed() + chunk.size());
+        checkpoint.setUpdatedAt(now);
+        jobCheckpointRepository.save(checkpoint);
+
+        queuedCounter.increment(chunk.size());
+        return chunk.size();
+    }
+
+    private void restart(JobCheckpoint checkpoint, LocalDate today) {
+        checkpoint.setRunDate(today);
+        checkpoint.setCursorDate(today.minusDays(1));
+        checkpoint.setCursorId(0L);
+        checkpoint.setUpdatedAt(LocalDateTime.now());
+    }
+
+    // first run on a fresh database; if two nodes race here one insert loses and that node just carries on
+    private void ensureCheckpoint() {
+        if (jobCheckpointRepository.existsById(JOB_NAME)) {
+            return;
+        }
+        LocalDate today = LocalDate.now();
+        try {
+            jobCheckpointRepository.saveAndFlush(JobCheckpoint.builder()
+                    .jobName(JOB_NAME)
+                    .runDate(today)
+                    .cursorDate(today.minusDays(1))
+                    .cursorId(0L)
+                    .processed(0)
+                    .updatedAt(LocalDateTime.now())
+                    .build());
+        } catch (DataIntegrityViolationException e) {
+            log.debug("Checkpoint for {} was created by another node", JOB_NAME);
+        }
+    }
+
+    private NotificationDTO reminderFor(Booking booking) {
+        StringBuilder body = new StringBuilder();
+        body.append("Dear ").append(booking.getUser().getFirstName()).append(" ").append(booking.getUser().getLastName()).append(",\n\n");
+        body.append("This is a friendly reminder that your stay with us is coming up soon.\n\n");
+        body.append("BOOKING DETAILS:\n");
+        body.append("Booking Reference: ").append(booking.getBookingReference()).append("\n");
+        if (booking.getRoom() != null) {
+            body.append("Room Type: ").append(booking.getRoom().getType()).append("\n");
+        }
+        body.append("Check-in Date: ").append(booking.getCheckInDate()).append("\n");
+        body.append("Check-out Date: ").append(booking.getCheckOutDate()).append("\n\n");
+        body.append("We look forward to welcoming you to Bhagat Singh Resort!\n\n");
+        body.append("Best regards,\n");
+        body.append("Bhagat Singh Resort Team");
+
+        return NotificationDTO.builder()
+                .recipient(booking.getUser().getEmail())
+                .subject("Your stay is coming up - " + booking.getBookingReference())
+                .body(body.toString())
+                .bookingReference(booking.getBookingReference())
+                .build();
+    }
+}
@@ -0,0 +1,82 @@
+package com.bsr.bsr_booking.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Single-flight execution of identical read queries.
+ * The first caller for a key runs the loader on its own thread; callers arriving while it is
+ * in flight wait on the same future instead of issuing their own query.
+ * A follower that waits longer than the timeout stops waiting and runs the loader itself,
+ * so a stuck query never blocks everyone behind it.
+ */
+@Component
+@Slf4j
+public class RequestCoalescer {
+
+    private final Map<String, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+
+    private final Counter leaderCalls;
+    private final Counter coalescedCalls;
+    private final Counter timedOutCalls;
+
+    @Value("${coalescing.wait-timeout-ms:2000}")
+    private long waitTimeoutMs;
+
+    public RequestCoalescer(MeterRegistry meterRegistry) {
+        this.leaderCalls = Counter.builder("coalescer.calls").tag("result", "leader").register(meterRegistry);
+        this.coalescedCalls = Counter.builder("coalescer.calls").tag("result", "coalesced").register(meterRegistry);
+        this.timedOutCalls = Counter.builder("coalescer.calls").tag("result", "timeout").register(meterRegistry);
+        Gauge.builder("coalescer.in.flight", inFlight, Map::size).register(meterRegistry);
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T execute(String key, Supplier<T> loader) {
+        CompletableFuture<Object> mine = new CompletableFuture<>();
+        CompletableFuture<Object> existing = inFlight.putIfAbsent(key, mine);
+
+        if (existing == null) {
+            leaderCalls.increment();
+            try {
+                T result = loader.get();
+                mine.complete(result);
+                return result;
+            } catch (RuntimeException | Error e) {
+                mine.completeExceptionally(e);
+                throw e;
+            } finally {
+                inFlight.remove(key, mine);
+            }
+        }
+
+        coalescedCalls.increment();
+        try {
+            return (T) existing.get(waitTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            timedOutCalls.increment();
+            log.warn("Coalesced call for {} gave up waiting on the in-flight query, loading directly", key);
+            return loader.get();
+        } catch (ExecutionException e) {
+            // the leader's failure is the answer for everyone that joined it
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtimeException) throw runtimeException;
+            if (cause instanceof Error error) throw error;
+            throw new IllegalStateException(cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for " + key, e);
+        }
+    }
+}
@@ -0,0 +1,237 @@
+package com.bsr.bsr_booking.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Transport;
+import jakarta.mail.internet.MimeMessage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.MailException;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.mail.javamail.MimeMailMessage;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Small pool of authenticated SMTP sessions built from the configured JavaMailSenderImpl.
+ * A batch of messages is sent over one session instead of paying TCP + STARTTLS + AUTH per mail.
+ * Sessions idle for longer than notification.smtp.idle-check-seconds are probed with NOOP before reuse,
+ * and a session that drops mid-batch is reconnected once before the rest of the batch is failed.
+ */
+@Component
+@Slf4j
+public class SmtpTransportPool implements DisposableBean {
+
+    private final JavaMailSenderImpl mailSender;
+    private final MeterRegistry meterRegistry;
+    private final BlockingDeque<PooledTransport> idle = new LinkedBlockingDeque<>();
+    private final BlockingQueue<Integer> freeSlots = new LinkedBlockingQueue<>();
+    private final Semaphore permits;
+    private final AtomicInteger open = new AtomicInteger();
+    private final long idleCheckNanos;
+    private final long acquireTimeoutMs;
+    private final Counter reconnects;
+
+    public SmtpTransportPool(JavaMailSenderImpl mailSender,
+                             MeterRegistry meterRegistry,
+                             @Value("${notification.smtp.pool-size:4}") int poolSize,
+                             @Value("${notification.smtp.idle-check-seconds:30}") long idleCheckSeconds,
+                             @Value("${notification.smtp.acquire-timeout-ms:10000}") long acquireTimeoutMs) {
+        this.mailSender = mailSender;
+        this.meterRegistry = meterRegistry;
+        this.permits = new Semaphore(poolSize);
+        this.idleCheckNanos = TimeUnit.SECONDS.toNanos(idleCheckSeconds);
+        this.acquireTimeoutMs = acquireTimeoutMs;
+        for (int slot = 0; slot < poolSize; slot++) {
+            freeSlots.add(slot);
+        }
+        this.reconnects = Counter.builder("mail.smtp.reconnects").register(meterRegistry);
+        Gauge.builder("mail.smtp.connections.open", open, AtomicInteger::get).register(meterRegistry);
+        Gauge.builder("mail.smtp.connections.idle", idle, BlockingDeque::size).register(meterRegistry);
+    }
+
+    /**
+     * Sends the messages in order over a single pooled session.
+     * Returns one entry per message: null when the server accepted it, otherwise the failure.
+     */
+    public List<Exception> sendAll(List<SimpleMailMessage> messages) {
+        List<Exception> failures = new ArrayList<>(Collections.nCopies(messages.size(), null));
+        if (messages.isEmpty()) {
+            return failures;
+        }
+
+        PooledTransport connection;
+        try {
+            connection = acquire();
+        } catch (Exception e) {
+            log.error("Could not obtain an SMTP session: {}", e.getMessage());
+            Collections.fill(failures, e);
+            return failures;
+        }
+
+        boolean healthy = true;
+        try {
+            for (int i = 0; i < messages.size(); i++) {
+                MimeMessage mimeMessage;
+                try {
+                    mimeMessage = toMimeMessage(messages.get(i));
+                } catch (MessagingException | MailException e) {
+                    failures.set(i, e);
+                    continue;
+                }
+
+                try {
+                    connection.send(mimeMessage);
+                } catch (MessagingException | IllegalStateException e) {
+                    if (connection.isOpen()) {
+                        // the server rejected this message but the session is still usable
+                        failures.set(i, e);
+                        continue;
+                    }
+                    try {
+                        log.warn("SMTP session {} dropped mid-batch, reconnecting: {}", connection.slot, e.getMessage());
+                        connection.reconnect();
+                        connection.send(mimeMessage);
+                    } catch (MessagingException | IllegalStateException retryFailure) {
+                        healthy = false;
+                        for (int j = i; j < messages.size(); j++) {
+                            failures.set(j, retryFailure);
+                        }
+                        break;
+                    }
+                }
+            }
+        } finally {
+            release(connection, healthy);
+        }
+        return failures;
+    }
+
+    private MimeMessage toMimeMessage(SimpleMailMessage message) throws MessagingException {
+        MimeMessage mimeMessage = mailSender.createMimeMessage();
+        message.copyTo(new MimeMailMessage(mimeMessage));
+        // Transport.sendMessage does not do this for us, unlike Transport.send
+        mimeMessage.saveChanges();
+        return mimeMessage;
+    }
+
+    private PooledTransport acquire() throws MessagingException, InterruptedException {
+        if (!permits.tryAcquire(acquireTimeoutMs, TimeUnit.MILLISECONDS)) {
+            throw new IllegalStateException("No SMTP session available within " + acquireTimeoutMs + "ms");
+        }
+        PooledTransport connection = null;
+        try {
+            connection = idle.pollFirst();
+            if (connection == null) {
+                connection = new PooledTransport(freeSlots.remove());
+                open.incrementAndGet();
+                connection.connect();
+                return connection;
+            }
+            if (System.nanoTime() - connection.lastUsedNanos > idleCheckNanos && !connection.isOpen()) {
+                connection.reconnect();
+            }
+            return connection;
+        } catch (MessagingException | RuntimeException e) {
+            // a session that failed to (re)connect gives its slot back, or the pool runs dry after pool-size failures
+            if (connection != null) {
+                discard(connection);
+            }
+            permits.release();
+            throw e;
+        }
+    }
+
+    private void release(PooledTransport connection, boolean healthy) {
+        if (healthy) {
+            // LIFO keeps the fewest sessions warm under light load
+            idle.offerFirst(connection);
+        } else {
+            discard(connection);
+        }
+        permits.release();
+    }
+
+    private void discard(PooledTransport connection) {
+        connection.close();
+        open.decrementAndGet();
+        freeSlots.add(connection.slot);
+    }
+
+    @Override
+    public void destroy() {
+        PooledTransport connection;
+        while ((connection = idle.pollFirst()) != null) {
+            connection.close();
+            open.decrementAndGet();
+        }
+    }
+
+    private final class PooledTransport {
+
+        private final int slot;
+        private final Counter messagesSent;
+        private final Timer sendTimer;
+        private Transport transport;
+        private long lastUsedNanos = System.nanoTime();
+
+        private PooledTransport(int slot) {
+            this.slot = slot;
+            String connection = Integer.toString(slot);
+            this.messagesSent = Counter.builder("mail.smtp.messages").tag("connection", connection).register(meterRegistry);
+            this.sendTimer = Timer.builder("mail.smtp.send").tag("connection", connection).register(meterRegistry);
+        }
+
+        private void connect() throws MessagingException {
+            transport = mailSender.getSession().getTransport(mailSender.getProtocol());
+            transport.connect(mailSender.getHost(), mailSender.getPort(), mailSender.getUsername(), mailSender.getPassword());
+            lastUsedNanos = System.nanoTime();
+        }
+
+        private void reconnect() throws MessagingException {
+            reconnects.increment();
+            close();
+            connect();
+        }
+
+        private void send(MimeMessage message) throws MessagingException {
+            long start = System.nanoTime();
+            transport.sendMessage(message, message.getAllRecipients());
+            sendTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            messagesSent.increment();
+            lastUsedNanos = System.nanoTime();
+        }
+
+        // SMTPTransport answers this with a NOOP round trip
+        private boolean isOpen() {
+            return transport != null && transport.isConnected();
+        }
+
+        private void close() {
+            if (transport == null) {
+                return;
+            }
+            try {
+                transport.close();
+            } catch (MessagingException e) {
+                log.debug("Error closing SMTP session {}: {}", slot, e.getMessage());
+            }
+            transport = null;
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.bsr.bsr_booking.services.channels;
+
+import com.bsr.bsr_booking.entities.Notification;
+import com.bsr.bsr_booking.entities.User;
+import com.bsr.bsr_booking.enums.NotificationType;
+import com.bsr.bsr_booking.services.SmtpTransportPool;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Component
+public class EmailChannel implements NotificationChannel {
+
+    private final SmtpTransportPool smtpTransportPool;
+    private final ThreadPoolTaskExecutor executor;
+    private final int sessionBatchSize;
+
+    public EmailChannel(SmtpTransportPool smtpTransportPool,
+                        @Qualifier("emailNotificationExecutor") ThreadPoolTaskExecutor executor,
+                        @Value("${notification.smtp.session-batch-size:10}") int sessionBatchSize) {
+        this.smtpTransportPool = smtpTransportPool;
+        this.executor = executor;
+        this.sessionBatchSize = sessionBatchSize;
+    }
+
+    @Override
+    public NotificationType type() {
+        return NotificationType.EMAIL;
+    }
+
+    @Override
+    public String recipientFor(User user) {
+        return user.getEmail();
+    }
+
+    @Override
+    public ThreadPoolTaskExecutor executor() {
+        return executor;
+    }
+
+    // a whole batch shares one pooled SMTP session
+    @Override
+    public int batchSize() {
+        return sessionBatchSize;
+    }
+
+    @Override
+    public List<Exception> deliver(List<Notification> batch) {
+        List<SimpleMailMessage> messages = new ArrayList<>(batch.size());
+        for (Notification notification : batch) {
+            SimpleMailMessage simpleMailMessage = new SimpleMailMessage();
+            simpleMailMessage.setTo(notification.getRecipient());
+            simpleMailMessage.setSubject(notification.getSubject());
+            simpleMailMessage.setText(notification.getBody());
+            messages.add(simpleMailMessage);
+        }
+        return smtpTransportPool.sendAll(messages);
+    }
+}
@@ -0,0 +1,30 @@
+package com.bsr.bsr_booking.services.channels;
+
+import com.bsr.bsr_booking.entities.Notification;
+import com.bsr.bsr_booking.entities.User;
+import com.bsr.bsr_booking.enums.NotificationType;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.List;
+
+/**
+ * A way of reaching a guest. NotificationDispatcher claims outbox rows per channel and runs
+ * deliveries on the channel's own executor, so a slow provider only ever backs up its own queue.
+ */
+public interface NotificationChannel {
+
+    NotificationType type();
+
+    // address for this channel taken from the user's profile, null when the user cannot be reached on it
+    String recipientFor(User user);
+
+    ThreadPoolTaskExecutor executor();
+
+    // how many claimed rows a single delivery task handles
+    default int batchSize() {
+        return 1;
+    }
+
+    // one entry per notification: null when the provider accepted it, otherwise the failure
+    List<Exception> deliver(List<Notification> batch);
+}
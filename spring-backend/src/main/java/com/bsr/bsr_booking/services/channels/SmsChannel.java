@@ -0,0 +1,20 @@
+package com.bsr.bsr_booking.services.channels;
+
+import com.bsr.bsr_booking.enums.NotificationType;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+@Component
+public class SmsChannel extends TextMessageChannel {
+
+    public SmsChannel(@Qualifier("smsProvider") TextMessageProvider provider,
+                      @Qualifier("smsNotificationExecutor") ThreadPoolTaskExecutor executor) {
+        super(provider, executor);
+    }
+
+    @Override
+    public NotificationType type() {
+        return NotificationType.SMS;
+    }
+}
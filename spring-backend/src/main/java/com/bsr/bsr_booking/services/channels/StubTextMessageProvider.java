@@ -0,0 +1,46 @@
+package com.bsr.bsr_booking.services.channels;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Local stand-in for a text provider: logs the message instead of sending it and keeps the
+ * last few in memory. The optional latency simulates a slow provider when testing channel isolation.
+ */
+@Slf4j
+public class StubTextMessageProvider implements TextMessageProvider {
+
+    private static final int MAX_RECORDED = 100;
+
+    private final String name;
+    private final long latencyMs;
+    private final List<String> sent = new CopyOnWriteArrayList<>();
+
+    public StubTextMessageProvider(String name, long latencyMs) {
+        this.name = name;
+        this.latencyMs = latencyMs;
+    }
+
+    @Override
+    public void send(String phoneNumber, String text) {
+        if (latencyMs > 0) {
+            try {
+                Thread.sleep(latencyMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(name + " stub interrupted", e);
+            }
+        }
+        log.info("[{} stub] to {}: {}", name, phoneNumber, text);
+        if (sent.size() >= MAX_RECORDED) {
+            sent.remove(0);
+        }
+        sent.add(phoneNumber + ": " + text);
+    }
+
+    public List<String> getSent() {
+        return sent;
+    }
+}
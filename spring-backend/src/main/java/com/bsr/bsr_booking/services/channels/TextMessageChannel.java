@@ -0,0 +1,45 @@
+package com.bsr.bsr_booking.services.channels;
+
+import com.bsr.bsr_booking.entities.Notification;
+import com.bsr.bsr_booking.entities.User;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Shared delivery for the phone-number based channels; providers take one message per call
+abstract class TextMessageChannel implements NotificationChannel {
+
+    private final TextMessageProvider provider;
+    private final ThreadPoolTaskExecutor executor;
+
+    TextMessageChannel(TextMessageProvider provider, ThreadPoolTaskExecutor executor) {
+        this.provider = provider;
+        this.executor = executor;
+    }
+
+    @Override
+    public String recipientFor(User user) {
+        String phoneNumber = user.getPhoneNumber();
+        return phoneNumber == null || phoneNumber.isBlank() ? null : phoneNumber;
+    }
+
+    @Override
+    public ThreadPoolTaskExecutor executor() {
+        return executor;
+    }
+
+    @Override
+    public List<Exception> deliver(List<Notification> batch) {
+        List<Exception> failures = new ArrayList<>(batch.size());
+        for (Notification notification : batch) {
+            try {
+                provider.send(notification.getRecipient(), notification.getSubject() + "\n" + notification.getBody());
+                failures.add(null);
+            } catch (Exception e) {
+                failures.add(e);
+            }
+        }
+        return failures;
+    }
+}
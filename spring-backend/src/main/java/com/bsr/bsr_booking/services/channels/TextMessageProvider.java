@@ -0,0 +1,10 @@
+package com.bsr.bsr_booking.services.channels;
+
+/**
+ * Outbound gateway for short text messages (an SMS aggregator, the WhatsApp Business API, ...).
+ * Implementations throw on any failure; the dispatcher takes care of retries.
+ */
+public interface TextMessageProvider {
+
+    void send(String phoneNumber, String text);
+}
@@ -0,0 +1,20 @@
+package com.bsr.bsr_booking.services.channels;
+
+import com.bsr.bsr_booking.enums.NotificationType;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+@Component
+public class WhatsappChannel extends TextMessageChannel {
+
+    public WhatsappChannel(@Qualifier("whatsappProvider") TextMessageProvider provider,
+                           @Qualifier("whatsappNotificationExecutor") ThreadPoolTaskExecutor executor) {
+        super(provider, executor);
+    }
+
+    @Override
+    public NotificationType type() {
+        return NotificationType.WHASTSAPP;
+    }
+}
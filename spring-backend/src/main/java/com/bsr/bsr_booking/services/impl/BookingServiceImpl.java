@@ -12,7 +12,10 @@ import com.bsr.bsr_booking.exceptions.InvalidBookingStateAndDateException;
 import com.bsr.bsr_booking.exceptions.NotFoundException;
 import com.bsr.bsr_booking.repositories.BookingRepository;
 import com.bsr.bsr_booking.repositories.RoomRepository;
+import com.bsr.bsr_booking.services.AggregateVersions;
+import com.bsr.bsr_booking.services.AvailabilityCache;
 import com.bsr.bsr_booking.services.BookingCodeGenerator;
+import com.bsr.bsr_booking.services.BookingHoldManager;
 import com.bsr.bsr_booking.services.BookingService;
 import com.bsr.bsr_booking.services.NotificationService;
 import com.bsr.bsr_booking.services.UserService;
@@ -41,6 +44,9 @@ public class BookingServiceImpl implements BookingService {
     private final ModelMapper modelMapper;
     private final UserService userService;
     private final BookingCodeGenerator bookingCodeGenerator;
+    private final AvailabilityCache availabilityCache;
+    private final AggregateVersions aggregateVersions;
+    private final BookingHoldManager bookingHoldManager;
 
 
     @Override
@@ -105,8 +111,11 @@ public class BookingServiceImpl implements BookingService {
         booking.setBookingStatus(BookingStatus.BOOKED);
         booking.setPaymentStatus(PaymentStatus.PENDING);
         booking.setCreatedAt(LocalDateTime.now());
+        booking.setHoldExpiresAt(bookingHoldManager.newHoldExpiry()); //room is only held until payment or expiry
 
         bookingRepository.save(booking); //save to database
+        bookingHoldManager.track(booking);
+        onBookingChanged(booking);
 
         // Don't send email here - email will be sent only after payment is successful
         // Return booking reference and amount for payment page redirect
@@ -153,6 +162,7 @@ public class BookingServiceImpl implements BookingService {
         }
 
         bookingRepository.save(existingBooking);
+        onBookingChanged(existingBooking);
 
         return Response.builder()
                 .status(200)
@@ -161,6 +171,14 @@ public class BookingServiceImpl implements BookingService {
     }
 
 
+    //drop cached availability for the booked range and move the ETag versions on
+    private void onBookingChanged(Booking booking){
+        availabilityCache.invalidateOverlapping(booking.getCheckInDate(), booking.getCheckOutDate());
+        aggregateVersions.bookingChanged(
+                booking.getRoom() != null ? booking.getRoom().getId() : null,
+                booking.getUser() != null ? booking.getUser().getEmail() : null);
+    }
+
     private BigDecimal calculateTotalPrice(Room room, BookingDTO bookingDTO){
         BigDecimal pricePerNight = room.getPricePerNight();
         long days = ChronoUnit.DAYS.between(bookingDTO.getCheckInDate(), bookingDTO.getCheckOutDate());
@@ -5,6 +5,7 @@ import com.bsr.bsr_booking.dtos.Response;
 import com.bsr.bsr_booking.entities.HotelImage;
 import com.bsr.bsr_booking.exceptions.NotFoundException;
 import com.bsr.bsr_booking.repositories.HotelImageRepository;
+import com.bsr.bsr_booking.services.AggregateVersions;
 import com.bsr.bsr_booking.services.HotelImageService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -24,6 +25,7 @@ public class HotelImageServiceImpl implements HotelImageService {
 
     private final HotelImageRepository hotelImageRepository;
     private final ModelMapper modelMapper;
+    private final AggregateVersions aggregateVersions;
 
     @Override
     public Response addMultipleHotelImages(List<MultipartFile> imageFiles, List<String> descriptions) {
@@ -87,6 +89,8 @@ public class HotelImageServiceImpl implements HotelImageService {
             }
         }
 
+        aggregateVersions.imagesChanged();
+
         List<HotelImageDTO> imageDTOs = modelMapper.map(savedImages, new TypeToken<List<HotelImageDTO>>() {}.getType());
 
         return Response.builder()
@@ -154,6 +158,7 @@ public class HotelImageServiceImpl implements HotelImageService {
         }
 
         hotelImageRepository.save(image);
+        aggregateVersions.imagesChanged();
         log.info("Hotel image updated: {}", id);
 
         HotelImageDTO imageDTO = modelMapper.map(image, HotelImageDTO.class);
@@ -172,6 +177,7 @@ public class HotelImageServiceImpl implements HotelImageService {
         }
 
         hotelImageRepository.deleteById(id);
+        aggregateVersions.imagesChanged();
         log.info("Hotel image deleted: {}", id);
 
         return Response.builder()
@@ -2,57 +2,94 @@ package com.bsr.bsr_booking.services.impl;
 
 import com.bsr.bsr_booking.dtos.NotificationDTO;
 import com.bsr.bsr_booking.entities.Notification;
+import com.bsr.bsr_booking.entities.User;
+import com.bsr.bsr_booking.enums.NotificationStatus;
 import com.bsr.bsr_booking.enums.NotificationType;
 import com.bsr.bsr_booking.repositories.NotificationRepository;
 import com.bsr.bsr_booking.services.NotificationService;
-import lombok.RequiredArgsConstructor;
+import com.bsr.bsr_booking.services.channels.NotificationChannel;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.mail.SimpleMailMessage;
-import org.springframework.mail.javamail.JavaMailSender;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 @Service
 @Slf4j
-@RequiredArgsConstructor
 public class NotificationServiceImpl implements NotificationService {
 
 
-    private final JavaMailSender javaMailSender;
-
     private final NotificationRepository notificationRepository;
+    private final Map<NotificationType, NotificationChannel> channels = new EnumMap<>(NotificationType.class);
 
+    public NotificationServiceImpl(NotificationRepository notificationRepository, List<NotificationChannel> channels) {
+        this.notificationRepository = notificationRepository;
+        channels.forEach(channel -> this.channels.put(channel.type(), channel));
+    }
+
+    // Writes the email to the outbox in the caller's transaction; NotificationDispatcher delivers it
     @Override
-    @Async
+    @Transactional
     public void sendEmail(NotificationDTO notificationDTO) {
-        log.info("Sending email ...");
-
-        SimpleMailMessage simpleMailMessage = new SimpleMailMessage();
-        simpleMailMessage.setTo(notificationDTO.getRecipient());
-        simpleMailMessage.setSubject(notificationDTO.getSubject());
-        simpleMailMessage.setText(notificationDTO.getBody());
-
-        javaMailSender.send(simpleMailMessage);
-
-        //SAVE TO DATABSE
-        Notification notificationToSave = Notification.builder()
-                .recipient(notificationDTO.getRecipient())
-                .subject(notificationDTO.getSubject())
-                .body(notificationDTO.getBody())
-                .bookingReference(notificationDTO.getBookingReference())
-                .type(NotificationType.EMAIL)
-                .build();
-
-        notificationRepository.save(notificationToSave);
+        log.info("Queueing email ...");
+        notificationRepository.save(toOutboxRow(notificationDTO, NotificationType.EMAIL, notificationDTO.getRecipient()));
     }
 
+    // recipient is the phone number for the text channels
     @Override
-    public void sendSms() {
+    @Transactional
+    public void sendSms(NotificationDTO notificationDTO) {
+        log.info("Queueing sms ...");
+        notificationRepository.save(toOutboxRow(notificationDTO, NotificationType.SMS, notificationDTO.getRecipient()));
+    }
 
+    @Override
+    @Transactional
+    public void sendWhatsapp(NotificationDTO notificationDTO) {
+        log.info("Queueing whatsapp message ...");
+        notificationRepository.save(toOutboxRow(notificationDTO, NotificationType.WHASTSAPP, notificationDTO.getRecipient()));
     }
 
     @Override
-    public void sendWhatsapp() {
+    @Transactional
+    public void notifyUser(User user, NotificationDTO notificationDTO) {
+        Set<NotificationType> preferred = user.getNotificationChannels();
+        if (preferred == null || preferred.isEmpty()) {
+            preferred = Set.of(NotificationType.EMAIL);
+        }
+
+        //one outbox row per channel, each addressed from the user's profile
+        List<Notification> rows = new ArrayList<>();
+        for (NotificationType type : preferred) {
+            NotificationChannel channel = channels.get(type);
+            if (channel == null) {
+                log.warn("No {} channel configured, skipping it for {}", type, user.getEmail());
+                continue;
+            }
+            String recipient = channel.recipientFor(user);
+            if (recipient == null) {
+                log.warn("User {} has no address for {}, skipping it", user.getEmail(), type);
+                continue;
+            }
+            rows.add(toOutboxRow(notificationDTO, type, recipient));
+        }
+        log.info("Queueing notification on {} channel(s) ...", rows.size());
+        notificationRepository.saveAll(rows);
+    }
 
+    private Notification toOutboxRow(NotificationDTO notificationDTO, NotificationType type, String recipient) {
+        //SAVE TO DATABSE AS PENDING
+        return Notification.builder()
+                .recipient(recipient)
+                .subject(notificationDTO.getSubject())
+                .body(notificationDTO.getBody())
+                .bookingReference(notificationDTO.getBookingReference())
+                .type(type)
+                .status(NotificationStatus.PENDING)
+                .build();
     }
 }
@@ -9,6 +9,9 @@ import com.bsr.bsr_booking.exceptions.InvalidBookingStateAndDateException;
 import com.bsr.bsr_booking.exceptions.NotFoundException;
 import com.bsr.bsr_booking.repositories.BookingRepository;
 import com.bsr.bsr_booking.repositories.RoomRepository;
+import com.bsr.bsr_booking.services.AggregateVersions;
+import com.bsr.bsr_booking.services.AvailabilityCache;
+import com.bsr.bsr_booking.services.RequestCoalescer;
 import com.bsr.bsr_booking.services.RoomService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -23,8 +26,13 @@ import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 @Slf4j
@@ -35,6 +43,9 @@ public class RoomServiceImpl implements RoomService {
     private final RoomRepository roomRepository;
     private final BookingRepository bookingRepository;
     private final ModelMapper modelMapper;
+    private final AvailabilityCache availabilityCache;
+    private final RequestCoalescer requestCoalescer;
+    private final AggregateVersions aggregateVersions;
 
     //image directory for storing room images
     private static final String IMAGE_DIRECTORY = System.getProperty("user.dir") + File.separator + "uploads" + File.separator + "rooms" + File.separator;
@@ -57,6 +68,8 @@ public class RoomServiceImpl implements RoomService {
         }
 
         roomRepository.save(roomToSave);
+        availabilityCache.invalidateAll();
+        aggregateVersions.roomsChanged();
 
         return Response.builder()
                 .status(200)
@@ -90,6 +103,8 @@ public class RoomServiceImpl implements RoomService {
         if(roomDTO.getDescription() != null) existingRoom.setDescription(roomDTO.getDescription());
 
         roomRepository.save(existingRoom);
+        availabilityCache.invalidateAll();
+        aggregateVersions.roomsChanged();
 
         return Response.builder()
                 .status(200)
@@ -136,6 +151,8 @@ public class RoomServiceImpl implements RoomService {
             throw new NotFoundException("Room not found");
         }
         roomRepository.deleteById(id);
+        availabilityCache.invalidateAll();
+        aggregateVersions.roomsChanged();
 
         return Response.builder()
                 .status(200)
@@ -161,7 +178,26 @@ public class RoomServiceImpl implements RoomService {
             throw new InvalidBookingStateAndDateException("check in date cannot be equal to check out date ");
         }
 
-        List<Room> roomList = roomRepository.findAvailableRooms(checkInDate, checkOutDate, roomType);
+        List<Room> roomList;
+        List<Long> cachedRoomIds = availabilityCache.get(checkInDate, checkOutDate, roomType);
+        if (cachedRoomIds != null) {
+            // findAllById does not keep the order of the ids; list rooms as the availability query did
+            Map<Long, Room> roomsById = roomRepository.findAllById(cachedRoomIds).stream()
+                    .collect(Collectors.toMap(Room::getId, Function.identity()));
+            roomList = cachedRoomIds.stream()
+                    .map(roomsById::get)
+                    .filter(Objects::nonNull)
+                    .toList();
+        } else {
+            // identical concurrent searches share a single availability query
+            String key = "available:" + checkInDate + ":" + checkOutDate + ":" + roomType;
+            roomList = requestCoalescer.execute(key, () -> {
+                long generation = availabilityCache.generation();
+                List<Room> rooms = roomRepository.findAvailableRooms(checkInDate, checkOutDate, roomType);
+                availabilityCache.put(checkInDate, checkOutDate, roomType, rooms.stream().map(Room::getId).toList(), generation);
+                return rooms;
+            });
+        }
 
         List<RoomDTO> roomDTOList = modelMapper.map(roomList,new TypeToken<List<RoomDTO>>() {}.getType());
 
@@ -194,6 +230,17 @@ public class RoomServiceImpl implements RoomService {
 
     @Override
     public Response getBookedDates(Long roomId) {
+        // identical concurrent requests for the same room share a single query
+        List<String> bookedDates = requestCoalescer.execute("booked-dates:" + roomId, () -> loadBookedDates(roomId));
+
+        return Response.builder()
+                .status(200)
+                .message("success")
+                .bookedDates(bookedDates)
+                .build();
+    }
+
+    private List<String> loadBookedDates(Long roomId) {
         // Verify room exists
         if (!roomRepository.existsById(roomId)) {
             throw new NotFoundException("Room not found");
@@ -214,12 +261,7 @@ public class RoomServiceImpl implements RoomService {
                 current = current.plusDays(1);
             }
         }
-
-        return Response.builder()
-                .status(200)
-                .message("success")
-                .bookedDates(bookedDates)
-                .build();
+        return Collections.unmodifiableList(bookedDates);
     }
 
 
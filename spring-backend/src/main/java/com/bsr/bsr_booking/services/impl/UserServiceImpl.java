@@ -9,6 +9,7 @@ import com.bsr.bsr_booking.exceptions.NotFoundException;
 import com.bsr.bsr_booking.repositories.BookingRepository;
 import com.bsr.bsr_booking.repositories.UserRepository;
 import com.bsr.bsr_booking.security.JwtUtils;
+import com.bsr.bsr_booking.services.AggregateVersions;
 import com.bsr.bsr_booking.services.UserService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -19,6 +20,7 @@ import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
+import java.util.HashSet;
 import java.util.List;
 
 @Service
@@ -31,6 +33,7 @@ public class UserServiceImpl implements UserService {
     private final JwtUtils jwtUtils;
     private final ModelMapper modelMapper;
     private final BookingRepository bookingRepository;
+    private final AggregateVersions aggregateVersions;
 
 
     @Override
@@ -126,18 +129,26 @@ public class UserServiceImpl implements UserService {
     @Override
     public Response updateOwnAccount(UserDTO userDTO) {
        User existingUser = getCurrentLoggedInUser();
+       String previousEmail = existingUser.getEmail();
        log.info("Inside update user");
 
         if (userDTO.getEmail() != null) existingUser.setEmail(userDTO.getEmail());
         if (userDTO.getFirstName() != null) existingUser.setFirstName(userDTO.getFirstName());
         if (userDTO.getLastName() != null) existingUser.setLastName(userDTO.getLastName());
         if (userDTO.getPhoneNumber() != null) existingUser.setPhoneNumber(userDTO.getPhoneNumber());
+        if (userDTO.getNotificationChannels() != null) {
+            existingUser.setNotificationChannels(new HashSet<>(userDTO.getNotificationChannels()));
+        }
 
         if (userDTO.getPassword() != null && !userDTO.getPassword().isEmpty()) {
             existingUser.setPassword(passwordEncoder.encode(userDTO.getPassword()));
         }
         userRepository.save(existingUser);
 
+        //bookings embed the user, so both the old and new identity see a new version
+        aggregateVersions.userBookingsChanged(previousEmail);
+        aggregateVersions.userBookingsChanged(existingUser.getEmail());
+
         return Response.builder()
                 .status(200)
                 .message("user updated successfully")
@@ -148,6 +159,7 @@ public class UserServiceImpl implements UserService {
     public Response deleteOwnAccount() {
         User user = getCurrentLoggedInUser();
         userRepository.delete(user);
+        aggregateVersions.userBookingsChanged(user.getEmail());
 
         return Response.builder()
                 .status(200)
@@ -0,0 +1,112 @@
+package com.bsr.bsr_booking.agent.service;
+
+import com.bsr.bsr_booking.agent.dto.AgentDecision;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class AgentDecisionCacheTest {
+
+    private final AtomicLong now = new AtomicLong();
+    private SimpleMeterRegistry meterRegistry;
+    private AgentDecisionCache cache;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        cache = new AgentDecisionCache(meterRegistry, 2, 1000, 160, now::get);
+    }
+
+    @Test
+    void sameOpenerInTheSameContextHits() {
+        ConversationContext ctx = new ConversationContext();
+        cache.put(cache.keyFor("Show rooms!", ctx), decision("small_talk", Map.of()));
+
+        AgentDecision hit = cache.get(cache.keyFor("  show   ROOMS ", ctx));
+        assertNotNull(hit);
+        assertEquals("small_talk", hit.getAction());
+
+        ctx.checkIn = "2026-11-02";
+        assertNull(cache.get(cache.keyFor("show rooms", ctx)));
+        assertEquals(0.5, meterRegistry.get("agent.decision.cache.hit.ratio").gauge().value());
+    }
+
+    @Test
+    void followUpOnlyHitsAfterTheSameAssistantReply() {
+        ConversationContext first = new ConversationContext();
+        first.lastAssistant = "Shall I book room 101 for you?";
+        cache.put(cache.keyFor("yes", first), decision("small_talk", Map.of()));
+
+        ConversationContext other = new ConversationContext();
+        other.lastAssistant = "Would you like to see our suites?";
+        assertNull(cache.get(cache.keyFor("yes", other)));
+        assertNull(cache.get(cache.keyFor("yes", new ConversationContext())));
+
+        ConversationContext same = new ConversationContext();
+        same.lastAssistant = "Shall I book room 101 for you?";
+        assertNotNull(cache.get(cache.keyFor("Yes!", same)));
+    }
+
+    @Test
+    void handsOutCopiesSoCallersCannotChangeTheEntry() {
+        ConversationContext ctx = new ConversationContext();
+        AgentDecisionCache.Key key = cache.keyFor("hi", ctx);
+        cache.put(key, decision("small_talk", Map.of()));
+
+        cache.get(key).getParams().put("roomId", "7");
+
+        assertEquals(Map.of(), cache.get(key).getParams());
+    }
+
+    @Test
+    void skipsRelativeDatesInferredDatesAndBookings() {
+        ConversationContext ctx = new ConversationContext();
+        assertNull(cache.keyFor("rooms for tomorrow", ctx));
+        assertNull(cache.keyFor("anything this weekend?", ctx));
+
+        AgentDecisionCache.Key key = cache.keyFor("rooms around christmas", ctx);
+        cache.put(key, decision("available_rooms", Map.of("checkInDate", "2026-11-15", "checkOutDate", "2026-11-16")));
+        assertNull(cache.get(key));
+
+        AgentDecisionCache.Key explicit = cache.keyFor("rooms 2026-11-15 to 2026-11-16", ctx);
+        cache.put(explicit, decision("available_rooms", Map.of("checkInDate", "2026-11-15", "checkOutDate", "2026-11-16")));
+        assertNotNull(cache.get(explicit));
+
+        AgentDecisionCache.Key booking = cache.keyFor("book room 101", ctx);
+        cache.put(booking, decision("create_booking", Map.of("roomNumber", "101")));
+        assertNull(cache.get(booking));
+        assertEquals(2.0, meterRegistry.get("agent.decision.cache.requests").tag("result", "skipped_relative_date").counter().count());
+    }
+
+    @Test
+    void expiresAndEvictsLeastRecentlyUsed() {
+        ConversationContext ctx = new ConversationContext();
+        cache.put(cache.keyFor("hi", ctx), decision("small_talk", Map.of()));
+        cache.put(cache.keyFor("hello", ctx), decision("small_talk", Map.of()));
+        cache.get(cache.keyFor("hi", ctx));
+        cache.put(cache.keyFor("hey", ctx), decision("small_talk", Map.of()));
+
+        assertNull(cache.get(cache.keyFor("hello", ctx)));
+        assertNotNull(cache.get(cache.keyFor("hi", ctx)));
+
+        now.addAndGet(1001);
+        assertNull(cache.get(cache.keyFor("hi", ctx)));
+        assertEquals(1.0, meterRegistry.get("agent.decision.cache.size").gauge().value());
+    }
+
+    private static AgentDecision decision(String action, Map<String, Object> params) {
+        AgentDecision decision = new AgentDecision();
+        decision.setAction(action);
+        decision.setParams(new HashMap<>(params));
+        decision.setResponse("ok");
+        return decision;
+    }
+}
@@ -0,0 +1,156 @@
+package com.bsr.bsr_booking.agent.service;
+
+import com.bsr.bsr_booking.agent.dto.AgentAction;
+import com.bsr.bsr_booking.agent.dto.AgentChatMessage;
+import com.bsr.bsr_booking.agent.dto.AgentChatRequest;
+import com.bsr.bsr_booking.agent.dto.AgentChatResponse;
+import com.bsr.bsr_booking.dtos.Response;
+import com.bsr.bsr_booking.dtos.RoomDTO;
+import com.bsr.bsr_booking.repositories.RoomRepository;
+import com.bsr.bsr_booking.services.BookingService;
+import com.bsr.bsr_booking.services.RoomService;
+import com.bsr.bsr_booking.services.UserService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class AgentServiceContextTest {
+
+    private GeminiClient geminiClient;
+    private RoomService roomService;
+    private InMemoryAgentSessionStore sessionStore;
+    private AgentService agentService;
+
+    @BeforeEach
+    void setUp() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        geminiClient = mock(GeminiClient.class);
+        roomService = mock(RoomService.class);
+        sessionStore = new InMemoryAgentSessionStore(meterRegistry, 100, 30, 2000);
+        agentService = new AgentService(geminiClient, new ObjectMapper(), mock(UserService.class), roomService,
+                mock(BookingService.class), mock(RoomRepository.class), sessionStore, new SimpleAsyncTaskExecutor(),
+                new SimpleAsyncTaskExecutor(),
+                new PromptBuilder(meterRegistry, 6, 1500, 600),
+                new ModelCallGate(meterRegistry, 4, 4, 500, 20, 10, 0.5, 30_000_000_000L, System::nanoTime),
+                new AgentDecisionCache(meterRegistry, 100, 60_000_000_000L, 160, System::nanoTime),
+                new FaqKnowledgeBase(new DefaultResourceLoader(), meterRegistry, "classpath:agent/faq.txt", 2.5, 0.5),
+                new SessionTurnSerializer(meterRegistry));
+    }
+
+    @Test
+    void readsOnlyNewMessagesOnEachTurn() {
+        List<AgentChatMessage> messages = new ArrayList<>();
+        messages.add(message("user", "any rooms from 2026-11-02 to 2026-11-04?"));
+        messages.add(message("assistant", "Which room type would you like?"));
+        messages.add(message("user", "hi"));
+
+        assertEquals(AgentAction.SMALL_TALK, chat(messages));
+        AgentSession session = sessionStore.get("s1").orElseThrow();
+        assertEquals(3, session.processedMessages());
+        assertEquals("2026-11-02", session.derived().checkIn);
+
+        messages.add(message("assistant", "Hi! Tell me if you want available rooms."));
+        messages.add(message("user", "we want to book"));
+        messages.add(message("user", "hello"));
+        chat(messages);
+
+        session = sessionStore.get("s1").orElseThrow();
+        assertEquals(6, session.processedMessages());
+        assertEquals("2026-11-02", session.derived().checkIn);
+        assertEquals(ConversationIntent.BOOK_ROOM, session.derived().intent);
+        assertEquals("hello", session.derived().lastUser);
+        verifyNoInteractions(geminiClient);
+    }
+
+    @Test
+    void rereadsAHistoryTheClientRewrote() {
+        chat(List.of(message("user", "any rooms from 2026-11-02 to 2026-11-04?"), message("user", "hi")));
+
+        chat(List.of(message("user", "hello")));
+
+        AgentSession session = sessionStore.get("s1").orElseThrow();
+        assertEquals(1, session.processedMessages());
+        assertNull(session.derived().checkIn);
+    }
+
+    @Test
+    void runsEveryLookupOfAMultiActionDecision() {
+        when(geminiClient.generateTextAsync(anyString())).thenReturn(CompletableFuture.completedFuture("""
+                {"actions":[{"action":"available_rooms","params":{"checkInDate":"2026-11-02","checkOutDate":"2026-11-04"}},
+                {"action":"get_room_by_id","params":{"id":7}}],"response":"Here are both."}"""));
+        when(roomService.getAvailableRooms(any(), any(), any()))
+                .thenReturn(Response.builder().status(200).rooms(List.of(new RoomDTO())).build());
+        when(roomService.getRoomById(7L)).thenReturn(Response.builder().status(200).room(new RoomDTO()).build());
+
+        AgentChatRequest request = AgentChatRequest.builder().sessionId("s1")
+                .messages(List.of(message("user", "compare what you have with number 7"))).build();
+        AgentChatResponse response = agentService.handleChatAsync(request).join();
+
+        assertEquals("Here are both.", response.getReply());
+        assertEquals(AgentAction.AVAILABLE_ROOMS, response.getAction());
+        assertEquals(List.of(AgentAction.AVAILABLE_ROOMS, AgentAction.GET_ROOM_BY_ID),
+                response.getResults().stream().map(AgentChatResponse::getAction).toList());
+        assertEquals(1, response.getBackendResponse().getRooms().size());
+        assertNotNull(response.getBackendResponse().getRoom());
+    }
+
+    @Test
+    void streamsNothingWhenALaterStepIsBanned() {
+        String output = """
+                {"actions":[{"action":"available_rooms","params":{}},{"action":"delete_own_account","params":{}}],\
+                "response":"Done, your account is gone."}""";
+        when(geminiClient.streamTextAsync(anyString(), any())).thenAnswer(invocation -> {
+            Consumer<String> onChunk = invocation.getArgument(1);
+            for (int i = 0; i < output.length(); i += 16) {
+                onChunk.accept(output.substring(i, Math.min(output.length(), i + 16)));
+            }
+            return CompletableFuture.completedFuture(output);
+        });
+        List<String> events = new ArrayList<>();
+        AgentStreamListener listener = new AgentStreamListener() {
+            @Override
+            public void onAction(AgentAction action) {
+                events.add("action " + action);
+            }
+
+            @Override
+            public void onDelta(String text) {
+                events.add("delta " + text);
+            }
+        };
+
+        AgentChatRequest request = AgentChatRequest.builder().sessionId("s1")
+                .messages(List.of(message("user", "compare what you have with number 7"))).build();
+        AgentChatResponse response = agentService.handleChatStream(request, listener).join();
+
+        assertEquals(List.of(), events);
+        assertEquals(AgentAction.UNKNOWN, response.getAction());
+        assertEquals("Sorry, that action is not allowed from the chatbot.", response.getReply());
+    }
+
+    private AgentAction chat(List<AgentChatMessage> messages) {
+        AgentChatRequest request = AgentChatRequest.builder().sessionId("s1").messages(new ArrayList<>(messages)).build();
+        return agentService.handleChatAsync(request).join().getAction();
+    }
+
+    private static AgentChatMessage message(String role, String content) {
+        return AgentChatMessage.builder().role(role).content(content).build();
+    }
+}
@@ -0,0 +1,87 @@
+package com.bsr.bsr_booking.agent.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.DefaultResourceLoader;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FaqKnowledgeBaseTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void answersResortQuestionsAndLeavesBookingRequestsToTheModel() {
+        FaqKnowledgeBase faq = knowledgeBase("classpath:agent/faq.txt", 2.5);
+
+        assertTrue(faq.answer("Do you have parking?").orElseThrow().contains("parking is free"));
+        assertTrue(faq.answer("what is your phone number").orElseThrow().contains("+91 9410582284"));
+        assertTrue(faq.answer("is there hot water").orElseThrow().contains("geyser"));
+
+        assertEquals(Optional.empty(), faq.answer("available rooms tomorrow"));
+        assertEquals(Optional.empty(), faq.answer("book room 101"));
+        assertEquals(Optional.empty(), faq.answer("my bookings"));
+        assertEquals(Optional.empty(), faq.answer("hello"));
+        assertEquals(3.0, meterRegistry.get("agent.faq.lookups").tag("result", "answered").counter().count());
+    }
+
+    @Test
+    void reindexesOnlyWhenTheFileChanges() throws IOException {
+        Path file = dir.resolve("faq.txt");
+        write(file, "Q: Is there parking?\nA: Yes, free parking.\n\nQ: Do you have wifi?\nA: Not yet.\n", 1000);
+        // two questions give every word a low idf, so the score bar is lowered
+        FaqKnowledgeBase faq = knowledgeBase(file.toUri().toString(), 0.5);
+        assertEquals("Not yet.", faq.answer("any wifi?").orElseThrow());
+
+        write(file, "Q: Is there parking?\nA: Yes, free parking.\n\nQ: Do you have wifi?\nA: Yes, in every room.\n", 2000);
+        faq.reloadIfChanged();
+
+        assertEquals("Yes, in every room.", faq.answer("any wifi?").orElseThrow());
+        assertEquals("Yes, free parking.", faq.answer("is there parking").orElseThrow());
+        assertEquals(2.0, meterRegistry.get("agent.faq.entries").gauge().value());
+    }
+
+    @Test
+    void parsesMultiLineAnswersAndSkipsIncompleteEntries() {
+        Map<String, FaqKnowledgeBase.Entry> entries = FaqKnowledgeBase.parse("""
+                # comment
+                Q: Where are you?
+                Q: What is the address?
+                A: Nagrasu,
+                   Rudraprayag.
+
+                Q: A question nobody answered
+
+                A: An answer without a question
+                """);
+
+        assertEquals(1, entries.size());
+        FaqKnowledgeBase.Entry entry = entries.values().iterator().next();
+        assertEquals(List.of("Where are you?", "What is the address?"), entry.questions());
+        assertEquals("Nagrasu, Rudraprayag.", entry.answer());
+    }
+
+    private FaqKnowledgeBase knowledgeBase(String location, double minScore) {
+        FaqKnowledgeBase faq = new FaqKnowledgeBase(new DefaultResourceLoader(), meterRegistry, location, minScore, 0.5);
+        faq.load();
+        return faq;
+    }
+
+    private static void write(Path file, String content, long lastModifiedMillis) throws IOException {
+        Files.writeString(file, content);
+        Files.setLastModifiedTime(file, FileTime.fromMillis(lastModifiedMillis));
+    }
+}
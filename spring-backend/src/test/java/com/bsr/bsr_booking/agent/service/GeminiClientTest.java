@@ -0,0 +1,122 @@
+package com.bsr.bsr_booking.agent.service;
+
+import com.bsr.bsr_booking.support.GeminiStubServer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GeminiClientTest {
+
+    private GeminiStubServer stub;
+    private SimpleMeterRegistry meterRegistry;
+    private GeminiClient client;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        stub = new GeminiStubServer();
+        meterRegistry = new SimpleMeterRegistry();
+        client = new GeminiClient(new ObjectMapper(), meterRegistry, stub.getBaseUrl(), "gemini-test",
+                1000, 500, 2000, 3, 10, 50);
+        ReflectionTestUtils.setField(client, "geminiApiKey", "test-key");
+    }
+
+    @AfterEach
+    void tearDown() {
+        stub.close();
+    }
+
+    @Test
+    void returnsTheModelTextWithoutBlockingTheCaller() {
+        stub.setDelayMs(200);
+        long start = System.nanoTime();
+        var reply = client.generateTextAsync("hello");
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 150);
+        assertFalse(reply.isDone());
+
+        assertTrue(reply.join().contains("Hello from the stub"));
+        assertEquals("hello", stub.getLastPrompt());
+    }
+
+    @Test
+    void streamsTextLongBeforeTheReplyIsComplete() {
+        String reply = "{\"action\":\"small_talk\",\"params\":{},\"response\":\"We have three rooms free that weekend.\"}";
+        stub.setResponder(prompt -> reply);
+        stub.setStreaming(10, 40);
+        List<String> chunks = new CopyOnWriteArrayList<>();
+        AtomicLong firstChunkAt = new AtomicLong();
+
+        long start = System.nanoTime();
+        String text = client.streamTextAsync("hello", chunk -> {
+            firstChunkAt.compareAndSet(0, System.nanoTime());
+            chunks.add(chunk);
+        }).join();
+        long total = System.nanoTime() - start;
+
+        assertEquals(reply, text);
+        assertEquals(reply, String.join("", chunks));
+        assertTrue(chunks.size() > 5);
+        assertTrue(firstChunkAt.get() - start < total / 3, "first chunk should arrive well before the end");
+    }
+
+    @Test
+    void retriesAStreamThatFailsBeforeItStarts() {
+        stub.failNext(1, 503);
+        List<String> chunks = new CopyOnWriteArrayList<>();
+
+        String text = client.streamTextAsync("hello", chunks::add).join();
+
+        assertEquals(text, String.join("", chunks));
+        assertEquals(2, stub.getRequests());
+    }
+
+    @Test
+    void retriesRateLimitsAndServerErrors() {
+        stub.failNext(1, 429);
+        stub.failNext(1, 503);
+
+        assertTrue(client.generateTextAsync("hello").join().contains("small_talk"));
+        assertEquals(3, stub.getRequests());
+        assertEquals(2.0, meterRegistry.get("gemini.request.retries").counter().count());
+    }
+
+    @Test
+    void givesUpAfterMaxAttempts() {
+        stub.failNext(5, 500);
+
+        CompletionException e = assertThrows(CompletionException.class, () -> client.generateTextAsync("hello").join());
+        assertTrue(e.getCause().getMessage().contains("HTTP 500"));
+        assertEquals(3, stub.getRequests());
+    }
+
+    @Test
+    void doesNotRetryClientErrors() {
+        stub.failNext(1, 400);
+
+        assertThrows(CompletionException.class, () -> client.generateTextAsync("hello").join());
+        assertEquals(1, stub.getRequests());
+    }
+
+    @Test
+    void slowAttemptsTimeOutWithinTheDeadline() {
+        stub.setDelayMs(1500);
+        long start = System.nanoTime();
+
+        assertThrows(CompletionException.class, () -> client.generateTextAsync("hello").join());
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 2500);
+    }
+}
@@ -0,0 +1,64 @@
+package com.bsr.bsr_booking.agent.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InMemoryAgentSessionStoreTest {
+
+    private final AtomicLong now = new AtomicLong();
+    private SimpleMeterRegistry meterRegistry;
+    private InMemoryAgentSessionStore store;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        store = new InMemoryAgentSessionStore(meterRegistry, 2, 1000, 10, now::get);
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedSessionWhenFull() {
+        store.put("a", new AgentSession());
+        store.put("b", new AgentSession());
+        store.get("a");
+        store.put("c", new AgentSession());
+
+        assertTrue(store.get("a").isPresent());
+        assertTrue(store.get("b").isEmpty());
+        assertTrue(store.get("c").isPresent());
+        assertEquals(1.0, meterRegistry.get("agent.sessions.evictions").tag("reason", "size").counter().count());
+        assertEquals(2.0, meterRegistry.get("agent.sessions.live").gauge().value());
+    }
+
+    @Test
+    void dropsIdleSessions() {
+        store.put("a", new AgentSession());
+        store.put("b", new AgentSession());
+        now.set(600);
+        store.get("b");
+        now.set(1200);
+
+        store.evictIdle();
+
+        assertEquals(1, store.size());
+        assertTrue(store.get("b").isPresent());
+        now.set(3000);
+        assertTrue(store.get("b").isEmpty());
+        assertEquals(0.0, meterRegistry.get("agent.sessions.bytes").gauge().value());
+        assertEquals(2.0, meterRegistry.get("agent.sessions.evictions").tag("reason", "idle").counter().count());
+    }
+
+    @Test
+    void capsFreeTextPerSession() {
+        ConversationContext context = new ConversationContext();
+        context.lastUser = "a very long message from the guest";
+        store.put("a", new AgentSession().withState(context));
+
+        assertEquals("a very lon", store.get("a").orElseThrow().state().lastUser);
+    }
+}
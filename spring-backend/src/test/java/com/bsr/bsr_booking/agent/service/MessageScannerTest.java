@@ -0,0 +1,170 @@
+package com.bsr.bsr_booking.agent.service;
+
+import com.bsr.bsr_booking.agent.service.MessageScanner.Keyword;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+// Golden corpus plus a seeded differential run against the regexes and formatters the scanner replaced
+class MessageScannerTest {
+
+    private static final LocalDate TODAY = LocalDate.of(2026, 11, 1);
+
+    private static final List<String> LEGACY_KEYWORDS = List.of("rooms", "available", "book", "reserve", "same date",
+            "same day", "same dates", "book this", "book one", "book on same date", "tomorrow", "today", "tonight");
+    private static final Pattern LEGACY_DATE = Pattern.compile("(?i)(\\d{1,2}\\s*[A-Za-z]{3,9}\\s*\\d{4}|\\d{4}-\\d{2}-\\d{2}|\\d{1,2}/\\d{1,2}/\\d{4}|\\d{1,2}-\\d{1,2}-\\d{4})");
+    private static final Pattern LEGACY_ROOM = Pattern.compile("room\\s*(number\\s*)?(\\d{1,5})", Pattern.CASE_INSENSITIVE);
+    private static final Pattern LEGACY_ANY_NUMBER = Pattern.compile("\\b(\\d{3,5})\\b");
+    private static final List<DateTimeFormatter> LEGACY_FORMATTERS = List.of(
+            DateTimeFormatter.ISO_LOCAL_DATE,
+            DateTimeFormatter.ofPattern("yyyy/MM/dd"),
+            DateTimeFormatter.ofPattern("dd-MM-yyyy"),
+            DateTimeFormatter.ofPattern("dd/MM/yyyy"),
+            new DateTimeFormatterBuilder().parseCaseInsensitive().appendPattern("d MMM yyyy").toFormatter(Locale.ENGLISH),
+            new DateTimeFormatterBuilder().parseCaseInsensitive().appendPattern("d MMMM yyyy").toFormatter(Locale.ENGLISH),
+            new DateTimeFormatterBuilder().parseCaseInsensitive().appendPattern("dMMMyyyy").toFormatter(Locale.ENGLISH),
+            new DateTimeFormatterBuilder().parseCaseInsensitive().appendPattern("MMM d, yyyy").toFormatter(Locale.ENGLISH),
+            new DateTimeFormatterBuilder().parseCaseInsensitive().appendPattern("MMMM d, yyyy").toFormatter(Locale.ENGLISH)
+    );
+
+    private static final String[] PIECES = {"room", "Room", "ROOM", "number", "rooms", "available", "book", "reserve",
+            "same date", "same day", "book one", "tomorrow", "today", "tonight", "toda", " ", "  ", "\t", "\n", "-", "/",
+            ",", "+", "_", "a", "\u00e9", "e\u0301", "\u0301", "\u0130", "Nov", "november", "Sep", "May", "1", "2", "12",
+            "31", "02", "0", "2026", "0000", "123", "4567", "12345", "123456"};
+
+    @Test
+    void corpusMessagesScanLikeTheLegacyExpressions() throws IOException {
+        List<String> corpus = lines("agent/fallback-corpus.txt");
+        assertFalse(corpus.isEmpty());
+        corpus.forEach(this::assertSameAsLegacy);
+    }
+
+    @Test
+    void randomMessagesScanLikeTheLegacyExpressions() {
+        Random random = new Random(44);
+        for (int i = 0; i < 20_000; i++) {
+            StringBuilder message = new StringBuilder();
+            for (int pieces = random.nextInt(10); pieces > 0; pieces--) {
+                message.append(PIECES[random.nextInt(PIECES.length)]);
+            }
+            assertSameAsLegacy(message.toString());
+        }
+    }
+
+    @Test
+    void corpusDatesParseToTheirGoldenValues() throws IOException {
+        for (String line : lines("agent/date-corpus.txt")) {
+            String[] parts = line.split(" => ");
+            LocalDate parsed = DateTokenizer.parse(parts[0]);
+            assertEquals(parts[1], parsed == null ? "invalid" : parsed.toString(), parts[0]);
+            assertEquals(legacyParse(parts[0]), parsed, parts[0]);
+        }
+    }
+
+    @Test
+    void generatedDatesParseLikeTheLegacyFormatters() {
+        String[] shapes = {"Y-M-D", "Y/M/D", "D-M-Y", "D/M/Y", "D N Y", "DNY", "N D, Y"};
+        String[] years = {"2026", "2024", "0000", "0001", "+2026", "+20261", "-2026", "202", "20261"};
+        String[] months = {"Jan", "feb", "SEP", "Sept", "May", "June", "september", "Mayo", "x"};
+        Random random = new Random(44);
+        for (int i = 0; i < 20_000; i++) {
+            StringBuilder text = new StringBuilder();
+            for (char c : shapes[random.nextInt(shapes.length)].toCharArray()) {
+                switch (c) {
+                    case 'Y' -> text.append(years[random.nextInt(years.length)]);
+                    case 'M', 'D' -> text.append(String.format(random.nextBoolean() ? "%02d" : "%d", random.nextInt(34)));
+                    case 'N' -> text.append(months[random.nextInt(months.length)]);
+                    default -> text.append(c);
+                }
+            }
+            assertEquals(legacyParse(text.toString()), DateTokenizer.parse(text.toString()), text.toString());
+        }
+    }
+
+    @Test
+    void reportsEveryKeywordIncludingOverlappingOnes() {
+        MessageScanner.Scan scan = MessageScanner.scan("Please BOOK ON SAME DATES");
+
+        assertTrue(scan.mentions(Keyword.BOOK));
+        assertTrue(scan.mentions(Keyword.BOOK_ON_SAME_DATE));
+        assertTrue(scan.mentions(Keyword.SAME_DATE));
+        assertTrue(scan.mentions(Keyword.SAME_DATES));
+        assertFalse(scan.mentions(Keyword.SAME_DAY));
+        assertFalse(scan.mentions(Keyword.ROOMS));
+    }
+
+    private void assertSameAsLegacy(String message) {
+        MessageScanner.Scan scan = MessageScanner.scan(message);
+        String lower = message.toLowerCase(Locale.ROOT);
+        for (Keyword keyword : Keyword.values()) {
+            if (scan.mentions(keyword) != lower.contains(LEGACY_KEYWORDS.get(keyword.ordinal()))) {
+                fail(keyword + " differs for: " + message);
+            }
+        }
+        assertEquals(legacyDates(message), scan.dates(TODAY), message);
+        assertEquals(legacyRoomNumber(message), scan.roomNumber(), message);
+    }
+
+    private static List<String> legacyDates(String text) {
+        List<String> results = new ArrayList<>();
+        String lower = text.toLowerCase(Locale.ROOT);
+        if (lower.contains("tomorrow")) {
+            results.add(TODAY.plusDays(1).toString());
+            results.add(TODAY.plusDays(2).toString());
+        } else if (lower.contains("today") || lower.contains("tonight")) {
+            results.add(TODAY.toString());
+            results.add(TODAY.plusDays(1).toString());
+        }
+        Matcher m = LEGACY_DATE.matcher(text);
+        while (m.find() && results.size() < 2) {
+            results.add(m.group(1));
+        }
+        return results;
+    }
+
+    private static Integer legacyRoomNumber(String text) {
+        Matcher m = LEGACY_ROOM.matcher(text);
+        if (m.find()) {
+            return Integer.parseInt(m.group(2));
+        }
+        Matcher any = LEGACY_ANY_NUMBER.matcher(text);
+        return any.find() ? Integer.parseInt(any.group(1)) : null;
+    }
+
+    private static LocalDate legacyParse(String text) {
+        for (DateTimeFormatter formatter : LEGACY_FORMATTERS) {
+            try {
+                return LocalDate.parse(text, formatter);
+            } catch (DateTimeParseException ignored) {
+                // try next formatter
+            }
+        }
+        return null;
+    }
+
+    private static List<String> lines(String resource) throws IOException {
+        try (InputStream in = Objects.requireNonNull(MessageScannerTest.class.getClassLoader().getResourceAsStream(resource))) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8).lines()
+                    .filter(line -> !line.isBlank() && !line.startsWith("#"))
+                    .toList();
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.bsr.bsr_booking.agent.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ModelCallGateTest {
+
+    private final AtomicLong now = new AtomicLong();
+    private SimpleMeterRegistry meterRegistry;
+    private ModelCallGate gate;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        // 1 call in flight, 1 waiting, degrade when 2 of the last 4 calls failed
+        gate = new ModelCallGate(meterRegistry, 1, 1, 200, 4, 2, 0.5, 1000, now::get);
+    }
+
+    @Test
+    void shedsCallsBeyondTheQueueAndHandsTheSlotToTheWaiter() {
+        CompletableFuture<String> first = new CompletableFuture<>();
+        CompletableFuture<String> running = gate.submit(() -> first);
+        CompletableFuture<String> queued = gate.submit(() -> CompletableFuture.completedFuture("second"));
+        CompletableFuture<String> shed = gate.submit(() -> CompletableFuture.completedFuture("third"));
+
+        assertRejected(shed);
+        assertFalse(queued.isDone());
+        assertEquals(1.0, meterRegistry.get("agent.model.gate.active").gauge().value());
+        assertEquals(1.0, meterRegistry.get("agent.model.gate.queued").gauge().value());
+
+        first.complete("first");
+
+        assertEquals("first", running.join());
+        assertEquals("second", queued.join());
+        assertEquals(0.0, meterRegistry.get("agent.model.gate.active").gauge().value());
+        assertEquals(1.0, meterRegistry.get("agent.model.gate.shed").tag("reason", "saturated").counter().count());
+    }
+
+    @Test
+    void shedsAWaiterThatGetsNoSlotInTime() {
+        gate.submit(CompletableFuture::new);
+        CompletableFuture<String> queued = gate.submit(() -> CompletableFuture.completedFuture("late"));
+
+        assertRejected(queued);
+        assertEquals(0.0, meterRegistry.get("agent.model.gate.queued").gauge().value());
+        assertEquals(1.0, meterRegistry.get("agent.model.gate.shed").tag("reason", "queue_timeout").counter().count());
+    }
+
+    @Test
+    void degradesAfterFailuresAndRecoversAfterTheCooldown() {
+        gate.submit(() -> CompletableFuture.failedFuture(new IOException("503"))).exceptionally(e -> null).join();
+        gate.submit(() -> CompletableFuture.failedFuture(new IOException("503"))).exceptionally(e -> null).join();
+
+        assertEquals(ModelCallGate.Mode.DEGRADED, gate.mode());
+        assertEquals(1.0, meterRegistry.get("agent.model.mode").gauge().value());
+        assertRejected(gate.submit(() -> CompletableFuture.completedFuture("skipped")));
+        assertEquals(1.0, meterRegistry.get("agent.model.gate.shed").tag("reason", "degraded").counter().count());
+
+        now.addAndGet(1000);
+
+        assertEquals(ModelCallGate.Mode.NORMAL, gate.mode());
+        assertEquals("ok", gate.submit(() -> CompletableFuture.completedFuture("ok")).join());
+    }
+
+    private static void assertRejected(CompletableFuture<String> future) {
+        CompletionException e = assertThrows(CompletionException.class, future::join);
+        assertInstanceOf(ModelCallGate.RejectedException.class, e.getCause());
+    }
+}
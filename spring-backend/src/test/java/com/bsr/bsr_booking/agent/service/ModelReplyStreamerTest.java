@@ -0,0 +1,80 @@
+package com.bsr.bsr_booking.agent.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ModelReplyStreamerTest {
+
+    private static final String OUTPUT =
+            "{\"action\":\"available_rooms\",\"params\":{\"checkInDate\":\"2026-11-02\"},"
+                    + "\"response\":\"Rooms \\\"101\\\" and 102\\nare free \\u2014 shall I book?\"}";
+
+    @Test
+    void reportsActionAndUnescapedReplyWhateverTheChunking() {
+        for (int size = 1; size <= OUTPUT.length(); size++) {
+            List<String> actions = new ArrayList<>();
+            StringBuilder reply = new StringBuilder();
+            ModelReplyStreamer streamer = new ModelReplyStreamer(actions::addAll, reply::append);
+
+            for (int i = 0; i < OUTPUT.length(); i += size) {
+                streamer.accept(OUTPUT.substring(i, Math.min(OUTPUT.length(), i + size)));
+            }
+
+            assertEquals(List.of("available_rooms"), actions, "chunk size " + size);
+            assertEquals("Rooms \"101\" and 102\nare free — shall I book?", reply.toString(), "chunk size " + size);
+            assertEquals(OUTPUT, streamer.text());
+        }
+    }
+
+    @Test
+    void emitsNothingUntilTheResponseFieldStarts() {
+        List<String> deltas = new ArrayList<>();
+        ModelReplyStreamer streamer = new ModelReplyStreamer(action -> { }, deltas::add);
+
+        streamer.accept("```json\n{\"action\":\"small_talk\",\"params\":{},");
+        assertTrue(deltas.isEmpty());
+        streamer.accept("\"response\": \"Hi");
+        streamer.accept("!\"}\n```");
+
+        assertEquals(List.of("Hi", "!"), deltas);
+    }
+
+    @Test
+    void reportsEveryStepBeforeAnyReplyText() {
+        String output = "{\"actions\":[{\"action\":\"available_rooms\",\"params\":{\"note\":\"a ] \\\" }\"},"
+                + "\"response\":\"step\"},{\"action\":\"delete_own_account\",\"params\":{}}],"
+                + "\"response\":\"Here you go\"}";
+        for (int size = 1; size <= output.length(); size++) {
+            List<String> events = new ArrayList<>();
+            ModelReplyStreamer streamer = new ModelReplyStreamer(
+                    actions -> events.add("actions " + actions), delta -> events.add("delta " + delta));
+
+            for (int i = 0; i < output.length(); i += size) {
+                streamer.accept(output.substring(i, Math.min(output.length(), i + size)));
+            }
+
+            assertEquals("actions [available_rooms, delete_own_account]", events.get(0), "chunk size " + size);
+            assertEquals("Here you go", events.stream().skip(1).map(e -> e.substring("delta ".length()))
+                    .reduce("", String::concat), "chunk size " + size);
+        }
+    }
+
+    @Test
+    void holdsReplyTextWrittenBeforeTheAction() {
+        List<String> events = new ArrayList<>();
+        ModelReplyStreamer streamer = new ModelReplyStreamer(
+                actions -> events.add("actions " + actions), delta -> events.add("delta " + delta));
+
+        streamer.accept("{\"response\":\"Hel");
+        streamer.accept("lo\",");
+        assertTrue(events.isEmpty());
+        streamer.accept("\"action\":\"small_talk\"}");
+
+        assertEquals(List.of("actions [small_talk]", "delta Hello"), events);
+    }
+}
@@ -0,0 +1,105 @@
+package com.bsr.bsr_booking.agent.service;
+
+import com.bsr.bsr_booking.agent.dto.AgentChatMessage;
+import com.bsr.bsr_booking.entities.AgentSessionSnapshot;
+import com.bsr.bsr_booking.repositories.AgentSessionSnapshotRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+class PersistentAgentSessionStoreTest {
+
+    private AgentSessionSnapshotRepository repository;
+    private PersistentAgentSessionStore store;
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(AgentSessionSnapshotRepository.class);
+        store = newStore();
+    }
+
+    @Test
+    void writesEachSessionOnceBehindTheTurns() {
+        store.put("s1", session("2026-11-02"));
+        store.put("s1", session("2026-11-03"));
+        store.put("s2", session("2026-11-04"));
+        verifyNoInteractions(repository);
+
+        store.flush();
+
+        ArgumentCaptor<String> payload = ArgumentCaptor.forClass(String.class);
+        verify(repository).upsert(eq("s1"), payload.capture(), any());
+        verify(repository).upsert(eq("s2"), anyString(), any());
+        assertTrue(payload.getValue().contains("2026-11-03"));
+
+        store.flush();
+        verifyNoMoreInteractions(repository);
+    }
+
+    @Test
+    void restoresASessionAfterARestart() {
+        store.put("s1", session("2026-11-02"));
+        store.flush();
+        ArgumentCaptor<String> payload = ArgumentCaptor.forClass(String.class);
+        verify(repository).upsert(eq("s1"), payload.capture(), any());
+        when(repository.findById("s1")).thenReturn(Optional.of(AgentSessionSnapshot.builder()
+                .sessionId("s1").payload(payload.getValue()).updatedAt(LocalDateTime.now()).build()));
+
+        AgentSession restored = newStore().get("s1").orElseThrow();
+
+        assertEquals("2026-11-02", restored.state().checkIn);
+        assertEquals(ConversationIntent.VIEW_ROOMS, restored.state().intent);
+        assertEquals(3, restored.processedMessages());
+    }
+
+    @Test
+    void keepsSessionsTheDatabaseRejectedForTheNextFlush() {
+        doThrow(new IllegalStateException("database down")).when(repository).upsert(any(), any(), any());
+        store.put("s1", session("2026-11-02"));
+        store.flush();
+
+        reset(repository);
+        store.flush();
+
+        verify(repository).upsert(eq("s1"), anyString(), any());
+    }
+
+    private PersistentAgentSessionStore newStore() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        InMemoryAgentSessionStore memory = new InMemoryAgentSessionStore(meterRegistry, 100, 60_000_000_000L, 2000, System::nanoTime);
+        return new PersistentAgentSessionStore(memory, repository, mock(PlatformTransactionManager.class), new ObjectMapper(),
+                meterRegistry, 2, 24);
+    }
+
+    private static AgentSession session(String checkIn) {
+        ConversationContext state = new ConversationContext();
+        state.intent = ConversationIntent.VIEW_ROOMS;
+        state.checkIn = checkIn;
+        List<AgentChatMessage> messages = List.of(message("hi"), message("rooms"), message("from " + checkIn));
+        return new AgentSession().advance(new ConversationContext(), messages).withState(state);
+    }
+
+    private static AgentChatMessage message(String content) {
+        return AgentChatMessage.builder().role("user").content(content).build();
+    }
+}
@@ -0,0 +1,68 @@
+package com.bsr.bsr_booking.agent.service;
+
+import com.bsr.bsr_booking.agent.dto.AgentChatMessage;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PromptBuilderTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void keepsRecentMessagesVerbatimAndSummarizesTheRest() {
+        PromptBuilder builder = new PromptBuilder(meterRegistry, 4, 5000, 600);
+        ConversationContext ctx = new ConversationContext();
+        ctx.intent = ConversationIntent.BOOK_ROOM;
+        ctx.checkIn = "2026-11-02";
+        ctx.checkOut = "2026-11-04";
+
+        String prompt = builder.build(conversation(10), ctx);
+
+        assertTrue(prompt.contains("(summary of 6 earlier messages: the guest was trying to book a room)"));
+        assertTrue(prompt.contains("checkInDate: 2026-11-02"));
+        assertFalse(prompt.contains("message 5 "));
+        assertTrue(prompt.contains("user: message 6 "));
+        assertTrue(prompt.contains("assistant: message 9 "));
+        assertEquals(6.0, meterRegistry.get("agent.prompt.folded.messages").counter().count());
+    }
+
+    @Test
+    void promptSizeStaysFlatAsTheConversationGrows() {
+        PromptBuilder builder = new PromptBuilder(meterRegistry, 6, 5000, 600);
+
+        int shortChat = builder.build(conversation(6), new ConversationContext()).length();
+        int longChat = builder.build(conversation(200), new ConversationContext()).length();
+
+        assertTrue(longChat < shortChat + 100, shortChat + " vs " + longChat);
+        assertEquals(2, meterRegistry.get("agent.prompt.tokens").summary().count());
+    }
+
+    @Test
+    void foldsMoreWhenTheTokenBudgetIsTight() {
+        PromptBuilder builder = new PromptBuilder(meterRegistry, 6, 0, 600);
+
+        String prompt = builder.build(conversation(6), new ConversationContext());
+
+        // only the latest message survives a budget the template alone exceeds
+        assertTrue(prompt.contains("(summary of 5 earlier messages"));
+        assertTrue(prompt.contains("assistant: message 5 "));
+    }
+
+    private static List<AgentChatMessage> conversation(int size) {
+        List<AgentChatMessage> messages = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            messages.add(AgentChatMessage.builder()
+                    .role(i % 2 == 0 ? "user" : "assistant")
+                    .content("message " + i + " about rooms and dates for the stay")
+                    .build());
+        }
+        return messages;
+    }
+}
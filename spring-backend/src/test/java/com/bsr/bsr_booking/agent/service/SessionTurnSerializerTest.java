@@ -0,0 +1,70 @@
+package com.bsr.bsr_booking.agent.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SessionTurnSerializerTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final SessionTurnSerializer turns = new SessionTurnSerializer(meterRegistry);
+
+    @Test
+    void runsTurnsOfOneSessionInArrivalOrder() {
+        List<String> started = new ArrayList<>();
+        CompletableFuture<String> modelCall = new CompletableFuture<>();
+        CompletableFuture<String> first = turns.submit("s1", Runnable::run, () -> {
+            started.add("first");
+            return modelCall;
+        });
+        CompletableFuture<String> second = turns.submit("s1", Runnable::run, () -> {
+            started.add("second");
+            return CompletableFuture.completedFuture("two");
+        });
+
+        assertEquals(List.of("first"), started);
+        assertFalse(second.isDone());
+        assertEquals(1.0, meterRegistry.get("agent.session.turns.waiting").gauge().value());
+
+        modelCall.complete("one");
+
+        assertEquals("one", first.join());
+        assertEquals("two", second.join());
+        assertEquals(List.of("first", "second"), started);
+        assertEquals(0.0, meterRegistry.get("agent.session.turns.waiting").gauge().value());
+        assertEquals(1.0, meterRegistry.get("agent.session.turns.serialized").counter().count());
+        assertEquals(0, turns.sessions());
+    }
+
+    @Test
+    void otherSessionsDoNotWait() {
+        turns.submit("s1", Runnable::run, CompletableFuture::new);
+
+        // enough ids that any sharing of queues between sessions would hold one of them up
+        for (int i = 0; i < 10_000; i++) {
+            CompletableFuture<String> other = turns.submit("other-" + i, Runnable::run,
+                    () -> CompletableFuture.completedFuture("free"));
+            assertEquals("free", other.getNow(null), "other-" + i);
+        }
+        assertEquals(1, turns.sessions());
+        assertEquals(0.0, meterRegistry.get("agent.session.turns.serialized").counter().count());
+    }
+
+    @Test
+    void aFailedTurnDoesNotHoldUpTheNext() {
+        CompletableFuture<String> failed = turns.submit("s1", Runnable::run, () -> {
+            throw new IllegalStateException("boom");
+        });
+        CompletableFuture<String> next = turns.submit("s1", Runnable::run, () -> CompletableFuture.completedFuture("next"));
+
+        assertTrue(failed.isCompletedExceptionally());
+        assertEquals("next", next.getNow(null));
+    }
+}
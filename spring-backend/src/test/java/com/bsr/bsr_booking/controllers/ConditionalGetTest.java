@@ -0,0 +1,112 @@
+package com.bsr.bsr_booking.controllers;
+
+import com.bsr.bsr_booking.dtos.Response;
+import com.bsr.bsr_booking.services.AggregateVersions;
+import com.bsr.bsr_booking.services.HotelImageService;
+import com.bsr.bsr_booking.services.RoomService;
+import com.bsr.bsr_booking.services.UserService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.web.header.HeaderWriterFilter;
+import org.springframework.security.web.header.writers.CacheControlHeadersWriter;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.security.Principal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class ConditionalGetTest {
+
+    private static final Principal GUEST = () -> "guest@example.com";
+
+    private RoomService roomService;
+    private UserService userService;
+    private HotelImageService hotelImageService;
+    private AggregateVersions aggregateVersions;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        roomService = mock(RoomService.class);
+        userService = mock(UserService.class);
+        hotelImageService = mock(HotelImageService.class);
+        aggregateVersions = new AggregateVersions();
+        when(roomService.getAllRooms()).thenReturn(Response.builder().status(200).build());
+        when(userService.getMyBookingHistory()).thenReturn(Response.builder().status(200).build());
+        when(hotelImageService.getHotelImageData(anyLong())).thenReturn(new byte[]{1, 2, 3});
+        when(hotelImageService.getHotelImageContentType(anyLong())).thenReturn("image/png");
+        // the header writer Spring Security installs by default, which adds no-store unless Cache-Control is set
+        mockMvc = MockMvcBuilders
+                .standaloneSetup(new RoomController(roomService, aggregateVersions),
+                        new UserController(userService, aggregateVersions),
+                        new HotelImageController(hotelImageService, aggregateVersions))
+                .addFilters(new HeaderWriterFilter(List.of(new CacheControlHeadersWriter())))
+                .build();
+    }
+
+    @Test
+    void roomListIsRevalidatedWithItsETag() throws Exception {
+        String eTag = mockMvc.perform(get("/api/rooms/all"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-cache"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertNotNull(eTag);
+
+        mockMvc.perform(get("/api/rooms/all").header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified());
+        verify(roomService, times(1)).getAllRooms();
+
+        aggregateVersions.roomsChanged();
+        mockMvc.perform(get("/api/rooms/all").header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-cache"));
+        verify(roomService, times(2)).getAllRooms();
+    }
+
+    @Test
+    void ownBookingsAreOnlyCachedPrivately() throws Exception {
+        String eTag = mockMvc.perform(get("/api/users/bookings").principal(GUEST))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-cache, private"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get("/api/users/bookings").principal(GUEST).header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified());
+
+        aggregateVersions.userBookingsChanged(GUEST.getName());
+        mockMvc.perform(get("/api/users/bookings").principal(GUEST).header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isOk());
+        verify(userService, times(2)).getMyBookingHistory();
+    }
+
+    @Test
+    void imageBytesAreRevalidatedWithTheirETag() throws Exception {
+        String eTag = mockMvc.perform(get("/api/hotel-images/1/image"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-cache, public"))
+                .andExpect(content().bytes(new byte[]{1, 2, 3}))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertNotNull(eTag);
+
+        mockMvc.perform(get("/api/hotel-images/1/image").header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified());
+        verify(hotelImageService, times(1)).getHotelImageData(1L);
+
+        aggregateVersions.imagesChanged();
+        mockMvc.perform(get("/api/hotel-images/1/image").header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isOk());
+        verify(hotelImageService, times(2)).getHotelImageData(1L);
+    }
+}
@@ -0,0 +1,276 @@
+package com.bsr.bsr_booking.loadtest;
+
+import com.bsr.bsr_booking.BsrBookingApplication;
+import com.bsr.bsr_booking.support.GeminiStubServer;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.env.Environment;
+import org.springframework.core.io.Resource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Load test for POST /api/agent/chat without spending Gemini quota.
+ * Starts the application in-process with the "loadtest" profile and gemini.api.base-url pointing at a
+ * GeminiStubServer answering from the keyword rules in loadtest.decisions, then starts the scripted conversations in loadtest.conversations at loadtest.rate per second
+ * (open model: a slow server does not slow the arrivals down). Each conversation has its own session and sends its
+ * turns one after another with the growing history, like the web client. Turns started during the warm-up are not
+ * measured. At the end it prints latency percentiles, throughput, the Gemini call count and where the replies came from.
+ * <p>
+ * The application uses its configured datasource (sessions are persisted, bookings need a login and are never made);
+ * point SPRING_DATASOURCE_URL at a disposable database. Run with
+ * {@code ./mvnw -Ploadtest spring-boot:test-run -Dspring-boot.run.arguments="--loadtest.rate=20"};
+ * the settings and their defaults are in application-loadtest.properties.
+ */
+public final class AgentLoadTest {
+
+    private final HttpClient http;
+    private final ObjectMapper objectMapper;
+    private final URI chatUri;
+    private final List<List<String>> conversations;
+    private final long thinkTimeMs;
+    private final Results results = new Results();
+
+    private AgentLoadTest(ObjectMapper objectMapper, URI chatUri, List<List<String>> conversations, long thinkTimeMs) {
+        this.http = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        this.objectMapper = objectMapper;
+        this.chatUri = chatUri;
+        this.conversations = conversations;
+        this.thinkTimeMs = thinkTimeMs;
+    }
+
+    public static void main(String[] args) throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper();
+        int exitCode;
+        try (GeminiStubServer gemini = new GeminiStubServer()) {
+            SpringApplication application = new SpringApplication(BsrBookingApplication.class);
+            application.setAdditionalProfiles("loadtest");
+            application.setDefaultProperties(Map.of("gemini.api.base-url", gemini.getBaseUrl()));
+            try (ConfigurableApplicationContext context = application.run(args)) {
+                exitCode = run(context, gemini, objectMapper);
+            }
+        }
+        System.exit(exitCode);
+    }
+
+    private static int run(ConfigurableApplicationContext context, GeminiStubServer gemini, ObjectMapper objectMapper)
+            throws IOException, InterruptedException {
+        Environment env = context.getEnvironment();
+        String checkIn = LocalDate.now().plusDays(30).toString();
+        String checkOut = LocalDate.now().plusDays(32).toString();
+
+        gemini.setResponder(GeminiStubServer.keywordResponder(GeminiStubServer.parseRules(
+                read(context.getResource(env.getRequiredProperty("loadtest.decisions")), checkIn, checkOut))));
+        gemini.setLatency(env.getRequiredProperty("loadtest.gemini.latency-median-ms", Double.class),
+                env.getRequiredProperty("loadtest.gemini.latency-p99-ms", Double.class));
+        gemini.setErrorRate(env.getRequiredProperty("loadtest.gemini.error-rate", Double.class));
+        List<List<String>> conversations = parseConversations(
+                read(context.getResource(env.getRequiredProperty("loadtest.conversations")), checkIn, checkOut));
+        if (conversations.isEmpty()) {
+            System.err.println("No conversations in " + env.getProperty("loadtest.conversations"));
+            return 1;
+        }
+
+        URI chatUri = URI.create("http://127.0.0.1:" + env.getRequiredProperty("local.server.port") + "/api/agent/chat");
+        AgentLoadTest loadTest = new AgentLoadTest(objectMapper, chatUri, conversations,
+                env.getRequiredProperty("loadtest.think-time-ms", Long.class));
+        double rate = env.getRequiredProperty("loadtest.rate", Double.class);
+        long warmupSeconds = env.getRequiredProperty("loadtest.warmup-seconds", Long.class);
+        long durationSeconds = env.getRequiredProperty("loadtest.duration-seconds", Long.class);
+        long drainSeconds = env.getRequiredProperty("loadtest.drain-timeout-seconds", Long.class);
+
+        System.out.printf("Load test: %.1f conversations/s (%d scripts), %ds warm-up, %ds measured, Gemini stub at %s%n",
+                rate, conversations.size(), warmupSeconds, durationSeconds, gemini.getBaseUrl());
+        loadTest.execute(gemini, rate, warmupSeconds, durationSeconds, drainSeconds);
+        return loadTest.results.errors() == 0 ? 0 : 2;
+    }
+
+    private void execute(GeminiStubServer gemini, double rate, long warmupSeconds, long durationSeconds, long drainSeconds)
+            throws InterruptedException {
+        long start = System.nanoTime();
+        long measureFrom = start + TimeUnit.SECONDS.toNanos(warmupSeconds);
+        long measureUntil = measureFrom + TimeUnit.SECONDS.toNanos(durationSeconds);
+        long period = Math.max(1, Math.round(TimeUnit.SECONDS.toNanos(1) / rate));
+        AtomicInteger started = new AtomicInteger();
+
+        ExecutorService conversationThreads = Executors.newVirtualThreadPerTaskExecutor();
+        ScheduledExecutorService arrivals = Executors.newSingleThreadScheduledExecutor();
+        arrivals.scheduleAtFixedRate(() -> {
+            int n = started.getAndIncrement();
+            conversationThreads.execute(() -> converse("loadtest-" + n, conversations.get(n % conversations.size()),
+                    measureFrom, measureUntil));
+        }, 0, period, TimeUnit.NANOSECONDS);
+
+        // the stub's counter is sampled when measuring starts, so warm-up turns do not count as calls
+        TimeUnit.NANOSECONDS.sleep(measureFrom - System.nanoTime());
+        long callsBefore = gemini.getRequests();
+        TimeUnit.NANOSECONDS.sleep(measureUntil - System.nanoTime());
+        arrivals.shutdownNow();
+        conversationThreads.shutdown();
+        if (!conversationThreads.awaitTermination(drainSeconds, TimeUnit.SECONDS)) {
+            System.out.println("Conversations still running after the drain timeout were abandoned");
+            conversationThreads.shutdownNow();
+        }
+        results.print(durationSeconds, started.get(), gemini.getRequests() - callsBefore);
+    }
+
+    private void converse(String sessionId, List<String> script, long measureFrom, long measureUntil) {
+        List<Map<String, String>> history = new ArrayList<>();
+        for (String message : script) {
+            history.add(Map.of("role", "user", "content", message));
+            long start = System.nanoTime();
+            boolean measured = start >= measureFrom;
+            try {
+                HttpRequest request = HttpRequest.newBuilder(chatUri)
+                        .timeout(Duration.ofSeconds(60))
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofString(
+                                objectMapper.writeValueAsString(Map.of("sessionId", sessionId, "messages", history))))
+                        .build();
+                HttpResponse<String> response = http.send(request, HttpResponse.BodyHandlers.ofString());
+                long end = System.nanoTime();
+                if (response.statusCode() != 200) {
+                    results.error(measured, "HTTP " + response.statusCode());
+                    return;
+                }
+                JsonNode reply = objectMapper.readTree(response.body());
+                if (measured) {
+                    results.record(end - start, source(reply), end <= measureUntil);
+                }
+                history.add(Map.of("role", "assistant", "content", reply.path("reply").asText("")));
+                Thread.sleep(thinkTimeMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (IOException e) {
+                results.error(measured, e.getClass().getSimpleName());
+                return;
+            }
+        }
+    }
+
+    // where AgentService says the reply came from
+    private static String source(JsonNode reply) {
+        String raw = reply.path("rawModelOutput").asText(null);
+        if ("degraded".equals(reply.path("note").asText(null))) {
+            return "degraded";
+        }
+        if (raw == null) {
+            return "other";
+        }
+        return switch (raw) {
+            case "fallback", "faq", "cache" -> raw;
+            default -> "model";
+        };
+    }
+
+    private static String read(Resource resource, String checkIn, String checkOut) throws IOException {
+        try (InputStream in = resource.getInputStream()) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8)
+                    .replace("{checkIn}", checkIn)
+                    .replace("{checkOut}", checkOut);
+        }
+    }
+
+    // one user message per line, conversations separated by blank lines; '#' starts a comment line
+    static List<List<String>> parseConversations(String text) {
+        List<List<String>> conversations = new ArrayList<>();
+        List<String> current = new ArrayList<>();
+        for (String raw : (text + "\n\n").split("\\R", -1)) {
+            String line = raw.strip();
+            if (line.startsWith("#")) {
+                continue;
+            }
+            if (line.isEmpty()) {
+                if (!current.isEmpty()) {
+                    conversations.add(List.copyOf(current));
+                    current.clear();
+                }
+            } else {
+                current.add(line);
+            }
+        }
+        return conversations;
+    }
+
+    private static final class Results {
+
+        private final List<Long> latencies = new ArrayList<>();
+        private final Map<String, Integer> sources = new TreeMap<>();
+        private final Map<String, Integer> failures = new TreeMap<>();
+        private int completedInWindow;
+
+        synchronized void record(long latencyNanos, String source, boolean inWindow) {
+            latencies.add(latencyNanos);
+            sources.merge(source, 1, Integer::sum);
+            if (inWindow) {
+                completedInWindow++;
+            }
+        }
+
+        synchronized void error(boolean measured, String reason) {
+            if (measured) {
+                failures.merge(reason, 1, Integer::sum);
+            }
+        }
+
+        synchronized int errors() {
+            return failures.values().stream().mapToInt(Integer::intValue).sum();
+        }
+
+        synchronized void print(long durationSeconds, int conversations, long geminiCalls) {
+            long[] sorted = latencies.stream().mapToLong(Long::longValue).sorted().toArray();
+            int turns = sorted.length;
+            System.out.println();
+            System.out.printf("Conversations started: %d, measured turns: %d, errors: %d %s%n",
+                    conversations, turns, errors(), failures.isEmpty() ? "" : failures);
+            System.out.printf("Throughput: %.1f turns/s%n", (double) completedInWindow / durationSeconds);
+            if (turns > 0) {
+                System.out.printf("Latency ms: p50 %.1f, p95 %.1f, p99 %.1f, max %.1f, mean %.1f%n",
+                        millis(percentile(sorted, 0.50)), millis(percentile(sorted, 0.95)),
+                        millis(percentile(sorted, 0.99)), millis(sorted[turns - 1]),
+                        millis(Math.round(Arrays.stream(sorted).average().orElse(0))));
+            }
+            System.out.printf("Gemini calls: %d (%.2f per turn)%n", geminiCalls, turns == 0 ? 0 : (double) geminiCalls / turns);
+            System.out.printf("Fallback hit ratio: %.1f%%%n", share(sources.getOrDefault("fallback", 0), turns));
+            sources.forEach((source, count) ->
+                    System.out.printf("  %-9s %6d  %5.1f%%%n", source, count, share(count, turns)));
+        }
+
+        // nearest-rank percentile
+        private static long percentile(long[] sorted, double p) {
+            return sorted[Math.max(0, (int) Math.ceil(p * sorted.length) - 1)];
+        }
+
+        private static double millis(long nanos) {
+            return nanos / 1_000_000.0;
+        }
+
+        private static double share(int count, int total) {
+            return total == 0 ? 0 : 100.0 * count / total;
+        }
+    }
+}
@@ -0,0 +1,326 @@
+package com.bsr.bsr_booking.payments.razorpay;
+
+import com.bsr.bsr_booking.dtos.NotificationDTO;
+import com.bsr.bsr_booking.dtos.ReconciliationReport;
+import com.bsr.bsr_booking.entities.Booking;
+import com.bsr.bsr_booking.entities.PaymentEntity;
+import com.bsr.bsr_booking.entities.Room;
+import com.bsr.bsr_booking.entities.User;
+import com.bsr.bsr_booking.enums.BookingStatus;
+import com.bsr.bsr_booking.enums.PaymentStatus;
+import com.bsr.bsr_booking.enums.RoomType;
+import com.bsr.bsr_booking.exceptions.GatewayUnavailableException;
+import com.bsr.bsr_booking.repositories.BookingRepository;
+import com.bsr.bsr_booking.repositories.PaymentRepository;
+import com.bsr.bsr_booking.services.AggregateVersions;
+import com.bsr.bsr_booking.services.AvailabilityCache;
+import com.bsr.bsr_booking.services.CircuitBreaker;
+import com.bsr.bsr_booking.services.NotificationService;
+import com.bsr.bsr_booking.services.RequestCoalescer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PaymentReconciliationJobTest {
+
+    // the bookings table, keyed by id; pages hand out copies so later writes do not leak into them
+    private final Map<Long, Booking> rows = new TreeMap<>();
+    private final Map<String, List<RazorpayGateway.OrderPayment>> orders = new HashMap<>();
+    private final Set<Long> takenRooms = new HashSet<>();
+    private final List<String> insertedPayments = new ArrayList<>();
+    private final List<Long> pageStarts = new ArrayList<>();
+
+    private BookingRepository bookingRepository;
+    private PaymentRepository paymentRepository;
+    private RazorpayGateway razorpayGateway;
+    private NotificationService notificationService;
+    private PaymentReconciliationJob job;
+
+    @BeforeEach
+    void setUp() {
+        bookingRepository = mock(BookingRepository.class);
+        paymentRepository = mock(PaymentRepository.class);
+        razorpayGateway = mock(RazorpayGateway.class);
+        notificationService = mock(NotificationService.class);
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+
+        when(bookingRepository.findReconciliationCandidates(anyLong(), any(), any(), any())).thenAnswer(invocation -> {
+            long afterId = invocation.getArgument(0);
+            LocalDateTime createdAfter = invocation.getArgument(1);
+            LocalDateTime createdBefore = invocation.getArgument(2);
+            Pageable page = invocation.getArgument(3);
+            pageStarts.add(afterId);
+            return rows.values().stream()
+                    .filter(b -> b.getId() > afterId)
+                    .filter(b -> !b.getCreatedAt().isBefore(createdAfter) && b.getCreatedAt().isBefore(createdBefore))
+                    .filter(b -> b.getPaymentStatus() == PaymentStatus.PENDING || b.getPaymentStatus() == PaymentStatus.FAILED)
+                    .limit(page.getPageSize())
+                    .map(PaymentReconciliationJobTest::copy)
+                    .toList();
+        });
+        when(bookingRepository.lockByBookingReference(anyString())).thenAnswer(invocation -> rows.values().stream()
+                .filter(b -> b.getBookingReference().equals(invocation.getArgument(0)))
+                .findFirst());
+        when(bookingRepository.findAllById(any())).thenAnswer(invocation -> {
+            List<Booking> found = new ArrayList<>();
+            for (Long id : invocation.<Iterable<Long>>getArgument(0)) {
+                Optional.ofNullable(rows.get(id)).ifPresent(found::add);
+            }
+            return found;
+        });
+        when(bookingRepository.isRoomAvailable(anyLong(), any(), any()))
+                .thenAnswer(invocation -> !takenRooms.contains(invocation.<Long>getArgument(0)));
+        when(paymentRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        when(razorpayGateway.circuitState()).thenReturn(CircuitBreaker.State.CLOSED);
+        when(razorpayGateway.fetchOrderPayments(anyString())).thenAnswer(invocation -> {
+            List<RazorpayGateway.OrderPayment> payments = orders.get(invocation.<String>getArgument(0));
+            if (payments == null) {
+                throw new GatewayUnavailableException("Razorpay is unavailable");
+            }
+            return payments;
+        });
+
+        // runs each statement of a batch against the rows, honouring the WHERE clauses the job relies on
+        when(jdbcTemplate.batchUpdate(anyString(), anyCollection(), anyInt(), any())).thenAnswer(invocation -> {
+            String sql = invocation.getArgument(0);
+            Collection<Object> items = invocation.getArgument(1);
+            ParameterizedPreparedStatementSetter<Object> setter = invocation.getArgument(3);
+            int[] counts = new int[items.size()];
+            int i = 0;
+            for (Object item : items) {
+                Map<Integer, Object> params = new HashMap<>();
+                PreparedStatement ps = mock(PreparedStatement.class, call -> {
+                    if (call.getArguments().length == 2 && call.getArgument(0) instanceof Integer index) {
+                        params.put(index, call.getArgument(1));
+                    }
+                    return null;
+                });
+                setter.setValues(ps, item);
+                counts[i++] = execute(sql, params);
+            }
+            return new int[][]{counts};
+        });
+
+        PaymentService paymentService = new PaymentService(bookingRepository, paymentRepository, notificationService,
+                mock(AvailabilityCache.class), mock(AggregateVersions.class), razorpayGateway, mock(RequestCoalescer.class));
+        job = new PaymentReconciliationJob(bookingRepository, razorpayGateway, jdbcTemplate, notificationService,
+                paymentService, mock(AggregateVersions.class), mock(PlatformTransactionManager.class), new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(job, "enabled", true);
+        ReflectionTestUtils.setField(job, "pageSize", 3);
+        ReflectionTestUtils.setField(job, "concurrency", 2);
+        ReflectionTestUtils.setField(job, "minAgeMinutes", 10L);
+        ReflectionTestUtils.setField(job, "lookbackHours", 48L);
+    }
+
+    @Test
+    void pagesThroughCandidatesAndReportsEachCorrection() {
+        booking(1L, BookingStatus.BOOKED, PaymentStatus.PENDING, captured("pay_1"));
+        booking(2L, BookingStatus.BOOKED, PaymentStatus.FAILED, failed("pay_2"));
+        booking(3L, BookingStatus.BOOKED, PaymentStatus.PENDING, failed("pay_3"));
+        booking(4L, BookingStatus.BOOKED, PaymentStatus.PENDING, List.of());
+        booking(5L, BookingStatus.CANCELLED, PaymentStatus.PENDING, captured("pay_5"));
+        booking(6L, BookingStatus.CANCELLED, PaymentStatus.PENDING, captured("pay_6"));
+        booking(7L, BookingStatus.BOOKED, PaymentStatus.PENDING, null);
+        booking(8L, BookingStatus.BOOKED, PaymentStatus.COMPLETED, captured("pay_8"));
+        takenRooms.add(6L);
+
+        ReconciliationReport report = job.run();
+
+        assertEquals(List.of(0L, 3L, 6L, 7L), pageStarts);
+        assertEquals(7, report.getScanned());
+        assertEquals(2, report.getMarkedPaid());
+        assertEquals(1, report.getMarkedFailed());
+        assertEquals(1, report.getPaidAfterRelease());
+        assertEquals(2, report.getUnchanged());
+        assertEquals(1, report.getGatewayErrors());
+
+        assertPaid(1L, BookingStatus.BOOKED);
+        assertEquals(PaymentStatus.FAILED, rows.get(2L).getPaymentStatus());
+        assertEquals(PaymentStatus.FAILED, rows.get(3L).getPaymentStatus());
+        assertEquals(PaymentStatus.PENDING, rows.get(4L).getPaymentStatus());
+        // released holds follow PaymentService: reinstated while the room is free, otherwise kept for a refund
+        assertPaid(5L, BookingStatus.BOOKED);
+        assertPaid(6L, BookingStatus.CANCELLED);
+        assertEquals(PaymentStatus.PENDING, rows.get(7L).getPaymentStatus());
+
+        assertEquals(List.of("pay_1"), insertedPayments);
+        ArgumentCaptor<PaymentEntity> saved = ArgumentCaptor.forClass(PaymentEntity.class);
+        verify(paymentRepository, times(2)).save(saved.capture());
+        assertEquals(List.of("pay_5", "pay_6"), saved.getAllValues().stream().map(PaymentEntity::getTransactionId).toList());
+        assertNull(saved.getAllValues().get(0).getFailureReason());
+        verify(notificationService).notifyUser(eq(rows.get(1L).getUser()), any(NotificationDTO.class));
+        verify(notificationService).notifyUser(eq(rows.get(5L).getUser()), any(NotificationDTO.class));
+        // the guest whose room was taken is told a refund is on its way
+        verify(notificationService).notifyUser(eq(rows.get(6L).getUser()), any(NotificationDTO.class));
+        verify(notificationService, times(3)).notifyUser(any(), any());
+    }
+
+    @Test
+    void paymentAppliedDuringTheLookupIsNotAppliedAgain() {
+        Booking booking = booking(1L, BookingStatus.BOOKED, PaymentStatus.PENDING, captured("pay_1"));
+        // the webhook lands while the job is waiting for the gateway
+        when(razorpayGateway.fetchOrderPayments("order_1")).thenAnswer(invocation -> {
+            booking.setPaymentStatus(PaymentStatus.COMPLETED);
+            return orders.get("order_1");
+        });
+
+        ReconciliationReport report = job.run();
+
+        assertEquals(1, report.getScanned());
+        assertEquals(0, report.getMarkedPaid());
+        assertEquals(1, report.getUnchanged());
+        assertEquals(List.of(), insertedPayments);
+        verify(notificationService, times(0)).notifyUser(any(), any());
+    }
+
+    @Test
+    void holdReleasedDuringTheLookupIsReinstatedOnTheNextRun() {
+        Booking booking = booking(1L, BookingStatus.BOOKED, PaymentStatus.PENDING, captured("pay_1"));
+        // the hold manager cancels the booking while the job is waiting for the gateway
+        when(razorpayGateway.fetchOrderPayments("order_1")).thenAnswer(invocation -> {
+            if (booking.getBookingStatus() == BookingStatus.BOOKED) {
+                booking.setBookingStatus(BookingStatus.CANCELLED);
+            }
+            return orders.get("order_1");
+        });
+
+        ReconciliationReport first = job.run();
+
+        assertEquals(1, first.getUnchanged());
+        assertEquals(BookingStatus.CANCELLED, booking.getBookingStatus());
+        assertEquals(PaymentStatus.PENDING, booking.getPaymentStatus());
+
+        ReconciliationReport second = job.run();
+
+        assertEquals(1, second.getMarkedPaid());
+        assertEquals(0, second.getPaidAfterRelease());
+        assertPaid(1L, BookingStatus.BOOKED);
+    }
+
+    @Test
+    void abandonedOrderOutsideTheLookbackIsNotPolled() {
+        Booking abandoned = booking(1L, BookingStatus.CANCELLED, PaymentStatus.PENDING, List.of());
+        abandoned.setCreatedAt(LocalDateTime.now().minusDays(3));
+        booking(2L, BookingStatus.BOOKED, PaymentStatus.PENDING, captured("pay_2"));
+
+        ReconciliationReport first = job.run();
+        ReconciliationReport second = job.run();
+
+        assertEquals(1, first.getScanned());
+        assertEquals(0, second.getScanned());
+        verify(razorpayGateway, never()).fetchOrderPayments("order_1");
+        verify(razorpayGateway, times(1)).fetchOrderPayments("order_2");
+        assertEquals(PaymentStatus.PENDING, abandoned.getPaymentStatus());
+    }
+
+    private int execute(String sql, Map<Integer, Object> params) {
+        if (sql.contains("INSERT INTO payments")) {
+            insertedPayments.add((String) params.get(1));
+            return 1;
+        }
+        Booking row = rows.get((Long) params.get(1));
+        if (sql.contains("'COMPLETED'")) {
+            if (row.getPaymentStatus() == PaymentStatus.COMPLETED || row.getBookingStatus() == BookingStatus.CANCELLED) {
+                return 0;
+            }
+            row.setPaymentStatus(PaymentStatus.COMPLETED);
+            row.setBookingStatus(BookingStatus.BOOKED);
+            row.setHoldExpiresAt(null);
+            return 1;
+        }
+        if (row.getPaymentStatus() != PaymentStatus.PENDING) {
+            return 0;
+        }
+        row.setPaymentStatus(PaymentStatus.FAILED);
+        return 1;
+    }
+
+    private void assertPaid(Long id, BookingStatus bookingStatus) {
+        assertEquals(PaymentStatus.COMPLETED, rows.get(id).getPaymentStatus());
+        assertEquals(bookingStatus, rows.get(id).getBookingStatus());
+    }
+
+    private Booking booking(Long id, BookingStatus bookingStatus, PaymentStatus paymentStatus,
+                            List<RazorpayGateway.OrderPayment> payments) {
+        User user = User.builder().id(id).email("guest" + id + "@example.com").firstName("Guest").lastName(id.toString()).build();
+        Room room = Room.builder().id(id).roomNumber(100 + id.intValue()).type(RoomType.DOUBLE).build();
+        Booking booking = Booking.builder()
+                .id(id)
+                .user(user)
+                .room(room)
+                .bookingReference("REF" + id)
+                .paymentOrderId("order_" + id)
+                .checkInDate(LocalDate.now().plusDays(10))
+                .checkOutDate(LocalDate.now().plusDays(12))
+                .totalPrice(new BigDecimal("2000"))
+                .bookingStatus(bookingStatus)
+                .paymentStatus(paymentStatus)
+                .createdAt(LocalDateTime.now().minusHours(1))
+                .build();
+        rows.put(id, booking);
+        if (payments != null) {
+            orders.put(booking.getPaymentOrderId(), payments);
+        }
+        return booking;
+    }
+
+    private static Booking copy(Booking row) {
+        return Booking.builder()
+                .id(row.getId())
+                .user(row.getUser())
+                .room(row.getRoom())
+                .bookingReference(row.getBookingReference())
+                .paymentOrderId(row.getPaymentOrderId())
+                .checkInDate(row.getCheckInDate())
+                .checkOutDate(row.getCheckOutDate())
+                .totalPrice(row.getTotalPrice())
+                .bookingStatus(row.getBookingStatus())
+                .paymentStatus(row.getPaymentStatus())
+                .holdExpiresAt(row.getHoldExpiresAt())
+                .createdAt(row.getCreatedAt())
+                .build();
+    }
+
+    private static List<RazorpayGateway.OrderPayment> captured(String paymentId) {
+        return List.of(new RazorpayGateway.OrderPayment(paymentId, "captured", 200000, null));
+    }
+
+    private static List<RazorpayGateway.OrderPayment> failed(String paymentId) {
+        return List.of(new RazorpayGateway.OrderPayment(paymentId, "failed", 200000, "Card declined"));
+    }
+}
@@ -0,0 +1,184 @@
+package com.bsr.bsr_booking.payments.razorpay;
+
+import com.bsr.bsr_booking.config.AsyncConfig;
+import com.bsr.bsr_booking.config.NotificationProviderConfig;
+import com.bsr.bsr_booking.entities.Booking;
+import com.bsr.bsr_booking.entities.Notification;
+import com.bsr.bsr_booking.entities.Room;
+import com.bsr.bsr_booking.entities.User;
+import com.bsr.bsr_booking.enums.BookingStatus;
+import com.bsr.bsr_booking.enums.NotificationStatus;
+import com.bsr.bsr_booking.enums.PaymentStatus;
+import com.bsr.bsr_booking.enums.RoomType;
+import com.bsr.bsr_booking.payments.razorpay.dto.PaymentRequest;
+import com.bsr.bsr_booking.repositories.BookingRepository;
+import com.bsr.bsr_booking.repositories.NotificationRepository;
+import com.bsr.bsr_booking.repositories.PaymentRepository;
+import com.bsr.bsr_booking.services.AggregateVersions;
+import com.bsr.bsr_booking.services.AvailabilityCache;
+import com.bsr.bsr_booking.services.NotificationDispatcher;
+import com.bsr.bsr_booking.services.RequestCoalescer;
+import com.bsr.bsr_booking.services.SmtpTransportPool;
+import com.bsr.bsr_booking.services.channels.EmailChannel;
+import com.bsr.bsr_booking.services.channels.SmsChannel;
+import com.bsr.bsr_booking.services.channels.WhatsappChannel;
+import com.bsr.bsr_booking.services.impl.NotificationServiceImpl;
+import com.bsr.bsr_booking.support.FakeSmtpServer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@SpringJUnitConfig(PaymentServiceAsyncMailTest.TestConfig.class)
+class PaymentServiceAsyncMailTest {
+
+    private static final long SMTP_DELAY_MS = 3000;
+
+    private static final FakeSmtpServer SMTP = startSmtp();
+
+    @Configuration
+    @Import({AsyncConfig.class, NotificationProviderConfig.class, NotificationServiceImpl.class,
+            NotificationDispatcher.class, SmtpTransportPool.class, EmailChannel.class, SmsChannel.class,
+            WhatsappChannel.class, PaymentService.class})
+    static class TestConfig {
+
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+
+        @Bean
+        JavaMailSenderImpl javaMailSender() {
+            JavaMailSenderImpl sender = new JavaMailSenderImpl();
+            sender.setHost("127.0.0.1");
+            sender.setPort(SMTP.getPort());
+            sender.getJavaMailProperties().put("mail.from", "noreply@localhost");
+            return sender;
+        }
+    }
+
+    @MockitoBean
+    private BookingRepository bookingRepository;
+
+    @MockitoBean
+    private PaymentRepository paymentRepository;
+
+    @MockitoBean
+    private NotificationRepository notificationRepository;
+
+    @MockitoBean
+    private AvailabilityCache availabilityCache;
+
+    @MockitoBean
+    private AggregateVersions aggregateVersions;
+
+    @MockitoBean
+    private PlatformTransactionManager transactionManager;
+
+    @MockitoBean
+    private RazorpayGateway razorpayGateway;
+
+    @MockitoBean
+    private RequestCoalescer requestCoalescer;
+
+    @Autowired
+    private PaymentService paymentService;
+
+    @Autowired
+    private NotificationDispatcher notificationDispatcher;
+
+    @AfterAll
+    static void stopSmtp() throws IOException {
+        SMTP.close();
+    }
+
+    @Test
+    void paymentUpdateReturnsWithoutWaitingOnSlowMailServer() throws InterruptedException {
+        when(bookingRepository.lockByBookingReference("REF123")).thenReturn(Optional.of(booking()));
+        SMTP.expectMessages(1);
+
+        PaymentRequest request = new PaymentRequest("REF123", new BigDecimal("2000"), "pay_1", true, null);
+
+        long start = System.nanoTime();
+        paymentService.updatePaymentBooking(request);
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertTrue(elapsedMs < SMTP_DELAY_MS, "payment update waited " + elapsedMs + "ms on the mail server");
+        verify(bookingRepository).save(any(Booking.class));
+
+        // the confirmation is only written to the outbox by the payment update
+        ArgumentCaptor<List<Notification>> outbox = ArgumentCaptor.captor();
+        verify(notificationRepository).saveAll(outbox.capture());
+        assertEquals(1, outbox.getValue().size());
+        Notification queued = outbox.getValue().get(0);
+        assertEquals(NotificationStatus.PENDING, queued.getStatus());
+        assertTrue(SMTP.getMessages().isEmpty());
+
+        // the dispatcher hands it to the notification executor without waiting on SMTP either
+        when(notificationRepository.lockDueBatch(eq("EMAIL"), any(), anyInt())).thenReturn(List.of(queued));
+        when(notificationRepository.renewLease(any(), anyLong(), any())).thenReturn(1);
+        start = System.nanoTime();
+        notificationDispatcher.dispatchDue();
+        elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertTrue(elapsedMs < SMTP_DELAY_MS, "dispatch waited " + elapsedMs + "ms on the mail server");
+
+        assertTrue(SMTP.awaitMessages(SMTP_DELAY_MS + 5000, TimeUnit.MILLISECONDS));
+        assertEquals(1, SMTP.getMessages().size());
+        assertTrue(SMTP.getMessages().get(0).contains("REF123"));
+        verify(notificationRepository, timeout(2000).atLeastOnce())
+                .saveAll(argThat((Iterable<Notification> batch) -> batch.iterator().hasNext()
+                        && batch.iterator().next().getStatus() == NotificationStatus.SENT));
+    }
+
+    private static Booking booking() {
+        User user = User.builder().email("guest@example.com").firstName("Test").lastName("Guest").build();
+        Room room = Room.builder().id(1L).roomNumber(101).type(RoomType.DOUBLE).build();
+        return Booking.builder()
+                .id(1L)
+                .user(user)
+                .room(room)
+                .bookingReference("REF123")
+                .checkInDate(LocalDate.now().plusDays(5))
+                .checkOutDate(LocalDate.now().plusDays(7))
+                .totalPrice(new BigDecimal("2000"))
+                .bookingStatus(BookingStatus.BOOKED)
+                .paymentStatus(PaymentStatus.PENDING)
+                .build();
+    }
+
+    private static FakeSmtpServer startSmtp() {
+        try {
+            return new FakeSmtpServer(SMTP_DELAY_MS);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
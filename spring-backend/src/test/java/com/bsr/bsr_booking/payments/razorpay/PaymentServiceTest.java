@@ -0,0 +1,108 @@
+package com.bsr.bsr_booking.payments.razorpay;
+
+import com.bsr.bsr_booking.dtos.NotificationDTO;
+import com.bsr.bsr_booking.entities.Booking;
+import com.bsr.bsr_booking.entities.PaymentEntity;
+import com.bsr.bsr_booking.entities.Room;
+import com.bsr.bsr_booking.entities.User;
+import com.bsr.bsr_booking.enums.BookingStatus;
+import com.bsr.bsr_booking.enums.PaymentStatus;
+import com.bsr.bsr_booking.enums.RoomType;
+import com.bsr.bsr_booking.payments.razorpay.dto.PaymentRequest;
+import com.bsr.bsr_booking.repositories.BookingRepository;
+import com.bsr.bsr_booking.repositories.PaymentRepository;
+import com.bsr.bsr_booking.services.AggregateVersions;
+import com.bsr.bsr_booking.services.AvailabilityCache;
+import com.bsr.bsr_booking.services.NotificationService;
+import com.bsr.bsr_booking.services.RequestCoalescer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PaymentServiceTest {
+
+    private BookingRepository bookingRepository;
+    private PaymentRepository paymentRepository;
+    private NotificationService notificationService;
+    private AvailabilityCache availabilityCache;
+    private AggregateVersions aggregateVersions;
+    private PaymentService paymentService;
+
+    @BeforeEach
+    void setUp() {
+        bookingRepository = mock(BookingRepository.class);
+        paymentRepository = mock(PaymentRepository.class);
+        notificationService = mock(NotificationService.class);
+        availabilityCache = mock(AvailabilityCache.class);
+        aggregateVersions = mock(AggregateVersions.class);
+        paymentService = new PaymentService(bookingRepository, paymentRepository, notificationService,
+                availabilityCache, aggregateVersions, mock(RazorpayGateway.class), mock(RequestCoalescer.class));
+        // stands in for the transaction the webhook processor and the browser callback run in
+        TransactionSynchronizationManager.initSynchronization();
+    }
+
+    @AfterEach
+    void tearDown() {
+        TransactionSynchronizationManager.clearSynchronization();
+    }
+
+    @Test
+    void paymentForAReleasedHoldWhoseRoomIsTakenTellsTheGuestARefundIsPending() {
+        Booking booking = releasedBooking();
+        when(bookingRepository.isRoomAvailable(anyLong(), any(), any())).thenReturn(false);
+
+        paymentService.applyPaymentOutcome(booking,
+                new PaymentRequest("REF1", new BigDecimal("2000.00"), "pay_1", true, null));
+
+        ArgumentCaptor<PaymentEntity> payment = ArgumentCaptor.forClass(PaymentEntity.class);
+        verify(paymentRepository).save(payment.capture());
+        assertEquals(PaymentStatus.COMPLETED, payment.getValue().getPaymentStatus());
+        assertEquals("Hold expired before payment, room no longer available", payment.getValue().getFailureReason());
+        assertEquals(PaymentStatus.COMPLETED, booking.getPaymentStatus());
+        assertEquals(BookingStatus.CANCELLED, booking.getBookingStatus());
+
+        ArgumentCaptor<NotificationDTO> notification = ArgumentCaptor.forClass(NotificationDTO.class);
+        verify(notificationService).notifyUser(eq(booking.getUser()), notification.capture());
+        assertEquals("Payment Received - Refund Pending - REF1", notification.getValue().getSubject());
+        assertTrue(notification.getValue().getBody().contains("refund"));
+
+        // caches and ETags move only once the transaction commits
+        verify(aggregateVersions, never()).bookingChanged(any(), any());
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        verify(availabilityCache).invalidateOverlapping(booking.getCheckInDate(), booking.getCheckOutDate());
+        verify(aggregateVersions).bookingChanged(7L, "guest@example.com");
+    }
+
+    private static Booking releasedBooking() {
+        User user = User.builder().id(1L).email("guest@example.com").firstName("Asha").lastName("Rao").build();
+        Room room = Room.builder().id(7L).roomNumber(107).type(RoomType.DOUBLE).build();
+        return Booking.builder()
+                .id(1L)
+                .user(user)
+                .room(room)
+                .bookingReference("REF1")
+                .paymentOrderId("order_1")
+                .checkInDate(LocalDate.now().plusDays(10))
+                .checkOutDate(LocalDate.now().plusDays(12))
+                .totalPrice(new BigDecimal("2000"))
+                .bookingStatus(BookingStatus.CANCELLED)
+                .paymentStatus(PaymentStatus.PENDING)
+                .build();
+    }
+}
@@ -0,0 +1,70 @@
+package com.bsr.bsr_booking.payments.razorpay;
+
+import com.bsr.bsr_booking.support.WebhookReplayer;
+import com.bsr.bsr_booking.support.WebhookReplayer.RecordedEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class PaymentWebhookReplayTest {
+
+    private static final String SECRET = "whsec_test";
+
+    private PaymentWebhookService webhookService;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        webhookService = mock(PaymentWebhookService.class);
+        PaymentController controller = new PaymentController(mock(PaymentService.class),
+                new RazorpayWebhookVerifier(SECRET), webhookService);
+        mockMvc = MockMvcBuilders.standaloneSetup(controller).build();
+    }
+
+    @Test
+    void signedRecordedEventsAreAcknowledgedAndQueued() throws Exception {
+        List<RecordedEvent> events = WebhookReplayer.load(WebhookReplayer.DEFAULT_EVENTS_DIR);
+        assertEquals(3, events.size());
+
+        for (RecordedEvent event : events) {
+            mockMvc.perform(post("/api/payments/webhook")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .header("X-Razorpay-Signature", WebhookReplayer.sign(event.body(), SECRET))
+                            .content(event.body()))
+                    .andExpect(status().isOk());
+        }
+        verify(webhookService, times(3)).ingest(anyString());
+    }
+
+    @Test
+    void tamperedOrUnsignedEventsAreRejected() throws Exception {
+        RecordedEvent event = WebhookReplayer.load(WebhookReplayer.DEFAULT_EVENTS_DIR).get(0);
+        String signature = WebhookReplayer.sign(event.body(), SECRET);
+        byte[] tampered = new String(event.body()).replace("200000", "100").getBytes();
+
+        mockMvc.perform(post("/api/payments/webhook")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .header("X-Razorpay-Signature", signature)
+                        .content(tampered))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(post("/api/payments/webhook")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(event.body()))
+                .andExpect(status().isBadRequest());
+
+        verify(webhookService, never()).ingest(anyString());
+    }
+}
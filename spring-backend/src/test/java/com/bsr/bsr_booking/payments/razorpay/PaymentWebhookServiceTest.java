@@ -0,0 +1,265 @@
+package com.bsr.bsr_booking.payments.razorpay;
+
+import com.bsr.bsr_booking.entities.Booking;
+import com.bsr.bsr_booking.entities.PaymentEntity;
+import com.bsr.bsr_booking.entities.PaymentWebhookEvent;
+import com.bsr.bsr_booking.entities.Room;
+import com.bsr.bsr_booking.entities.User;
+import com.bsr.bsr_booking.enums.BookingStatus;
+import com.bsr.bsr_booking.enums.PaymentStatus;
+import com.bsr.bsr_booking.enums.RoomType;
+import com.bsr.bsr_booking.enums.WebhookEventStatus;
+import com.bsr.bsr_booking.payments.razorpay.dto.PaymentRequest;
+import com.bsr.bsr_booking.repositories.BookingRepository;
+import com.bsr.bsr_booking.repositories.PaymentRepository;
+import com.bsr.bsr_booking.repositories.PaymentWebhookEventRepository;
+import com.bsr.bsr_booking.repositories.RoomRepository;
+import com.bsr.bsr_booking.repositories.UserRepository;
+import com.bsr.bsr_booking.services.AggregateVersions;
+import com.bsr.bsr_booking.services.AvailabilityCache;
+import com.bsr.bsr_booking.services.NotificationService;
+import com.bsr.bsr_booking.services.RequestCoalescer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.MySQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// runs the real service against MySQL: the processor relies on FOR UPDATE SKIP LOCKED and a unique index
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Testcontainers(disabledWithoutDocker = true)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({PaymentWebhookService.class, PaymentService.class, AvailabilityCache.class, AggregateVersions.class,
+        PaymentWebhookServiceTest.TestConfig.class})
+@TestPropertySource(properties = "payments.webhook.retry-backoff-seconds=0")
+class PaymentWebhookServiceTest {
+
+    private static final AtomicInteger ROOM_NUMBERS = new AtomicInteger(100);
+
+    @Container
+    @ServiceConnection
+    static final MySQLContainer<?> MYSQL = new MySQLContainer<>("mysql:8.0")
+            .withCommand("--innodb-lock-wait-timeout=1");
+
+    @TestConfiguration
+    static class TestConfig {
+
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+
+    @MockitoBean
+    private NotificationService notificationService;
+
+    @MockitoBean
+    private RazorpayGateway razorpayGateway;
+
+    @MockitoBean
+    private RequestCoalescer requestCoalescer;
+
+    @Autowired
+    private PaymentWebhookService webhookService;
+
+    @Autowired
+    private PaymentService paymentService;
+
+    @Autowired
+    private PaymentWebhookEventRepository eventRepository;
+
+    @Autowired
+    private BookingRepository bookingRepository;
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private RoomRepository roomRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void redeliveredEventIsStoredAndAppliedOnce() {
+        Booking booking = booking(true);
+        String paymentId = "pay_" + UUID.randomUUID();
+        String payload = captured(paymentId, booking.getPaymentOrderId());
+
+        assertTrue(webhookService.ingest(payload));
+        assertFalse(webhookService.ingest(payload));
+        webhookService.processReceived();
+        webhookService.processReceived();
+
+        assertEquals(1, payments(paymentId).size());
+        assertEquals(WebhookEventStatus.PROCESSED, event(paymentId).getStatus());
+        Booking paid = bookingRepository.findById(booking.getId()).orElseThrow();
+        assertEquals(PaymentStatus.COMPLETED, paid.getPaymentStatus());
+        assertEquals(BookingStatus.BOOKED, paid.getBookingStatus());
+    }
+
+    @Test
+    void webhookForAPaymentTheCallbackRecordedAddsNothing() {
+        Booking booking = booking(true);
+        String paymentId = "pay_" + UUID.randomUUID();
+        paymentService.updatePaymentBooking(
+                new PaymentRequest(booking.getBookingReference(), new BigDecimal("2000.00"), paymentId, true, null));
+
+        assertTrue(webhookService.ingest(captured(paymentId, booking.getPaymentOrderId())));
+        webhookService.processReceived();
+
+        assertEquals(1, payments(paymentId).size());
+        assertEquals(WebhookEventStatus.PROCESSED, event(paymentId).getStatus());
+    }
+
+    @Test
+    void badEventIsSetAsideAndTheRestOfTheBatchApplied() {
+        Booking first = booking(true);
+        // no guest to notify, so applying its payment throws and rolls back the whole batch
+        Booking broken = booking(false);
+        Booking last = booking(true);
+        String firstPayment = "pay_" + UUID.randomUUID();
+        String brokenPayment = "pay_" + UUID.randomUUID();
+        String lastPayment = "pay_" + UUID.randomUUID();
+        webhookService.ingest(captured(firstPayment, first.getPaymentOrderId()));
+        webhookService.ingest(captured(brokenPayment, broken.getPaymentOrderId()));
+        webhookService.ingest(captured(lastPayment, last.getPaymentOrderId()));
+
+        webhookService.processReceived();
+
+        assertEquals(WebhookEventStatus.PROCESSED, event(firstPayment).getStatus());
+        assertEquals(WebhookEventStatus.PROCESSED, event(lastPayment).getStatus());
+        PaymentWebhookEvent failed = event(brokenPayment);
+        assertEquals(WebhookEventStatus.FAILED, failed.getStatus());
+        assertNotNull(failed.getLastError());
+        assertEquals(1, payments(firstPayment).size());
+        assertEquals(0, payments(brokenPayment).size());
+        assertEquals(1, payments(lastPayment).size());
+    }
+
+    @Test
+    void lockWaitTimeoutKeepsTheEventForAnotherAttempt() throws Exception {
+        Booking booking = booking(true);
+        String paymentId = "pay_" + UUID.randomUUID();
+        webhookService.ingest(captured(paymentId, booking.getPaymentOrderId()));
+
+        // another transaction holds the booking row for longer than innodb_lock_wait_timeout
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        TransactionTemplate holder = new TransactionTemplate(transactionManager);
+        Thread thread = Thread.ofVirtual().start(() -> holder.executeWithoutResult(status -> {
+            bookingRepository.lockByBookingReference(booking.getBookingReference());
+            locked.countDown();
+            try {
+                release.await(30, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+        assertTrue(locked.await(10, TimeUnit.SECONDS));
+        try {
+            webhookService.processReceived();
+        } finally {
+            release.countDown();
+            thread.join();
+        }
+
+        PaymentWebhookEvent retrying = event(paymentId);
+        assertEquals(WebhookEventStatus.RECEIVED, retrying.getStatus());
+        assertEquals(1, retrying.getAttempts());
+        assertNotNull(retrying.getNextAttemptAt());
+        assertEquals(0, payments(paymentId).size());
+
+        webhookService.processReceived();
+
+        assertEquals(WebhookEventStatus.PROCESSED, event(paymentId).getStatus());
+        assertEquals(1, payments(paymentId).size());
+    }
+
+    private Booking booking(boolean withGuest) {
+        User user = null;
+        if (withGuest) {
+            user = userRepository.save(User.builder()
+                    .email(UUID.randomUUID() + "@example.com")
+                    .password("secret")
+                    .phoneNumber("9999999999")
+                    .firstName("Test")
+                    .lastName("Guest")
+                    .build());
+        }
+        Room room = roomRepository.save(Room.builder()
+                .roomNumber(ROOM_NUMBERS.incrementAndGet())
+                .type(RoomType.DOUBLE)
+                .pricePerNight(new BigDecimal("1000"))
+                .capacity(2)
+                .build());
+        String reference = UUID.randomUUID().toString().substring(0, 10);
+        return bookingRepository.save(Booking.builder()
+                .user(user)
+                .room(room)
+                .bookingReference(reference)
+                .paymentOrderId("order_" + reference)
+                .checkInDate(LocalDate.now().plusDays(5))
+                .checkOutDate(LocalDate.now().plusDays(7))
+                .totalPrice(new BigDecimal("2000"))
+                .bookingStatus(BookingStatus.BOOKED)
+                .paymentStatus(PaymentStatus.PENDING)
+                .build());
+    }
+
+    private PaymentWebhookEvent event(String paymentId) {
+        return eventRepository.findAll().stream()
+                .filter(event -> paymentId.equals(event.getTransactionId()))
+                .findFirst()
+                .orElseThrow();
+    }
+
+    private List<PaymentEntity> payments(String paymentId) {
+        return paymentRepository.findAll().stream()
+                .filter(payment -> paymentId.equals(payment.getTransactionId()))
+                .toList();
+    }
+
+    private static String captured(String paymentId, String orderId) {
+        JSONObject entity = new JSONObject()
+                .put("id", paymentId)
+                .put("order_id", orderId)
+                .put("amount", 200000);
+        return new JSONObject()
+                .put("event", "payment.captured")
+                .put("payload", new JSONObject().put("payment", new JSONObject().put("entity", entity)))
+                .toString();
+    }
+}
@@ -0,0 +1,100 @@
+package com.bsr.bsr_booking.payments.razorpay;
+
+import com.bsr.bsr_booking.exceptions.GatewayUnavailableException;
+import com.bsr.bsr_booking.services.CircuitBreaker;
+import com.bsr.bsr_booking.support.RazorpayStubServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RazorpayGatewayTest {
+
+    private RazorpayStubServer stub;
+    private SimpleMeterRegistry meterRegistry;
+    private RazorpayGateway gateway;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        stub = new RazorpayStubServer();
+        meterRegistry = new SimpleMeterRegistry();
+        gateway = new RazorpayGateway("rzp_test_key", "secret", stub.getBaseUrl(), 1000, 500, 3, 60, meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        stub.close();
+    }
+
+    @Test
+    void createsOrdersWithBasicAuth() {
+        String first = gateway.createOrder(200000, "INR", "REF1");
+        String second = gateway.createOrder(150000, "INR", "REF2");
+
+        assertTrue(first.startsWith("order_stub"));
+        assertEquals(200000L, stub.getOrders().get(first).getLong("amount"));
+        assertEquals("REF2", stub.getOrders().get(second).getString("receipt"));
+        String expected = "Basic " + Base64.getEncoder().encodeToString("rzp_test_key:secret".getBytes(StandardCharsets.UTF_8));
+        assertEquals(expected, stub.getLastAuthorization());
+        assertEquals(2, meterRegistry.get("razorpay.request.latency").tag("outcome", "success").timer().count());
+    }
+
+    @Test
+    void listsPaymentsMadeAgainstAnOrder() {
+        String orderId = gateway.createOrder(200000, "INR", "REF1");
+        stub.addPayment(orderId, "pay_failed", "failed", 200000);
+        stub.addPayment(orderId, "pay_ok", "captured", 200000);
+
+        List<RazorpayGateway.OrderPayment> payments = gateway.fetchOrderPayments(orderId);
+
+        assertEquals(2, payments.size());
+        assertTrue(payments.get(0).isFailed());
+        assertEquals("Payment was declined", payments.get(0).errorDescription());
+        assertTrue(payments.get(1).isCaptured());
+        assertEquals(200000L, payments.get(1).amount());
+        assertTrue(gateway.fetchOrderPayments("order_unknown").isEmpty());
+    }
+
+    @Test
+    void opensCircuitAfterRepeatedServerErrorsAndFailsFast() {
+        stub.setFailureStatus(503);
+        for (int i = 0; i < 3; i++) {
+            assertThrows(GatewayUnavailableException.class, () -> gateway.createOrder(1000, "INR", "REF"));
+        }
+        assertEquals(CircuitBreaker.State.OPEN, gateway.circuitState());
+
+        long start = System.nanoTime();
+        assertThrows(GatewayUnavailableException.class, () -> gateway.createOrder(1000, "INR", "REF"));
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 100);
+        assertEquals(3, stub.getOrderRequests());
+        assertEquals(1.0, meterRegistry.get("razorpay.circuit.rejected").counter().count());
+    }
+
+    @Test
+    void slowResponsesTimeOut() {
+        stub.setDelayMs(2000);
+        long start = System.nanoTime();
+        assertThrows(GatewayUnavailableException.class, () -> gateway.createOrder(1000, "INR", "REF"));
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 1500);
+    }
+
+    @Test
+    void clientErrorsDoNotTripTheCircuit() {
+        stub.setFailureStatus(400);
+        for (int i = 0; i < 5; i++) {
+            RuntimeException e = assertThrows(RuntimeException.class, () -> gateway.createOrder(1000, "INR", "REF"));
+            assertTrue(e.getMessage().contains("stubbed failure"));
+        }
+        assertEquals(CircuitBreaker.State.CLOSED, gateway.circuitState());
+    }
+}
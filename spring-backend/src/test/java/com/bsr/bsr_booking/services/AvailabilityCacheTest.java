@@ -0,0 +1,60 @@
+package com.bsr.bsr_booking.services;
+
+import com.bsr.bsr_booking.enums.RoomType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class AvailabilityCacheTest {
+
+    private static final LocalDate DAY = LocalDate.now().plusDays(10);
+
+    private AvailabilityCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new AvailabilityCache();
+        ReflectionTestUtils.setField(cache, "maxEntries", 100);
+    }
+
+    @Test
+    void bookingInvalidatesOnlyOverlappingRanges() {
+        cache.put(DAY, DAY.plusDays(2), RoomType.DOUBLE, List.of(1L, 2L), cache.generation());
+        cache.put(DAY.plusDays(2), DAY.plusDays(4), null, List.of(3L), cache.generation());
+        cache.put(DAY.plusDays(5), DAY.plusDays(7), RoomType.DOUBLE, List.of(4L), cache.generation());
+
+        // inclusive overlap: a stay ending on the day another range starts still touches it
+        cache.invalidateOverlapping(DAY.plusDays(1), DAY.plusDays(2));
+
+        assertNull(cache.get(DAY, DAY.plusDays(2), RoomType.DOUBLE));
+        assertNull(cache.get(DAY.plusDays(2), DAY.plusDays(4), null));
+        assertEquals(List.of(4L), cache.get(DAY.plusDays(5), DAY.plusDays(7), RoomType.DOUBLE));
+    }
+
+    @Test
+    void dropsPutFromASearchThatStartedBeforeAnInvalidation() {
+        long observed = cache.generation();
+        cache.invalidateOverlapping(DAY.plusDays(20), DAY.plusDays(21));
+
+        cache.put(DAY, DAY.plusDays(2), RoomType.SINGLE, List.of(1L), observed);
+
+        assertNull(cache.get(DAY, DAY.plusDays(2), RoomType.SINGLE));
+        cache.put(DAY, DAY.plusDays(2), RoomType.SINGLE, List.of(1L), cache.generation());
+        assertEquals(List.of(1L), cache.get(DAY, DAY.plusDays(2), RoomType.SINGLE));
+    }
+
+    @Test
+    void missingRangeInvalidatesEverything() {
+        cache.put(DAY, DAY.plusDays(2), RoomType.SINGLE, List.of(1L), cache.generation());
+
+        cache.invalidateOverlapping(null, DAY);
+
+        assertNull(cache.get(DAY, DAY.plusDays(2), RoomType.SINGLE));
+    }
+}
@@ -0,0 +1,150 @@
+package com.bsr.bsr_booking.services;
+
+import com.bsr.bsr_booking.entities.Booking;
+import com.bsr.bsr_booking.enums.BookingStatus;
+import com.bsr.bsr_booking.enums.PaymentStatus;
+import com.bsr.bsr_booking.repositories.BookingRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class BookingHoldManagerTest {
+
+    private final Map<Long, Booking> bookings = new ConcurrentHashMap<>();
+    private BookingRepository bookingRepository;
+    private AvailabilityCache availabilityCache;
+    private SimpleMeterRegistry meterRegistry;
+    private BookingHoldManager holdManager;
+
+    @BeforeEach
+    void setUp() {
+        bookingRepository = mock(BookingRepository.class);
+        availabilityCache = mock(AvailabilityCache.class);
+
+        // the hold queries, backed by the map above with the same conditions as BookingRepository
+        when(bookingRepository.lockExpiredHolds(anyList(), any())).thenAnswer(invocation -> {
+            List<Long> ids = invocation.getArgument(0);
+            LocalDateTime now = invocation.getArgument(1);
+            return ids.stream()
+                    .map(bookings::get)
+                    .filter(b -> isHeld(b) && !b.getHoldExpiresAt().isAfter(now))
+                    .toList();
+        });
+        when(bookingRepository.cancelHolds(anyList())).thenAnswer(invocation -> {
+            List<Long> ids = invocation.getArgument(0);
+            ids.forEach(id -> bookings.get(id).setBookingStatus(BookingStatus.CANCELLED));
+            return ids.size();
+        });
+        when(bookingRepository.findActiveHolds()).thenAnswer(invocation -> bookings.values().stream()
+                .filter(BookingHoldManagerTest::isHeld)
+                .map(BookingHoldManagerTest::holdView)
+                .toList());
+
+        meterRegistry = new SimpleMeterRegistry();
+        holdManager = new BookingHoldManager(bookingRepository, availabilityCache, mock(AggregateVersions.class),
+                mock(PlatformTransactionManager.class), meterRegistry);
+        ReflectionTestUtils.setField(holdManager, "releaseBatchSize", 100);
+        holdManager.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        holdManager.stop();
+    }
+
+    @Test
+    void expiredHoldReleasesTheBooking() {
+        Booking booking = unpaid(1L, LocalDateTime.now().plusNanos(100_000_000));
+
+        holdManager.track(booking);
+
+        verify(availabilityCache, timeout(2000)).invalidateOverlapping(booking.getCheckInDate(), booking.getCheckOutDate());
+        verify(bookingRepository).cancelHolds(List.of(1L));
+        assertEquals(BookingStatus.CANCELLED, booking.getBookingStatus());
+    }
+
+    @Test
+    void bookingPaidJustBeforeExpiryIsKept() {
+        Booking booking = unpaid(1L, LocalDateTime.now().plusNanos(300_000_000));
+        holdManager.track(booking);
+
+        // what PaymentService does under the booking row lock
+        booking.setPaymentStatus(PaymentStatus.COMPLETED);
+        booking.setHoldExpiresAt(null);
+
+        verify(bookingRepository, timeout(2000)).lockExpiredHolds(eq(List.of(1L)), any());
+        verify(bookingRepository, never()).cancelHolds(anyList());
+        assertEquals(BookingStatus.BOOKED, booking.getBookingStatus());
+        assertEquals(0.0, meterRegistry.get("bookings.holds.released").counter().count());
+    }
+
+    @Test
+    void rebuildPicksUpHoldsAlreadyInTheDatabase() {
+        Booking overdue = unpaid(1L, LocalDateTime.now().minusMinutes(1));
+        Booking pending = unpaid(2L, LocalDateTime.now().plusHours(1));
+        Booking paid = unpaid(3L, LocalDateTime.now().minusMinutes(1));
+        paid.setPaymentStatus(PaymentStatus.COMPLETED);
+
+        holdManager.rebuild();
+
+        verify(bookingRepository, timeout(2000)).cancelHolds(List.of(1L));
+        assertEquals(BookingStatus.CANCELLED, overdue.getBookingStatus());
+        assertEquals(BookingStatus.BOOKED, pending.getBookingStatus());
+        assertEquals(BookingStatus.BOOKED, paid.getBookingStatus());
+        // the pending hold stays queued until it comes due
+        assertEquals(1.0, meterRegistry.get("bookings.holds.tracked").gauge().value());
+    }
+
+    private Booking unpaid(Long id, LocalDateTime holdExpiresAt) {
+        Booking booking = Booking.builder()
+                .id(id)
+                .bookingReference("REF" + id)
+                .checkInDate(LocalDate.now().plusDays(3))
+                .checkOutDate(LocalDate.now().plusDays(5))
+                .bookingStatus(BookingStatus.BOOKED)
+                .paymentStatus(PaymentStatus.PENDING)
+                .holdExpiresAt(holdExpiresAt)
+                .build();
+        bookings.put(id, booking);
+        return booking;
+    }
+
+    private static boolean isHeld(Booking booking) {
+        return booking.getHoldExpiresAt() != null
+                && booking.getBookingStatus() == BookingStatus.BOOKED
+                && booking.getPaymentStatus() != PaymentStatus.COMPLETED;
+    }
+
+    private static BookingRepository.HoldView holdView(Booking booking) {
+        return new BookingRepository.HoldView() {
+            @Override
+            public Long getId() {
+                return booking.getId();
+            }
+
+            @Override
+            public LocalDateTime getHoldExpiresAt() {
+                return booking.getHoldExpiresAt();
+            }
+        };
+    }
+}
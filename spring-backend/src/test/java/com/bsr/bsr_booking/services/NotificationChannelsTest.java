@@ -0,0 +1,270 @@
+package com.bsr.bsr_booking.services;
+
+import com.bsr.bsr_booking.config.AsyncConfig;
+import com.bsr.bsr_booking.dtos.NotificationDTO;
+import com.bsr.bsr_booking.entities.Notification;
+import com.bsr.bsr_booking.entities.User;
+import com.bsr.bsr_booking.enums.NotificationStatus;
+import com.bsr.bsr_booking.enums.NotificationType;
+import com.bsr.bsr_booking.repositories.NotificationRepository;
+import com.bsr.bsr_booking.services.channels.EmailChannel;
+import com.bsr.bsr_booking.services.channels.NotificationChannel;
+import com.bsr.bsr_booking.services.channels.SmsChannel;
+import com.bsr.bsr_booking.services.channels.StubTextMessageProvider;
+import com.bsr.bsr_booking.services.channels.TextMessageProvider;
+import com.bsr.bsr_booking.services.impl.NotificationServiceImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Fan-out from NotificationService through NotificationDispatcher to the real channels, on executors built by
+ * AsyncConfig, with the outbox kept in memory.
+ */
+class NotificationChannelsTest {
+
+    private final Map<Long, Notification> outbox = new ConcurrentHashMap<>();
+    private final AtomicLong ids = new AtomicLong();
+    private final CountDownLatch releaseSms = new CountDownLatch(1);
+    private NotificationRepository repository;
+    private SmtpTransportPool smtpTransportPool;
+    private SimpleMeterRegistry meterRegistry;
+    private ThreadPoolTaskExecutor emailExecutor;
+    private ThreadPoolTaskExecutor smsExecutor;
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(NotificationRepository.class);
+        // the outbox queries, backed by the map above with the same conditions as NotificationRepository
+        when(repository.saveAll(anyIterable())).thenAnswer(invocation -> {
+            Iterable<Notification> rows = invocation.getArgument(0);
+            rows.forEach(row -> {
+                if (row.getId() == null) {
+                    row.setId(ids.incrementAndGet());
+                }
+                outbox.put(row.getId(), row);
+            });
+            return rows;
+        });
+        when(repository.lockDueBatch(anyString(), any(), anyInt())).thenAnswer(invocation -> {
+            String type = invocation.getArgument(0);
+            LocalDateTime now = invocation.getArgument(1);
+            int limit = invocation.getArgument(2);
+            return outbox.values().stream()
+                    .filter(n -> n.getType().name().equals(type) && n.getStatus() == NotificationStatus.PENDING
+                            && (n.getNextAttemptAt() == null || !n.getNextAttemptAt().isAfter(now)))
+                    .limit(limit)
+                    .toList();
+        });
+        when(repository.renewLease(anyLong(), anyLong(), any())).thenReturn(1);
+
+        smtpTransportPool = mock(SmtpTransportPool.class);
+        when(smtpTransportPool.sendAll(anyList())).thenAnswer(invocation ->
+                Arrays.asList(new Exception[invocation.<List<?>>getArgument(0).size()]));
+
+        meterRegistry = new SimpleMeterRegistry();
+        AsyncConfig asyncConfig = new AsyncConfig();
+        emailExecutor = asyncConfig.emailNotificationExecutor(meterRegistry, 1, 1, 10);
+        emailExecutor.initialize();
+        smsExecutor = asyncConfig.smsNotificationExecutor(meterRegistry, 1, 1, 1);
+        smsExecutor.initialize();
+    }
+
+    @AfterEach
+    void tearDown() {
+        releaseSms.countDown();
+        emailExecutor.shutdown();
+        smsExecutor.shutdown();
+    }
+
+    @Test
+    void userOnEmailAndSmsGetsBoth() {
+        StubTextMessageProvider smsProvider = new StubTextMessageProvider("sms", 0);
+        NotificationDispatcher dispatcher = dispatcher(smsProvider);
+
+        notificationService(smsProvider).notifyUser(user(NotificationType.EMAIL, NotificationType.SMS), confirmation());
+        dispatcher.dispatchDue();
+
+        verify(smtpTransportPool, timeout(2000)).sendAll(List.of(mail("guest@example.com")));
+        awaitStatus(NotificationType.EMAIL, NotificationStatus.SENT);
+        awaitStatus(NotificationType.SMS, NotificationStatus.SENT);
+        assertEquals(List.of("+919800000000: Booking confirmed\nSee you soon"), smsProvider.getSent());
+    }
+
+    @Test
+    void slowSmsDoesNotHoldUpEmail() {
+        TextMessageProvider smsProvider = (phoneNumber, text) -> {
+            try {
+                releaseSms.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+        NotificationDispatcher dispatcher = dispatcher(smsProvider);
+
+        notificationService(smsProvider).notifyUser(user(NotificationType.EMAIL, NotificationType.SMS), confirmation());
+        dispatcher.dispatchDue();
+
+        // e-mail goes out while the SMS provider is still stuck
+        awaitStatus(NotificationType.EMAIL, NotificationStatus.SENT);
+        assertEquals(NotificationStatus.SENDING, row(NotificationType.SMS).getStatus());
+
+        releaseSms.countDown();
+        awaitStatus(NotificationType.SMS, NotificationStatus.SENT);
+    }
+
+    @Test
+    void failingSmsDoesNotFailEmail() {
+        TextMessageProvider smsProvider = (phoneNumber, text) -> {
+            throw new IllegalStateException("sms gateway unavailable");
+        };
+        NotificationDispatcher dispatcher = dispatcher(smsProvider);
+
+        notificationService(smsProvider).notifyUser(user(NotificationType.EMAIL, NotificationType.SMS), confirmation());
+        dispatcher.dispatchDue();
+
+        awaitStatus(NotificationType.EMAIL, NotificationStatus.SENT);
+        awaitStatus(NotificationType.SMS, NotificationStatus.PENDING);
+        Notification sms = row(NotificationType.SMS);
+        assertEquals(1, sms.getAttempts());
+        assertEquals("sms gateway unavailable", sms.getLastError());
+        assertEquals(1.0, meterRegistry.get("notification.send.failures").tag("channel", "sms").counter().count());
+        assertNull(meterRegistry.find("notification.send.failures").tag("channel", "email").counter());
+    }
+
+    @Test
+    void saturatedChannelShedsWorkInsteadOfBlocking() throws InterruptedException {
+        StubTextMessageProvider smsProvider = new StubTextMessageProvider("sms", 0);
+        NotificationDispatcher dispatcher = dispatcher(smsProvider);
+        // one task on the only SMS thread, one more filling its queue
+        CountDownLatch smsBusy = new CountDownLatch(1);
+        smsExecutor.execute(() -> {
+            smsBusy.countDown();
+            awaitRelease();
+        });
+        assertTrue(smsBusy.await(5, TimeUnit.SECONDS));
+        smsExecutor.execute(this::awaitRelease);
+
+        long start = System.nanoTime();
+        smsExecutor.execute(this::awaitRelease);
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 1000);
+        assertEquals(1.0, meterRegistry.get("notification.executor.rejected").tag("channel", "sms").counter().count());
+
+        // the dispatcher leaves SMS rows in the outbox while the queue is full and still delivers e-mail
+        notificationService(smsProvider).notifyUser(user(NotificationType.EMAIL, NotificationType.SMS), confirmation());
+        dispatcher.dispatchDue();
+
+        awaitStatus(NotificationType.EMAIL, NotificationStatus.SENT);
+        assertEquals(NotificationStatus.PENDING, row(NotificationType.SMS).getStatus());
+        assertEquals(0.0, meterRegistry.get("notification.executor.rejected").tag("channel", "email").counter().count());
+
+        releaseSms.countDown();
+        awaitQueueDrained();
+        dispatcher.dispatchDue();
+        awaitStatus(NotificationType.SMS, NotificationStatus.SENT);
+    }
+
+    private NotificationDispatcher dispatcher(TextMessageProvider smsProvider) {
+        NotificationDispatcher dispatcher = new NotificationDispatcher(repository, channels(smsProvider),
+                mock(PlatformTransactionManager.class), meterRegistry);
+        ReflectionTestUtils.setField(dispatcher, "batchSize", 20);
+        ReflectionTestUtils.setField(dispatcher, "leaseSeconds", 120L);
+        ReflectionTestUtils.setField(dispatcher, "maxAttempts", 6);
+        ReflectionTestUtils.setField(dispatcher, "backoffBaseSeconds", 30L);
+        ReflectionTestUtils.setField(dispatcher, "backoffMaxSeconds", 3600L);
+        return dispatcher;
+    }
+
+    private NotificationServiceImpl notificationService(TextMessageProvider smsProvider) {
+        return new NotificationServiceImpl(repository, channels(smsProvider));
+    }
+
+    private List<NotificationChannel> channels(TextMessageProvider smsProvider) {
+        return List.of(new EmailChannel(smtpTransportPool, emailExecutor, 10), new SmsChannel(smsProvider, smsExecutor));
+    }
+
+    private void awaitRelease() {
+        try {
+            releaseSms.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void awaitQueueDrained() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (smsExecutor.getThreadPoolExecutor().getQueue().remainingCapacity() == 0 && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+    }
+
+    private void awaitStatus(NotificationType type, NotificationStatus expected) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (row(type).getStatus() != expected && System.nanoTime() < deadline) {
+            try {
+                Thread.sleep(5);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        assertEquals(expected, row(type).getStatus());
+    }
+
+    private Notification row(NotificationType type) {
+        return outbox.values().stream().filter(n -> n.getType() == type).findFirst().orElseThrow();
+    }
+
+    private static User user(NotificationType... channels) {
+        return User.builder()
+                .email("guest@example.com")
+                .phoneNumber("+919800000000")
+                .notificationChannels(Set.of(channels))
+                .build();
+    }
+
+    private static NotificationDTO confirmation() {
+        return NotificationDTO.builder()
+                .subject("Booking confirmed")
+                .body("See you soon")
+                .bookingReference("REF1")
+                .build();
+    }
+
+    private static SimpleMailMessage mail(String to) {
+        SimpleMailMessage message = new SimpleMailMessage();
+        message.setTo(to);
+        message.setSubject("Booking confirmed");
+        message.setText("See you soon");
+        return message;
+    }
+}
@@ -0,0 +1,116 @@
+package com.bsr.bsr_booking.services;
+
+import com.bsr.bsr_booking.entities.Notification;
+import com.bsr.bsr_booking.enums.NotificationStatus;
+import com.bsr.bsr_booking.enums.NotificationType;
+import com.bsr.bsr_booking.repositories.NotificationRepository;
+import com.bsr.bsr_booking.services.channels.NotificationChannel;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class NotificationDispatcherTest {
+
+    private NotificationRepository repository;
+    private NotificationChannel channel;
+    private ThreadPoolTaskExecutor executor;
+    private SimpleMeterRegistry meterRegistry;
+    private NotificationDispatcher dispatcher;
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(NotificationRepository.class);
+        executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setQueueCapacity(10);
+        executor.initialize();
+        channel = mock(NotificationChannel.class);
+        when(channel.type()).thenReturn(NotificationType.EMAIL);
+        when(channel.executor()).thenReturn(executor);
+        when(channel.batchSize()).thenReturn(10);
+        when(channel.deliver(anyList())).thenAnswer(invocation ->
+                Arrays.asList(new Exception[invocation.<List<?>>getArgument(0).size()]));
+
+        meterRegistry = new SimpleMeterRegistry();
+        dispatcher = new NotificationDispatcher(repository, List.of(channel), mock(PlatformTransactionManager.class), meterRegistry);
+        ReflectionTestUtils.setField(dispatcher, "batchSize", 20);
+        ReflectionTestUtils.setField(dispatcher, "leaseSeconds", 120L);
+        ReflectionTestUtils.setField(dispatcher, "maxAttempts", 6);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    void skipsRowsReclaimedWhileTheyWaitedInTheQueue() {
+        Notification kept = notification(1L);
+        Notification reclaimed = notification(2L);
+        when(repository.lockDueBatch(eq("EMAIL"), any(), anyInt())).thenReturn(new ArrayList<>(List.of(kept, reclaimed)));
+        when(repository.renewLease(eq(1L), anyLong(), any())).thenReturn(1);
+        when(repository.renewLease(eq(2L), anyLong(), any())).thenReturn(0);
+
+        dispatcher.dispatchDue();
+
+        verify(channel, timeout(2000)).deliver(argThat(batch -> batch.size() == 1 && batch.get(0).getId() == 1L));
+        verify(repository, timeout(2000)).saveAll(argThat((Iterable<Notification> batch) -> {
+            List<Notification> saved = new ArrayList<>();
+            batch.forEach(saved::add);
+            return saved.size() == 1 && saved.get(0).getStatus() == NotificationStatus.SENT;
+        }));
+        assertEquals(1.0, meterRegistry.get("notification.lease.lost").counter().count());
+    }
+
+    @Test
+    void keepsTheNewerStateWhenARowWasReclaimedDuringDelivery() {
+        Notification first = notification(1L);
+        Notification second = notification(2L);
+        when(repository.lockDueBatch(eq("EMAIL"), any(), anyInt())).thenReturn(new ArrayList<>(List.of(first, second)));
+        when(repository.renewLease(any(), anyLong(), any())).thenReturn(1);
+        // the claim itself goes through, the outcome write conflicts
+        when(repository.saveAll(anyList()))
+                .thenAnswer(invocation -> invocation.getArgument(0))
+                .thenThrow(new ObjectOptimisticLockingFailureException(Notification.class, 2L));
+        when(repository.save(argThat(n -> n != null && n.getId() == 2L)))
+                .thenThrow(new ObjectOptimisticLockingFailureException(Notification.class, 2L));
+
+        dispatcher.dispatchDue();
+
+        // the row still ours is saved on its own once the batch write hits the conflict
+        verify(repository, timeout(2000)).save(argThat(n -> n != null && n.getId() == 1L
+                && n.getStatus() == NotificationStatus.SENT));
+    }
+
+    private static Notification notification(Long id) {
+        return Notification.builder()
+                .id(id)
+                .recipient("guest" + id + "@example.com")
+                .type(NotificationType.EMAIL)
+                .status(NotificationStatus.SENDING)
+                .claimedUntil(LocalDateTime.now().plusSeconds(120))
+                .build();
+    }
+}
@@ -0,0 +1,138 @@
+package com.bsr.bsr_booking.services;
+
+import com.bsr.bsr_booking.dtos.NotificationDTO;
+import com.bsr.bsr_booking.entities.Booking;
+import com.bsr.bsr_booking.entities.JobCheckpoint;
+import com.bsr.bsr_booking.entities.User;
+import com.bsr.bsr_booking.enums.BookingStatus;
+import com.bsr.bsr_booking.enums.PaymentStatus;
+import com.bsr.bsr_booking.repositories.BookingRepository;
+import com.bsr.bsr_booking.repositories.JobCheckpointRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PreArrivalReminderJobTest {
+
+    private static final LocalDate TODAY = LocalDate.now();
+
+    private final List<Booking> bookings = new ArrayList<>();
+    private JobCheckpoint checkpoint;
+    private BookingRepository bookingRepository;
+    private NotificationService notificationService;
+    private PreArrivalReminderJob job;
+
+    @BeforeEach
+    void setUp() {
+        bookingRepository = mock(BookingRepository.class);
+        JobCheckpointRepository checkpointRepository = mock(JobCheckpointRepository.class);
+        notificationService = mock(NotificationService.class);
+
+        // the reminder query and the checkpoint row, backed by the fields above
+        when(bookingRepository.lockReminderChunk(any(), any(), any(), anyLong(), anyInt())).thenAnswer(invocation -> {
+            LocalDate from = invocation.getArgument(0);
+            LocalDate to = invocation.getArgument(1);
+            LocalDate afterDate = invocation.getArgument(2);
+            long afterId = invocation.getArgument(3);
+            int limit = invocation.getArgument(4);
+            return bookings.stream()
+                    .filter(b -> !b.getCheckInDate().isBefore(from) && !b.getCheckInDate().isAfter(to))
+                    .filter(b -> b.getCheckInDate().isAfter(afterDate)
+                            || (b.getCheckInDate().isEqual(afterDate) && b.getId() > afterId))
+                    .filter(b -> b.getBookingStatus() == BookingStatus.BOOKED
+                            && b.getPaymentStatus() == PaymentStatus.COMPLETED
+                            && b.getReminderSentAt() == null)
+                    .sorted(Comparator.comparing(Booking::getCheckInDate).thenComparing(Booking::getId))
+                    .limit(limit)
+                    .toList();
+        });
+        when(checkpointRepository.existsById(PreArrivalReminderJob.JOB_NAME)).thenAnswer(invocation -> checkpoint != null);
+        when(checkpointRepository.saveAndFlush(any())).thenAnswer(invocation -> checkpoint = invocation.getArgument(0));
+        when(checkpointRepository.save(any())).thenAnswer(invocation -> checkpoint = invocation.getArgument(0));
+        when(checkpointRepository.lockByJobName(PreArrivalReminderJob.JOB_NAME))
+                .thenAnswer(invocation -> Optional.ofNullable(checkpoint));
+
+        job = new PreArrivalReminderJob(bookingRepository, checkpointRepository, notificationService,
+                mock(PlatformTransactionManager.class), new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(job, "enabled", true);
+        ReflectionTestUtils.setField(job, "daysBefore", 2);
+        ReflectionTestUtils.setField(job, "chunkSize", 2);
+        ReflectionTestUtils.setField(job, "maxPerRun", 4);
+
+        bookings.add(booking(1L, TODAY.plusDays(1), PaymentStatus.COMPLETED));
+        bookings.add(booking(2L, TODAY.plusDays(1), PaymentStatus.COMPLETED));
+        bookings.add(booking(3L, TODAY.plusDays(1), PaymentStatus.PENDING));
+        bookings.add(booking(4L, TODAY.plusDays(2), PaymentStatus.COMPLETED));
+        bookings.add(booking(5L, TODAY.plusDays(2), PaymentStatus.COMPLETED));
+        bookings.add(booking(6L, TODAY.plusDays(2), PaymentStatus.COMPLETED));
+        bookings.add(booking(7L, TODAY.plusDays(5), PaymentStatus.COMPLETED));
+    }
+
+    @Test
+    void advancesTheCursorChunkByChunk() {
+        job.run();
+
+        // two chunks of two, then the per-run cap stops it
+        ArgumentCaptor<LocalDate> afterDate = ArgumentCaptor.forClass(LocalDate.class);
+        ArgumentCaptor<Long> afterId = ArgumentCaptor.forClass(Long.class);
+        verify(bookingRepository, times(2)).lockReminderChunk(eq(TODAY), eq(TODAY.plusDays(2)),
+                afterDate.capture(), afterId.capture(), eq(2));
+        assertEquals(List.of(TODAY.minusDays(1), TODAY.plusDays(1)), afterDate.getAllValues());
+        assertEquals(List.of(0L, 2L), afterId.getAllValues());
+
+        assertEquals(TODAY.plusDays(2), checkpoint.getCursorDate());
+        assertEquals(5L, checkpoint.getCursorId());
+        assertEquals(4, checkpoint.getProcessed());
+        verify(notificationService, times(4)).notifyUser(any(User.class), any(NotificationDTO.class));
+    }
+
+    @Test
+    void rerunsNeverRemindTheSameBookingTwice() {
+        job.run();
+        // picks up booking 6 from the cursor, then finishes the pass and rewinds the cursor
+        job.run();
+        assertEquals(TODAY.minusDays(1), checkpoint.getCursorDate());
+        assertEquals(0L, checkpoint.getCursorId());
+
+        // a fresh pass over the window finds everything stamped with reminderSentAt
+        job.run();
+
+        verify(notificationService, times(5)).notifyUser(any(User.class), any(NotificationDTO.class));
+        assertEquals(5, bookings.stream().filter(b -> b.getReminderSentAt() != null).count());
+        assertNull(bookings.get(2).getReminderSentAt());
+        assertNull(bookings.get(6).getReminderSentAt());
+    }
+
+    private static Booking booking(Long id, LocalDate checkIn, PaymentStatus paymentStatus) {
+        User user = User.builder().email("guest" + id + "@example.com").firstName("Guest").lastName(id.toString()).build();
+        return Booking.builder()
+                .id(id)
+                .user(user)
+                .bookingReference("REF" + id)
+                .checkInDate(checkIn)
+                .checkOutDate(checkIn.plusDays(2))
+                .bookingStatus(BookingStatus.BOOKED)
+                .paymentStatus(paymentStatus)
+                .build();
+    }
+}
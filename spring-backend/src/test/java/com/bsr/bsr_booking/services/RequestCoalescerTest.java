@@ -0,0 +1,140 @@
+package com.bsr.bsr_booking.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RequestCoalescerTest {
+
+    private final ExecutorService callers = Executors.newVirtualThreadPerTaskExecutor();
+    private final CountDownLatch leaderStarted = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final AtomicInteger loads = new AtomicInteger();
+    private SimpleMeterRegistry meterRegistry;
+    private RequestCoalescer coalescer;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        coalescer = new RequestCoalescer(meterRegistry);
+        ReflectionTestUtils.setField(coalescer, "waitTimeoutMs", 5000L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        callers.shutdownNow();
+    }
+
+    @Test
+    void concurrentCallersShareOneLoad() throws Exception {
+        CompletableFuture<String> leader = call(blockingLoader(() -> "rooms"));
+        List<CompletableFuture<String>> followers = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            followers.add(call(blockingLoader(() -> "rooms")));
+        }
+        awaitCount("coalesced", 5);
+
+        release.countDown();
+
+        assertEquals("rooms", leader.get(5, TimeUnit.SECONDS));
+        for (CompletableFuture<String> follower : followers) {
+            assertEquals("rooms", follower.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, loads.get());
+        assertEquals(1.0, count("leader"));
+        assertEquals(5.0, count("coalesced"));
+        assertEquals(0.0, count("timeout"));
+        assertEquals(0.0, meterRegistry.get("coalescer.in.flight").gauge().value());
+    }
+
+    @Test
+    void leaderFailureReachesFollowers() throws Exception {
+        IllegalStateException failure = new IllegalStateException("database down");
+        CompletableFuture<String> leader = call(blockingLoader(() -> {
+            throw failure;
+        }));
+        CompletableFuture<String> follower = call(blockingLoader(() -> "unused"));
+        awaitCount("coalesced", 1);
+
+        release.countDown();
+
+        assertSame(failure, assertThrows(CompletionException.class, leader::join).getCause());
+        assertSame(failure, assertThrows(CompletionException.class, follower::join).getCause());
+        assertEquals(1, loads.get());
+
+        // nothing is left in flight, so the next caller leads a fresh load
+        assertEquals("fresh", coalescer.execute("rooms", () -> "fresh"));
+        assertEquals(2.0, count("leader"));
+    }
+
+    @Test
+    void followerGivesUpAfterTheTimeoutAndLoadsItself() throws Exception {
+        ReflectionTestUtils.setField(coalescer, "waitTimeoutMs", 100L);
+        CompletableFuture<String> leader = call(blockingLoader(() -> "slow"));
+        assertTrue(leaderStarted.await(5, TimeUnit.SECONDS));
+
+        String direct = coalescer.execute("rooms", () -> {
+            loads.incrementAndGet();
+            return "direct";
+        });
+
+        assertEquals("direct", direct);
+        assertEquals(1.0, count("coalesced"));
+        assertEquals(1.0, count("timeout"));
+        release.countDown();
+        assertEquals("slow", leader.get(5, TimeUnit.SECONDS));
+        assertEquals(2, loads.get());
+    }
+
+    // the first loader to run signals leaderStarted and blocks until release
+    private Supplier<String> blockingLoader(Supplier<String> result) {
+        return () -> {
+            loads.incrementAndGet();
+            leaderStarted.countDown();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return result.get();
+        };
+    }
+
+    private CompletableFuture<String> call(Supplier<String> loader) throws InterruptedException {
+        CompletableFuture<String> future = CompletableFuture.supplyAsync(() -> coalescer.execute("rooms", loader), callers);
+        // the first call becomes the leader before any follower is started
+        assertTrue(leaderStarted.await(5, TimeUnit.SECONDS));
+        return future;
+    }
+
+    private void awaitCount(String result, double expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (count(result) < expected && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(expected, count(result));
+    }
+
+    private double count(String result) {
+        return meterRegistry.get("coalescer.calls").tag("result", result).counter().count();
+    }
+}
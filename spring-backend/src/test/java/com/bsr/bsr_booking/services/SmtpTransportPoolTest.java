@@ -0,0 +1,125 @@
+package com.bsr.bsr_booking.services;
+
+import com.bsr.bsr_booking.support.FakeSmtpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SmtpTransportPoolTest {
+
+    private FakeSmtpServer smtp;
+    private SimpleMeterRegistry meterRegistry;
+    private JavaMailSenderImpl sender;
+    private SmtpTransportPool pool;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        smtp = new FakeSmtpServer(0);
+        sender = new JavaMailSenderImpl();
+        sender.setHost("127.0.0.1");
+        sender.setPort(smtp.getPort());
+        sender.setUsername("mailer");
+        sender.setPassword("secret");
+        sender.getJavaMailProperties().put("mail.smtp.auth", "true");
+        sender.getJavaMailProperties().put("mail.from", "noreply@localhost");
+        meterRegistry = new SimpleMeterRegistry();
+        pool = new SmtpTransportPool(sender, meterRegistry, 2, 0, 2000);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        pool.destroy();
+        smtp.close();
+    }
+
+    @Test
+    void sendsSeveralBatchesOverOneSession() {
+        for (int batch = 0; batch < 3; batch++) {
+            List<Exception> failures = pool.sendAll(messages(batch, 5));
+            assertTrue(failures.stream().allMatch(Objects::isNull), failures.toString());
+        }
+
+        assertEquals(15, smtp.getMessages().size());
+        assertEquals(1, smtp.getConnectionCount());
+        assertEquals(15.0, meterRegistry.get("mail.smtp.messages").tag("connection", "0").counter().count());
+    }
+
+    @Test
+    void reconnectsWhenTheSessionWasDropped() throws IOException {
+        pool.sendAll(messages(0, 2));
+        smtp.dropConnections();
+
+        List<Exception> failures = pool.sendAll(messages(1, 3));
+
+        assertTrue(failures.stream().allMatch(Objects::isNull), failures.toString());
+        assertEquals(5, smtp.getMessages().size());
+        assertEquals(2, smtp.getConnectionCount());
+    }
+
+    @Test
+    void recoversAfterFailedConnects() throws IOException {
+        sender.setPort(closedPort());
+        // more failures than the pool has sessions
+        for (int attempt = 0; attempt < 3; attempt++) {
+            List<Exception> failures = pool.sendAll(messages(attempt, 1));
+            assertNotNull(failures.get(0));
+        }
+        assertEquals(0.0, meterRegistry.get("mail.smtp.connections.open").gauge().value());
+
+        sender.setPort(smtp.getPort());
+        List<Exception> failures = pool.sendAll(messages(3, 2));
+
+        assertTrue(failures.stream().allMatch(Objects::isNull), failures.toString());
+        assertEquals(2, smtp.getMessages().size());
+        assertEquals(1.0, meterRegistry.get("mail.smtp.connections.open").gauge().value());
+    }
+
+    @Test
+    void recoversAfterFailedIdleReconnects() throws IOException {
+        pool.sendAll(messages(0, 1));
+        smtp.dropConnections();
+        sender.setPort(closedPort());
+        for (int attempt = 1; attempt <= 3; attempt++) {
+            assertNotNull(pool.sendAll(messages(attempt, 1)).get(0));
+        }
+
+        sender.setPort(smtp.getPort());
+        List<Exception> failures = pool.sendAll(messages(4, 2));
+
+        assertTrue(failures.stream().allMatch(Objects::isNull), failures.toString());
+        assertEquals(3, smtp.getMessages().size());
+        assertEquals(1.0, meterRegistry.get("mail.smtp.connections.open").gauge().value());
+    }
+
+    // a local port nobody listens on, so connecting is refused straight away
+    private static int closedPort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static List<SimpleMailMessage> messages(int batch, int count) {
+        List<SimpleMailMessage> messages = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            SimpleMailMessage message = new SimpleMailMessage();
+            message.setTo("guest" + i + "@example.com");
+            message.setSubject("Batch " + batch);
+            message.setText("Message " + i + " of batch " + batch);
+            messages.add(message);
+        }
+        return messages;
+    }
+}
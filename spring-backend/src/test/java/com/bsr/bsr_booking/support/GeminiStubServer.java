@@ -0,0 +1,223 @@
+package com.bsr.bsr_booking.support;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Local stand-in for the Gemini generateContent API. Answers every prompt through a configurable responder and
+ * can be told to fail the next few calls with a given status or to respond slowly, to exercise retries and deadlines.
+ * For load tests the delay can follow a log-normal distribution given by its median and p99, a share of calls can
+ * fail with 503, and keywordResponder picks canned decisions by keywords in the prompt's latest user message.
+ * streamGenerateContent calls get the same reply as Server-Sent Events, cut into chunks sent a little apart.
+ */
+public class GeminiStubServer implements AutoCloseable {
+
+    private static final Pattern LATEST_MESSAGE = Pattern.compile("Latest user message: \"(.*)\"\\s*\\z", Pattern.DOTALL);
+    // standard normal quantile of 0.99
+    private static final double Z_99 = 2.3263;
+
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final AtomicInteger requests = new AtomicInteger();
+    private final Queue<Integer> failures = new ConcurrentLinkedQueue<>();
+    private volatile Function<String, String> responder =
+            prompt -> "{\"action\":\"small_talk\",\"params\":{},\"response\":\"Hello from the stub\"}";
+    private volatile double delayMs;
+    private volatile double sigma;
+    private volatile double errorRate;
+    private volatile int chunkSize = 8;
+    private volatile long chunkDelayMs = 50;
+    private volatile String lastPrompt;
+
+    public GeminiStubServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/v1beta/models", this::handleGenerate);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    public String getBaseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    public int getRequests() {
+        return requests.get();
+    }
+
+    public String getLastPrompt() {
+        return lastPrompt;
+    }
+
+    // maps the prompt text to the model's reply text
+    public void setResponder(Function<String, String> responder) {
+        this.responder = responder;
+    }
+
+    // the next {@code times} calls are answered with {@code status}
+    public void failNext(int times, int status) {
+        for (int i = 0; i < times; i++) {
+            failures.add(status);
+        }
+    }
+
+    public void setDelayMs(long delayMs) {
+        setLatency(delayMs, delayMs);
+    }
+
+    // log-normally distributed delay; a p99 at or below the median gives a fixed delay
+    public void setLatency(double medianMs, double p99Ms) {
+        this.sigma = medianMs > 0 && p99Ms > medianMs ? Math.log(p99Ms / medianMs) / Z_99 : 0;
+        this.delayMs = Math.max(0, medianMs);
+    }
+
+    // share of calls, after the queued failNext ones, answered with 503
+    public void setErrorRate(double errorRate) {
+        this.errorRate = errorRate;
+    }
+
+    // streaming replies are cut into pieces of chunkSize characters, chunkDelayMs apart
+    public void setStreaming(int chunkSize, long chunkDelayMs) {
+        this.chunkSize = chunkSize;
+        this.chunkDelayMs = chunkDelayMs;
+    }
+
+    private void handleGenerate(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            requests.incrementAndGet();
+            JSONObject request = new JSONObject(new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+            lastPrompt = request.getJSONArray("contents").getJSONObject(0)
+                    .getJSONArray("parts").getJSONObject(0).getString("text");
+            long delay = delayMs();
+            if (delay > 0) {
+                sleep(delay);
+            }
+            Integer failure = failures.poll();
+            if (failure == null && errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate) {
+                failure = 503;
+            }
+            if (failure != null) {
+                respond(exchange, failure, new JSONObject()
+                        .put("error", new JSONObject().put("code", failure).put("message", "stubbed failure")));
+                return;
+            }
+            String reply = responder.apply(lastPrompt);
+            if (exchange.getRequestURI().getPath().endsWith(":streamGenerateContent")) {
+                stream(exchange, reply);
+                return;
+            }
+            respond(exchange, 200, chunk(reply));
+        }
+    }
+
+    private void stream(HttpExchange exchange, String reply) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+        exchange.sendResponseHeaders(200, 0);
+        try (OutputStream out = exchange.getResponseBody()) {
+            for (int i = 0; i < reply.length(); i += chunkSize) {
+                if (i > 0) {
+                    sleep(chunkDelayMs);
+                }
+                String piece = reply.substring(i, Math.min(reply.length(), i + chunkSize));
+                out.write(("data: " + chunk(piece) + "\r\n\r\n").getBytes(StandardCharsets.UTF_8));
+                out.flush();
+            }
+        }
+    }
+
+    private long delayMs() {
+        if (delayMs <= 0) {
+            return 0;
+        }
+        return Math.round(delayMs * Math.exp(sigma * ThreadLocalRandom.current().nextGaussian()));
+    }
+
+    /**
+     * Answers with the decision of the first rule whose keyword occurs in the latest user message ("*" matches
+     * anything), or small talk when none does.
+     */
+    public static Function<String, String> keywordResponder(List<Rule> rules) {
+        List<Rule> copy = List.copyOf(rules);
+        return prompt -> {
+            String message = latestMessage(prompt).toLowerCase(Locale.ROOT);
+            for (Rule rule : copy) {
+                if (rule.keyword().equals("*") || message.contains(rule.keyword())) {
+                    return rule.decision();
+                }
+            }
+            return "{\"action\":\"small_talk\",\"params\":{},\"response\":\"How can I help with your stay?\"}";
+        };
+    }
+
+    // "keyword => decision JSON" lines, first match wins; '#' starts a comment line
+    public static List<Rule> parseRules(String text) {
+        List<Rule> rules = new ArrayList<>();
+        for (String raw : text.split("\\R")) {
+            String line = raw.strip();
+            int arrow = line.indexOf("=>");
+            if (line.isEmpty() || line.startsWith("#") || arrow < 0) {
+                continue;
+            }
+            rules.add(new Rule(line.substring(0, arrow).strip().toLowerCase(Locale.ROOT), line.substring(arrow + 2).strip()));
+        }
+        return rules;
+    }
+
+    private static String latestMessage(String prompt) {
+        Matcher matcher = LATEST_MESSAGE.matcher(prompt);
+        return matcher.find() ? matcher.group(1) : prompt;
+    }
+
+    public record Rule(String keyword, String decision) {
+    }
+
+    private static JSONObject chunk(String text) {
+        JSONObject part = new JSONObject().put("text", text);
+        JSONObject candidate = new JSONObject()
+                .put("content", new JSONObject().put("role", "model").put("parts", new JSONArray().put(part)))
+                .put("finishReason", "STOP");
+        return new JSONObject().put("candidates", new JSONArray().put(candidate));
+    }
+
+    private void respond(HttpExchange exchange, int status, JSONObject body) throws IOException {
+        byte[] bytes = body.toString().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static void sleep(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,144 @@
+package com.bsr.bsr_booking.support;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Local stand-in for the Razorpay orders API. Creates orders and their payments in memory and can be told to
+ * answer with an error status or to respond slowly, to exercise timeouts and the circuit breaker.
+ */
+public class RazorpayStubServer implements AutoCloseable {
+
+    private final HttpServer server;
+    private final Map<String, JSONObject> orders = new ConcurrentHashMap<>();
+    private final Map<String, JSONArray> orderPayments = new ConcurrentHashMap<>();
+    private final AtomicInteger orderRequests = new AtomicInteger();
+    private final AtomicInteger paymentLookups = new AtomicInteger();
+    private final AtomicInteger sequence = new AtomicInteger();
+    private volatile int failureStatus;
+    private volatile long delayMs;
+    private volatile String lastAuthorization;
+
+    public RazorpayStubServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/v1/orders", this::handleOrders);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+    }
+
+    public String getBaseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    public int getOrderRequests() {
+        return orderRequests.get();
+    }
+
+    public Map<String, JSONObject> getOrders() {
+        return orders;
+    }
+
+    public String getLastAuthorization() {
+        return lastAuthorization;
+    }
+
+    public int getPaymentLookups() {
+        return paymentLookups.get();
+    }
+
+    // records a payment attempt against an order, as if the customer had paid (status "captured") or failed ("failed")
+    public void addPayment(String orderId, String paymentId, String status, long amount) {
+        orderPayments.computeIfAbsent(orderId, id -> new JSONArray()).put(new JSONObject()
+                .put("id", paymentId)
+                .put("entity", "payment")
+                .put("order_id", orderId)
+                .put("amount", amount)
+                .put("status", status)
+                .put("error_description", "failed".equals(status) ? "Payment was declined" : JSONObject.NULL));
+    }
+
+    // 0 restores normal responses
+    public void setFailureStatus(int failureStatus) {
+        this.failureStatus = failureStatus;
+    }
+
+    public void setDelayMs(long delayMs) {
+        this.delayMs = delayMs;
+    }
+
+    private void handleOrders(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            lastAuthorization = exchange.getRequestHeaders().getFirst("Authorization");
+            if ("POST".equals(exchange.getRequestMethod())) {
+                orderRequests.incrementAndGet();
+            }
+            if (delayMs > 0) {
+                sleep(delayMs);
+            }
+            if (failureStatus > 0) {
+                respond(exchange, failureStatus, new JSONObject()
+                        .put("error", new JSONObject().put("code", "SERVER_ERROR").put("description", "stubbed failure")));
+                return;
+            }
+            String path = exchange.getRequestURI().getPath();
+            if ("GET".equals(exchange.getRequestMethod()) && path.endsWith("/payments")) {
+                paymentLookups.incrementAndGet();
+                String orderId = path.substring("/v1/orders/".length(), path.length() - "/payments".length());
+                JSONArray items = orderPayments.getOrDefault(orderId, new JSONArray());
+                respond(exchange, 200, new JSONObject().put("entity", "collection").put("count", items.length()).put("items", items));
+                return;
+            }
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                respond(exchange, 405, new JSONObject());
+                return;
+            }
+
+            JSONObject request = new JSONObject(new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+            String id = "order_stub" + sequence.incrementAndGet();
+            JSONObject order = new JSONObject()
+                    .put("id", id)
+                    .put("entity", "order")
+                    .put("amount", request.getLong("amount"))
+                    .put("amount_paid", 0)
+                    .put("currency", request.optString("currency", "INR"))
+                    .put("receipt", request.optString("receipt"))
+                    .put("status", "created");
+            orders.put(id, order);
+            respond(exchange, 200, order);
+        }
+    }
+
+    private void respond(HttpExchange exchange, int status, JSONObject body) throws IOException {
+        byte[] bytes = body.toString().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static void sleep(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+}
@@ -0,0 +1,74 @@
+package com.bsr.bsr_booking.support;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Replays recorded Razorpay webhook events, signed with a given secret, against a running backend.
+ * Used by tests and runnable from the test classpath:
+ * <pre>WebhookReplayer http://localhost:8080 &lt;webhook-secret&gt; [events-dir] [times]</pre>
+ */
+public class WebhookReplayer {
+
+    public static final Path DEFAULT_EVENTS_DIR = Path.of("src/test/resources/webhooks");
+
+    public record RecordedEvent(String name, byte[] body) {
+    }
+
+    public static List<RecordedEvent> load(Path dir) throws IOException {
+        List<RecordedEvent> events = new ArrayList<>();
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path file : files.filter(f -> f.toString().endsWith(".json")).sorted().toList()) {
+                events.add(new RecordedEvent(file.getFileName().toString(), Files.readAllBytes(file)));
+            }
+        }
+        return events;
+    }
+
+    public static String sign(byte[] body, String secret) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+            return HexFormat.of().formatHex(mac.doFinal(body));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.err.println("usage: WebhookReplayer <base-url> <webhook-secret> [events-dir] [times]");
+            System.exit(2);
+        }
+        URI endpoint = URI.create(args[0].replaceAll("/$", "") + "/api/payments/webhook");
+        String secret = args[1];
+        Path dir = args.length > 2 ? Path.of(args[2]) : DEFAULT_EVENTS_DIR;
+        int times = args.length > 3 ? Integer.parseInt(args[3]) : 1;
+
+        HttpClient client = HttpClient.newHttpClient();
+        for (int round = 0; round < times; round++) {
+            for (RecordedEvent event : load(dir)) {
+                HttpRequest request = HttpRequest.newBuilder(endpoint)
+                        .header("Content-Type", "application/json")
+                        .header("X-Razorpay-Signature", sign(event.body(), secret))
+                        .POST(HttpRequest.BodyPublishers.ofByteArray(event.body()))
+                        .build();
+                HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                System.out.printf("%s -> HTTP %d%n", event.name(), response.statusCode());
+            }
+        }
+    }
+}